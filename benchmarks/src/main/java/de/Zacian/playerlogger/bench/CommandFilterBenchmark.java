@@ -0,0 +1,44 @@
+package de.Zacian.playerlogger.bench;
+
+import de.Zacian.playerlogger.filter.CommandFilter;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Was {@code onCommand} auf dem Main-Thread pro Command kostet. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandFilterBenchmark {
+
+    @Param({"/spawn", "/home base", "/login geheim123", "/tpa SomeLongPlayerName", "/unknowncommand with some args"})
+    public String command;
+
+    private CommandFilter filter;
+
+    @Setup
+    public void setup() {
+        YamlConfiguration cfg = new YamlConfiguration();
+        cfg.set("enabled", true);
+        cfg.set("deny-prefixes", List.of("/login", "/register", "/l ", "/reg ", "/changepassword"));
+        cfg.set("deny-exact", List.of("/afk"));
+        cfg.set("redact-prefixes", List.of("/msg", "/tell", "/w ", "/r "));
+        cfg.set("redact-exact", List.of("/pay"));
+        filter = CommandFilter.compile(cfg);
+    }
+
+    @Benchmark
+    public String apply() {
+        return filter.apply(command);
+    }
+
+    @Benchmark
+    public CommandFilter.Action decide() {
+        return filter.decide(command);
+    }
+}
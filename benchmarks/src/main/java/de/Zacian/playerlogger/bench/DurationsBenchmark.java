@@ -0,0 +1,32 @@
+package de.Zacian.playerlogger.bench;
+
+import de.Zacian.playerlogger.util.Durations;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Formatierung für /plog stats und /plog top, Parsen für /plog add. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DurationsBenchmark {
+
+    @Param({"45000", "7384000", "987654321"})
+    public long ms;
+
+    @Param({"90", "2h", "30s", "1500ms"})
+    public String input;
+
+    @Benchmark
+    public String format() {
+        return Durations.format(ms, false);
+    }
+
+    @Benchmark
+    public long parse() {
+        return Durations.parse(input);
+    }
+}
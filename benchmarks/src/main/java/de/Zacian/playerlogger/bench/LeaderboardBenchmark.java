@@ -0,0 +1,80 @@
+package de.Zacian.playerlogger.bench;
+
+import de.Zacian.playerlogger.storage.Leaderboard;
+import de.Zacian.playerlogger.storage.Uuids;
+import de.Zacian.playerlogger.storage.migration.MigrationContext;
+import de.Zacian.playerlogger.storage.migration.SchemaMigrator;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/** {@code /plog top} und der eigene Rang im Cache, bei wachsender Spielerzahl. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LeaderboardBenchmark {
+
+    private static final int ONLINE = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int players;
+
+    private Leaderboard leaderboard;
+    private UUID[] uuids;
+    private long now;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        uuids = new UUID[players];
+        now = System.currentTimeMillis();
+
+        leaderboard = new Leaderboard();
+        try (Connection con = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            new SchemaMigrator().migrate(new MigrationContext(con, false, Logger.getLogger("bench"), 2000));
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO players(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
+                            "VALUES(?, ?, 0, 0, 0, ?)")) {
+                for (int i = 0; i < players; i++) {
+                    uuids[i] = UUID.randomUUID();
+                    ps.setBytes(1, Uuids.toBytes(uuids[i]));
+                    ps.setString(2, "Player" + i);
+                    ps.setLong(3, (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(30)));
+                    ps.addBatch();
+                    if (i % 10_000 == 9_999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+            leaderboard.load(con, false);
+        }
+
+        // ein paar laufende Sessions, damit auch der Online-Baum mitzählt
+        for (int i = 0; i < ONLINE; i++) {
+            int p = random.nextInt(players);
+            leaderboard.join(uuids[p], "Player" + p, now - random.nextInt(3_600_000));
+        }
+    }
+
+    @Benchmark
+    public List<Leaderboard.Row> top10() {
+        return leaderboard.top(10, now);
+    }
+
+    @Benchmark
+    public Leaderboard.Rank rank() {
+        return leaderboard.rank(uuids[next++ % players], now);
+    }
+}
@@ -0,0 +1,115 @@
+package de.Zacian.playerlogger.bench;
+
+import de.Zacian.playerlogger.storage.Sql;
+import de.Zacian.playerlogger.storage.Uuids;
+import de.Zacian.playerlogger.storage.migration.MigrationContext;
+import de.Zacian.playerlogger.storage.migration.SchemaMigrator;
+import org.openjdk.jmh.annotations.*;
+import org.sqlite.SQLiteConfig;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Schreibpfad des DB-Threads: eine Transaktion pro Batch wie in {@code EventPipeline}.
+ * {@code disk} nutzt dasselbe Profil wie der Server (WAL, synchronous=NORMAL).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SqliteWriteBenchmark {
+
+    private static final int BATCH = 200;
+    private static final int PLAYERS = 5000;
+
+    @Param({"memory", "disk"})
+    public String storage;
+
+    private Path dir;
+    private Connection con;
+    private PreparedStatement upsert;
+    private PreparedStatement command;
+    private byte[][] uuids;
+    private long time;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+
+        String url;
+        if (storage.equals("disk")) {
+            dir = Files.createTempDirectory("playerlogger-bench");
+            url = "jdbc:sqlite:" + dir.resolve("data.db");
+        } else {
+            url = "jdbc:sqlite::memory:";
+        }
+        con = config.createConnection(url);
+        new SchemaMigrator().migrate(new MigrationContext(con, false, Logger.getLogger("bench"), 2000));
+        con.setAutoCommit(false);
+
+        upsert = con.prepareStatement(Sql.UPSERT_PLAYER.text(false));
+        command = con.prepareStatement(Sql.INSERT_COMMAND.text(false));
+        uuids = new byte[PLAYERS][];
+        for (int i = 0; i < PLAYERS; i++) uuids[i] = Uuids.toBytes(UUID.randomUUID());
+        time = System.currentTimeMillis();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        upsert.close();
+        command.close();
+        con.close();
+        if (dir != null) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /** Joins/Quits: Upsert auf {@code players}, teils neue, teils bekannte Spieler. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void upsertPlayers() throws SQLException {
+        for (int i = 0; i < BATCH; i++) {
+            int p = next++ % PLAYERS;
+            upsert.setBytes(1, uuids[p]);
+            upsert.setString(2, "Player" + p);
+            upsert.setLong(3, time);
+            upsert.setLong(4, time + i);
+            upsert.setInt(5, 1);
+            upsert.addBatch();
+        }
+        upsert.executeBatch();
+        con.commit();
+    }
+
+    /** Command-Logs: nur noch uuid, time und die ID aus {@code command_texts}. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertCommands() throws SQLException {
+        for (int i = 0; i < BATCH; i++) {
+            int n = next++;
+            command.setBytes(1, uuids[n % PLAYERS]);
+            command.setLong(2, time + n);
+            command.setLong(3, n % 500);
+            command.addBatch();
+        }
+        command.executeBatch();
+        con.commit();
+    }
+}
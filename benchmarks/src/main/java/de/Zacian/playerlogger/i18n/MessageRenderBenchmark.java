@@ -0,0 +1,55 @@
+package de.Zacian.playerlogger.i18n;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Der Pfad hinter {@code Messages.msg}: Template nachschlagen und rendern. Liegt im Paket {@code i18n},
+ * weil {@link MessageTemplate} package-private ist; {@code Messages} selbst braucht ein laufendes Plugin.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageRenderBenchmark {
+
+    private final Map<String, MessageTemplate> templates = new HashMap<>();
+    private Map<String, String> vars;
+
+    @Setup
+    public void setup() throws Exception {
+        YamlConfiguration cfg;
+        try (var in = MessageRenderBenchmark.class.getClassLoader().getResourceAsStream("messages_de.yml")) {
+            if (in == null) throw new IllegalStateException("messages_de.yml not on classpath");
+            cfg = YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        for (String key : cfg.getKeys(true)) {
+            if (cfg.isString(key)) templates.put(key, MessageTemplate.compile(cfg.getString(key)));
+        }
+        vars = Map.of("player", "SomePlayer", "time", "2d 03h 04m 05s");
+    }
+
+    @Benchmark
+    public String withPlaceholders() {
+        return templates.get("stats.playtime").render(vars);
+    }
+
+    @Benchmark
+    public String plain() {
+        return templates.get("help.title").render();
+    }
+
+    /** Zum Vergleich: so wurde vor dem Vorkompilieren pro Aufruf gearbeitet. */
+    @Benchmark
+    public String compileAndRender() {
+        return MessageTemplate.compile("&7Spielzeit: &b%time%").render(vars);
+    }
+}
@@ -1,18 +1,29 @@
 package de.Zacian.playerlogger;
 
+import de.Zacian.playerlogger.config.PluginSettings;
+import de.Zacian.playerlogger.metrics.MetricsMBean;
+import de.Zacian.playerlogger.metrics.PluginMetrics;
+import de.Zacian.playerlogger.metrics.PluginMetrics.Handler;
 import de.Zacian.playerlogger.storage.Database;
+import de.Zacian.playerlogger.storage.Leaderboard;
+import de.Zacian.playerlogger.storage.NameIndex;
+import de.Zacian.playerlogger.storage.LogEvent;
+import de.Zacian.playerlogger.storage.OpenSession;
+import de.Zacian.playerlogger.storage.PlayerCache;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.java.JavaPlugin;
 
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -21,22 +32,68 @@ import java.util.List;
 public final class PlayerLogger extends JavaPlugin implements Listener {
 
     private Database db;
-    private final Map<UUID, Long> sessionStartMs = new ConcurrentHashMap<>();
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final NameIndex names = new NameIndex();
+    private volatile PlayerCache playerCache;
+    private final PluginMetrics metrics = new PluginMetrics();
+    private MetricsMBean metricsBean;
+    private volatile PluginSettings settings;
+    // Start und sessions-ID der Online-Spieler; die ID trägt der DB-Thread nach
+    private final Map<UUID, OpenSession> openSessions = new ConcurrentHashMap<>();
     private de.Zacian.playerlogger.i18n.Messages messages;
     public de.Zacian.playerlogger.i18n.Messages messages() { return messages; }
+    public Leaderboard leaderboard() { return leaderboard; }
+    public NameIndex names() { return names; }
+    public PlayerCache playerCache() { return playerCache; }
+    public PluginMetrics metrics() { return metrics; }
 
     @Override
     public void onEnable() {
         saveDefaultConfig();
         reloadConfig();
+        settings = PluginSettings.load(getConfig(), getLogger());
         messages = new de.Zacian.playerlogger.i18n.Messages(this);
-        messages.reload();
+        messages.reload(settings);
 
-        db = new Database(this);
+        db = new Database(this, settings.storage(), metrics);
         db.connect();
+        // vor initSchema, ein nach dem Neustart fortgesetzter Purge kann sofort loslegen
+        db.playerPurge().onPurged(uuid -> {
+            leaderboard.remove(uuid);
+            if (playerCache != null) playerCache.invalidate(uuid);
+            names.remove(uuid);
+        });
+        db.onInserted(j -> {
+            if (playerCache != null) playerCache.joined(j);
+        });
         db.initSchema();
+        db.runAsync(() -> {
+            try {
+                leaderboard.load(db.getConnection(), db.isMySql(), db.metrics());
+                getLogger().info("Leaderboard loaded: " + leaderboard.size() + " players.");
+                names.load(db.getConnection(), db.isMySql(), db.metrics());
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+
+        var storage = settings.storage();
+        playerCache = new PlayerCache(db, getLogger(),
+                storage.cacheOfflineTtlMinutes() * 60_000L, storage.cacheMaxOfflineEntries());
+        long writeBehindTicks = Math.max(1L, storage.cacheWriteBehindSeconds()) * 20L;
+        Bukkit.getScheduler().runTaskTimer(this, () -> {
+            long start = System.nanoTime();
+            playerCache.tick();
+            metrics.handler(Handler.CACHE_TICK).recordSince(start);
+        }, writeBehindTicks, writeBehindTicks);
+        if (storage.checkpointSeconds() > 0) {
+            long checkpointTicks = storage.checkpointSeconds() * 20L;
+            Bukkit.getScheduler().runTaskTimer(this, this::checkpoint, checkpointTicks, checkpointTicks);
+        }
 
         Bukkit.getPluginManager().registerEvents(this, this);
+        metricsBean = new MetricsMBean(metrics, db);
+        metricsBean.register(getLogger());
 
         var cmd = new de.Zacian.playerlogger.commands.PlayerLoggerCommand(this, db);
 
@@ -54,160 +111,127 @@ public final class PlayerLogger extends JavaPlugin implements Listener {
 
     @Override
     public void onDisable() {
-        // offene Sessions sauber schließen
-        if (getConfig().getBoolean("logging.join-quit", true)) {
+        // offene Sessions sauber schließen, db.flush() schreibt die Pipeline leer
+        if (settings != null && settings.logJoinQuit()) {
             for (Player p : Bukkit.getOnlinePlayers()) {
-                handleQuit(p.getUniqueId(), p.getName(), true);
+                handleQuit(p.getUniqueId(), p.getName());
             }
         }
+        if (playerCache != null) playerCache.tick();
         if (db != null) db.flush();
         if (db != null) db.shutdown();
+        if (metricsBean != null) metricsBean.unregister();
         getLogger().info("PlayerLogger disabled.");
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent e) {
+        if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        long start = System.nanoTime();
+        // läuft async: players-Zeile vor dem Join in den Cache holen
+        playerCache.prefetch(e.getUniqueId());
+        metrics.handler(Handler.PRE_LOGIN).recordSince(start);
+    }
+
     @EventHandler
     public void onJoin(PlayerJoinEvent e) {
-        if (!getConfig().getBoolean("logging.join-quit", true)) {
+        names.put(e.getPlayer().getUniqueId(), e.getPlayer().getName(), System.currentTimeMillis());
+        if (!settings.logJoinQuit()) {
             return;
         }
+        long start = System.nanoTime();
         Player p = e.getPlayer();
         UUID uuid = p.getUniqueId();
-        String name = p.getName();
         long now = Instant.now().toEpochMilli();
 
-        sessionStartMs.put(uuid, now);
-
-        db.runAsync(() -> {
-            upsertPlayer(uuid, name, now, true);
-
-            try (PreparedStatement ps = db.getConnection().prepareStatement(
-                    "INSERT INTO sessions(uuid, join_time) VALUES(?, ?)")) {
-                ps.setString(1, uuid.toString());
-                ps.setLong(2, now);
-                ps.executeUpdate();
-            } catch (SQLException ex) {
-                throw new RuntimeException(ex);
-            }
-        });
+        OpenSession session = new OpenSession(now);
+        openSessions.put(uuid, session);
+        leaderboard.join(uuid, p.getName(), now);
+        boolean upsert = playerCache.join(uuid, p.getName(), now);
+        db.submit(new LogEvent.Join(uuid, p.getName(), now, upsert, session));
+        metrics.handler(Handler.JOIN).recordSince(start);
     }
 
     @EventHandler
     public void onQuit(PlayerQuitEvent e) {
-        if (!getConfig().getBoolean("logging.join-quit", true)) {
+        db.commandHistory().forget(e.getPlayer().getName());
+        db.commandSearch().forget(e.getPlayer().getName());
+        if (!settings.logJoinQuit()) {
             return;
         }
+        long start = System.nanoTime();
         Player p = e.getPlayer();
-        handleQuit(p.getUniqueId(), p.getName(), false);
+        handleQuit(p.getUniqueId(), p.getName());
+        metrics.handler(Handler.QUIT).recordSince(start);
     }
 
-    public Long getSessionStart(UUID uuid) {
-        return sessionStartMs.get(uuid);
+    public PluginSettings settings() {
+        return settings;
     }
 
-    private void handleQuit(UUID uuid, String name, boolean sync) {
-        long now = Instant.now().toEpochMilli();
-        Long start = sessionStartMs.remove(uuid);
-        long sessionMs = (start == null) ? 0L : Math.max(0L, now - start);
-
-        Runnable task = () -> {
-            try (PreparedStatement ps = db.getConnection().prepareStatement(
-                    "UPDATE players SET name=?, last_seen=?, online=0, total_playtime_ms = total_playtime_ms + ? WHERE uuid=?")) {
-                ps.setString(1, name);
-                ps.setLong(2, now);
-                ps.setLong(3, sessionMs);
-                ps.setString(4, uuid.toString());
-                ps.executeUpdate();
-            } catch (SQLException ex) {
-                throw new RuntimeException(ex);
-            }
-
-            // letzte offene Session schließen
-            final String sqliteSql =
-                    "UPDATE sessions SET leave_time=?, playtime_ms=? " +
-                            "WHERE id = (SELECT id FROM sessions WHERE uuid=? AND leave_time IS NULL ORDER BY join_time DESC LIMIT 1)";
-            final String mysqlSql =
-                    "UPDATE sessions SET leave_time=?, playtime_ms=? " +
-                            "WHERE id = (SELECT id FROM (SELECT id FROM sessions WHERE uuid=? AND leave_time IS NULL ORDER BY join_time DESC LIMIT 1) t)";
-            String sql = db.isMySql() ? mysqlSql : sqliteSql;
-
-            try (PreparedStatement ps = db.getConnection().prepareStatement(sql)) {
-                ps.setLong(1, now);
-                ps.setLong(2, sessionMs);
-                ps.setString(3, uuid.toString());
-                ps.executeUpdate();
-            } catch (SQLException ex) {
-                throw new RuntimeException(ex);
-            }
-        };
-
-        if (sync) {
-            db.runSync(task);
-        } else {
-            db.runAsync(task);
-        }
+    /**
+     * Liest die config.yml neu und tauscht den Schnappschuss atomar aus.
+     * @return Pfade, die sich geändert haben, aber erst nach einem Neustart greifen
+     */
+    public List<String> reloadSettings() {
+        reloadConfig();
+        PluginSettings fresh = PluginSettings.load(getConfig(), getLogger());
+        settings = fresh;
+        return PluginSettings.requiresRestart(db.settings(), fresh.storage());
     }
 
-    @EventHandler(ignoreCancelled = true)
-    public void onCommand(PlayerCommandPreprocessEvent e) {
-        if (!getConfig().getBoolean("logging.commands", true)) return;
+    public Long getSessionStart(UUID uuid) {
+        OpenSession session = openSessions.get(uuid);
+        return session != null ? session.startMs() : null;
+    }
 
-        String cmd = e.getMessage();
+    private void handleQuit(UUID uuid, String name) {
+        long now = Instant.now().toEpochMilli();
+        OpenSession session = openSessions.remove(uuid);
+        long sessionMs = (session == null) ? 0L : Math.max(0L, now - session.startMs());
 
-        // Optionaler Filter: sensible Commands nicht loggen
-        if (getConfig().getBoolean("command-filter.enabled", true)) {
-            for (String deny : getConfig().getStringList("command-filter.deny-prefixes")) {
-                if (deny == null || deny.isBlank()) continue;
-                if (cmd.regionMatches(true, 0, deny, 0, deny.length())) {
-                    return; // nicht loggen
-                }
-            }
-        }
+        leaderboard.quit(uuid, name, sessionMs);
+        playerCache.quit(uuid, name, now, sessionMs);
+        db.submit(new LogEvent.Quit(uuid, name, now, sessionMs, session));
+    }
 
-        Player p = e.getPlayer();
-        UUID uuid = p.getUniqueId();
-        String name = p.getName();
+    /**
+     * Schreibt die bisher gespielte Zeit aller Online-Spieler nach players und in die offene Session,
+     * damit ein Absturz höchstens ein Intervall kostet. Ein Event für alle, also ein Batch pro Lauf.
+     */
+    private void checkpoint() {
+        if (openSessions.isEmpty()) return;
+        long start = System.nanoTime();
         long now = Instant.now().toEpochMilli();
 
-        db.runAsync(() -> {
-            try (PreparedStatement ps = db.getConnection().prepareStatement(
-                    "INSERT INTO command_logs(uuid, name, time, command) VALUES(?, ?, ?, ?)")) {
-                ps.setString(1, uuid.toString());
-                ps.setString(2, name);
-                ps.setLong(3, now);
-                ps.setString(4, cmd);
-                ps.executeUpdate();
-            } catch (SQLException ex) {
-                throw new RuntimeException(ex);
-            }
-        });
+        List<LogEvent.Checkpoint.Progress> progress = new ArrayList<>(openSessions.size());
+        for (Map.Entry<UUID, OpenSession> e : openSessions.entrySet()) {
+            OpenSession session = e.getValue();
+            long sessionMs = Math.max(0L, now - session.startMs());
+            if (sessionMs <= session.reportedMs()) continue;
+            session.reported(sessionMs);
+            progress.add(new LogEvent.Checkpoint.Progress(e.getKey(), session, sessionMs));
+        }
+        if (!progress.isEmpty()) {
+            db.submit(new LogEvent.Checkpoint(now, progress));
+        }
+        metrics.handler(Handler.CHECKPOINT).recordSince(start);
     }
 
-
-    private void upsertPlayer(UUID uuid, String name, long now, boolean online) {
-        final String sqliteSql =
-                "INSERT INTO players(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
-                        "VALUES(?, ?, ?, ?, ?, 0) " +
-                        "ON CONFLICT(uuid) DO UPDATE SET " +
-                        "name=excluded.name, last_seen=excluded.last_seen, online=excluded.online";
-
-        final String mysqlSql =
-                "INSERT INTO players(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
-                        "VALUES(?, ?, ?, ?, ?, 0) " +
-                        "ON DUPLICATE KEY UPDATE " +
-                        "name=VALUES(name), last_seen=VALUES(last_seen), online=VALUES(online)";
-
-        final String sql = db.isMySql() ? mysqlSql : sqliteSql;
-
-        try (PreparedStatement ps = db.getConnection().prepareStatement(sql)) {
-            ps.setString(1, uuid.toString());
-            ps.setString(2, name);
-            ps.setLong(3, now);
-            ps.setLong(4, now);
-            ps.setInt(5, online ? 1 : 0);
-            ps.executeUpdate();
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
+    @EventHandler(ignoreCancelled = true)
+    public void onCommand(PlayerCommandPreprocessEvent e) {
+        PluginSettings s = settings;
+        if (!s.logCommands()) return;
+        long start = System.nanoTime();
+
+        // Optionaler Filter: sensible Commands nicht oder nur maskiert loggen
+        String cmd = s.commandFilter().apply(e.getMessage());
+        if (cmd != null) {
+            Player p = e.getPlayer();
+            long now = Instant.now().toEpochMilli();
+            db.submit(new LogEvent.Command(p.getUniqueId(), now, cmd));
         }
+        metrics.handler(Handler.COMMAND).recordSince(start);
     }
 
 }
@@ -1,6 +1,21 @@
 package de.Zacian.playerlogger.commands;
 
+import de.Zacian.playerlogger.metrics.Histogram;
+import de.Zacian.playerlogger.metrics.PluginMetrics;
+import de.Zacian.playerlogger.storage.BackendMigration;
+import de.Zacian.playerlogger.storage.CommandHistory;
+import de.Zacian.playerlogger.storage.CommandSearch;
 import de.Zacian.playerlogger.storage.Database;
+import de.Zacian.playerlogger.storage.Leaderboard;
+import de.Zacian.playerlogger.storage.NameIndex;
+import de.Zacian.playerlogger.storage.PlayerCache;
+import de.Zacian.playerlogger.storage.PlayerPurge;
+import de.Zacian.playerlogger.storage.PlaytimeRollup;
+import de.Zacian.playerlogger.storage.Priority;
+import de.Zacian.playerlogger.storage.Sql;
+import de.Zacian.playerlogger.storage.TableExport;
+import de.Zacian.playerlogger.storage.Uuids;
+import de.Zacian.playerlogger.util.Durations;
 import io.papermc.paper.command.brigadier.BasicCommand;
 import io.papermc.paper.command.brigadier.CommandSourceStack;
 import org.bukkit.Bukkit;
@@ -13,8 +28,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.UUID;
@@ -23,6 +40,12 @@ import java.util.UUID;
 
 public final class PlayerLoggerCommand implements BasicCommand {
 
+    private static final List<String> SUBCOMMANDS = List.of("stats", "top", "reload", "delete", "add", "metrics", "commands", "search", "purge", "export", "migrate");
+    // Konsole bekommt längere Seiten ohne Farben, zum Kopieren/Greppen
+    private static final int COMMANDS_PAGE = 10;
+    private static final int COMMANDS_PAGE_CONSOLE = 50;
+    private static final int MAX_NAME_SUGGESTIONS = 50;
+
     private final de.Zacian.playerlogger.PlayerLogger plugin;
     private final Database db;
 
@@ -44,30 +67,69 @@ public final class PlayerLoggerCommand implements BasicCommand {
 
         switch (sub) {
             case "stats" -> handleStats(sender, args);
-            case "top" -> handleTop(sender);
+            case "top" -> handleTop(sender, args);
             case "reload" -> handleReload(sender);
             case "delete" -> handleDelete(sender, args);
             case "add" -> handleAdd(sender, args);
+            case "metrics" -> handleMetrics(sender);
+            case "commands" -> handleCommands(sender, args);
+            case "search" -> handleSearch(sender, args);
+            case "purge" -> handlePurge(sender, args);
+            case "export" -> handleExport(sender, args);
+            case "migrate" -> handleMigrate(sender, args);
             default -> sendHelp(sender);
         }
     }
 
     @Override
     public Collection<String> suggest(CommandSourceStack source, String[] args) {
-        if (args.length == 0) return List.of("stats", "top", "reload", "delete", "add");
-        if (args.length == 1) return filterPrefix(List.of("stats", "top", "reload", "delete", "add"), args[0]);
+        if (args.length == 0) return SUBCOMMANDS;
+        if (args.length == 1) return filterPrefix(SUBCOMMANDS, args[0]);
 
         if (args.length == 2) {
             String sub = args[0].toLowerCase(Locale.ROOT);
-            if (sub.equals("stats") || sub.equals("delete") || sub.equals("add")) {
-                return filterPrefix(onlineNames(), args[1]);
+            if (sub.equals("stats") || sub.equals("delete") || sub.equals("add") || sub.equals("commands")) {
+                return playerNames(args[1]);
             }
         }
 
+        if (args.length == 2 && args[0].equalsIgnoreCase("top")) {
+            return filterPrefix(List.of("day", "week", "month", "all"), args[1]);
+        }
+
         if (args.length == 3 && args[0].equalsIgnoreCase("add")) {
             return filterPrefix(List.of("30m", "1h", "2h", "90m", "3600s"), args[2]);
         }
 
+        if (args.length == 2 && args[0].equalsIgnoreCase("purge")) {
+            return filterPrefix(List.of("180d", "365d", "730d"), args[1]);
+        }
+
+        if (args.length == 3 && args[0].equalsIgnoreCase("purge")) {
+            return filterPrefix(List.of("confirm"), args[2]);
+        }
+
+        if (args[0].equalsIgnoreCase("export")) {
+            return switch (args.length) {
+                case 2 -> filterPrefix(List.of("sessions", "commands"), args[1]);
+                case 5 -> filterPrefix(List.of("ndjson", "csv"), args[4]);
+                case 6 -> filterPrefix(List.of("archive"), args[5]);
+                default -> List.of();
+            };
+        }
+
+        if ((args.length == 2 || args.length == 3) && args[0].equalsIgnoreCase("migrate")) {
+            return filterPrefix(List.of("sqlite", "mysql"), args[args.length - 1]);
+        }
+
+        if (args.length >= 3 && args[0].equalsIgnoreCase("search")) {
+            return filterPrefix(List.of("1h", "1d", "7d", "30d", "all"), args[args.length - 1]);
+        }
+
+        if (args.length == 3 && args[0].equalsIgnoreCase("commands")) {
+            return filterPrefix(List.of("1h", "1d", "7d", "30d", "all"), args[2]);
+        }
+
         return List.of();
     }
 
@@ -84,457 +146,792 @@ public final class PlayerLoggerCommand implements BasicCommand {
         if (args.length == 1) {
             // /pl stats -> eigene
             if (!(sender instanceof Player p)) {
-                sender.sendMessage(prefix() + plugin.messages().msg("err.players_only"));
+                sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.players_only"));
                 return;
             }
             if (!sender.hasPermission("playerlogger.stats")) {
-                sender.sendMessage(prefix() + plugin.messages().msg("err.no_permission",
+                sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
                         Map.of("perm", "playerlogger.stats")));
                 return;
             }
-            queryAndSendStatsByUuid(sender, p.getUniqueId().toString(), p.getName());
+            queryAndSendStatsByUuid(sender, p.getUniqueId(), p.getName());
             return;
         }
 
         // /pl stats <player>
         if (!sender.hasPermission("playerlogger.stats.other")) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.no_permission",
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
                     Map.of("perm", "playerlogger.stats.other")));
             return;
         }
 
         String targetName = args[1];
-        OfflinePlayer off = Bukkit.getOfflinePlayer(targetName);
-        String uuid = off.getUniqueId() != null ? off.getUniqueId().toString() : null;
+        NameIndex.Entry target = resolve(targetName);
 
-        if (uuid != null) {
-            queryAndSendStatsByUuid(sender, uuid, off.getName() != null ? off.getName() : targetName);
+        if (target != null) {
+            queryAndSendStatsByUuid(sender, target.uuid(), target.name());
         } else {
             queryAndSendStatsByName(sender, targetName);
         }
     }
 
-    private void handleTop(CommandSender sender) {
+    private void handleTop(CommandSender sender, String[] args) {
         if (!sender.hasPermission("playerlogger.top")) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.no_permission",
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
                     Map.of("perm", "playerlogger.top")));
             return;
         }
 
-        db.runAsync(() -> {
-            long now = System.currentTimeMillis();
-            String sql =
-                    "SELECT p.uuid, p.name, p.total_playtime_ms, p.online, " +
-                            "(SELECT join_time FROM sessions s WHERE s.uuid = p.uuid AND s.leave_time IS NULL " +
-                            "ORDER BY s.join_time DESC LIMIT 1) AS join_time " +
-                            "FROM players p " +
-                            "ORDER BY (p.total_playtime_ms + CASE " +
-                            "WHEN p.online = 1 AND join_time IS NOT NULL THEN (? - join_time) ELSE 0 END) DESC " +
-                            "LIMIT 10";
-            List<String> lines = new ArrayList<>();
-
-            try (PreparedStatement ps = db.getConnection().prepareStatement(sql)) {
-                ps.setLong(1, now);
-                try (ResultSet rs = ps.executeQuery()) {
-
-                    int rank = 1;
-                    while (rs.next()) {
-                        String uuidStr = rs.getString("uuid");
-                        String name = rs.getString("name");
-                        long baseMs = rs.getLong("total_playtime_ms");
-                        boolean online = rs.getInt("online") == 1;
-                        long joinTime = rs.getLong("join_time");
-                        boolean joinTimeNull = rs.wasNull();
-                        long liveMs = 0L;
-                        if (online) {
-                            if (!joinTimeNull) {
-                                liveMs = Math.max(0L, now - joinTime);
-                            } else if (uuidStr != null) {
-                                try {
-                                    UUID u = UUID.fromString(uuidStr);
-                                    Long start = plugin.getSessionStart(u);
-                                    if (start != null) {
-                                        liveMs = Math.max(0L, now - start);
-                                    }
-                                } catch (IllegalArgumentException ignored) {
-                                    // ignore invalid UUID
-                                }
-                            }
-                        }
-                        long ms = baseMs + liveMs;
-                        lines.add(ChatColor.GRAY + "[" + rank + "] " + ChatColor.YELLOW + name +
-                                ChatColor.GRAY + " - " + ChatColor.AQUA + formatDuration(ms));
-                        rank++;
-                    }
-                }
+        PlaytimeRollup.Window window = args.length > 1 ? PlaytimeRollup.Window.parse(args[1]) : PlaytimeRollup.Window.ALL;
+        if (window == null) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_top"));
+            return;
+        }
 
-            } catch (SQLException e) {
-                lines.clear();
-                lines.add(prefix() + plugin.messages().msg("err.db", Map.of("error", e.getMessage())));
-            }
+        if (window != PlaytimeRollup.Window.ALL) {
+            // Tag/Woche/Monat aus playtime_daily, auf dem Lese-Pool
+            long firstDay = window.firstDay(System.currentTimeMillis());
+            db.runRead(con -> {
+                List<Leaderboard.Row> rows = db.playtimeRollup().top(con, firstDay, 10);
+                Bukkit.getScheduler().runTask(plugin, () -> sendTop(sender, window, rows));
+            }, e -> sendDbError(sender, e));
+            return;
+        }
 
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                sender.sendMessage(prefix() + plugin.messages().msg("top.title"));
-                if (lines.isEmpty()) {
-                    sender.sendMessage(prefix() + plugin.messages().msg("top.empty"));
-                } else {
-                    for (String l : lines) sender.sendMessage(prefix() + l);
-                }
-            });
-        });
+        // aus der Rangliste im Speicher, ohne SQL
+        var board = plugin.leaderboard();
+        if (!board.isLoaded()) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "top.loading"));
+            return;
+        }
+        sendTop(sender, window, board.top(10, System.currentTimeMillis()));
+    }
+
+    private void sendTop(CommandSender sender, PlaytimeRollup.Window window, List<Leaderboard.Row> rows) {
+        String title = window == PlaytimeRollup.Window.ALL ? "top.title" : "top.title_" + window.name().toLowerCase(Locale.ROOT);
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, title));
+        if (rows.isEmpty()) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "top.empty"));
+            return;
+        }
+        int rank = 1;
+        for (Leaderboard.Row row : rows) {
+            sender.sendMessage(prefix(sender) + ChatColor.GRAY + "[" + rank + "] " + ChatColor.YELLOW + row.name() +
+                    ChatColor.GRAY + " - " + ChatColor.AQUA + formatDuration(sender, row.playtimeMs()));
+            rank++;
+        }
     }
 
     private void handleReload(CommandSender sender) {
         if (!sender.hasPermission("playerlogger.Admin.reload")) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.no_permission",
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
                     Map.of("perm", "playerlogger.Admin.reload")));
             return;
         }
 
-        plugin.reloadConfig();
-        plugin.messages().reload(); // wichtig: Sprache neu laden
+        List<String> restart = plugin.reloadSettings();
+        plugin.messages().reload(plugin.settings()); // wichtig: Sprache neu laden
 
-        sender.sendMessage(prefix() + plugin.messages().msg("reload.ok"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "reload.ok"));
+        if (!restart.isEmpty()) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "reload.restart_required",
+                    Map.of("keys", String.join(", ", restart))));
+        }
     }
 
     private void handleDelete(CommandSender sender, String[] args) {
         if (!sender.hasPermission("playerlogger.Admin.delete")) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.no_permission",
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
                     Map.of("perm", "playerlogger.Admin.delete")));
             return;
         }
         if (args.length < 2) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.usage_delete"));
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_delete"));
             return;
         }
 
         String targetName = args[1];
-        OfflinePlayer off = Bukkit.getOfflinePlayer(targetName);
-        String uuid = off.getUniqueId() != null ? off.getUniqueId().toString() : null;
+        NameIndex.Entry target = resolve(targetName);
+        String shown = target != null ? target.name() : targetName;
+
+        // Rangliste und Caches sofort, die Zeilen löscht PlayerPurge nach und nach
+        if (target != null) {
+            plugin.leaderboard().remove(target.uuid());
+            plugin.playerCache().invalidate(target.uuid());
+            plugin.names().remove(target.uuid());
+            db.playerPurge().purge(target.uuid(), p -> sendPurgeProgress(sender, "delete", p), e -> sendDbError(sender, e));
+        } else {
+            // Fallback über den Namen in players
+            plugin.leaderboard().removeByName(targetName);
+            plugin.playerCache().invalidateByName(targetName);
+            plugin.names().removeByName(targetName);
+            db.playerPurge().purgeByName(targetName, p -> sendPurgeProgress(sender, "delete", p), e -> sendDbError(sender, e));
+        }
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "delete.queued", Map.of("player", shown)));
+    }
 
-        db.runAsync(() -> {
-            try {
-                int delPlayers = 0, delSessions = 0, delCommands = 0;
-
-                if (uuid != null) {
-                    delSessions = exec("DELETE FROM sessions WHERE uuid=?", uuid);
-                    delCommands = exec("DELETE FROM command_logs WHERE uuid=?", uuid);
-                    delPlayers = exec("DELETE FROM players WHERE uuid=?", uuid);
-                } else {
-                    // Fallback über Name (weniger zuverlässig)
-                    delCommands = exec("DELETE FROM command_logs WHERE name=?", targetName);
-                    delPlayers = exec("DELETE FROM players WHERE name=?", targetName);
-                }
+    private void handlePurge(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("playerlogger.Admin.purge")) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
+                    Map.of("perm", "playerlogger.Admin.purge")));
+            return;
+        }
+        if (args.length < 2) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_purge"));
+            return;
+        }
 
-                int fp = delPlayers, fs = delSessions, fc = delCommands;
-                Bukkit.getScheduler().runTask(plugin, () ->
-                        sender.sendMessage(prefix() + plugin.messages().msg("delete.ok", Map.of(
-                                "p", String.valueOf(fp),
-                                "s", String.valueOf(fs),
-                                "c", String.valueOf(fc)
-                        ))));
+        long inactiveMs;
+        try {
+            inactiveMs = Durations.parse(args[1]);
+        } catch (IllegalArgumentException ex) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.invalid_time", Map.of("error", ex.getMessage())));
+            return;
+        }
+        if (inactiveMs <= 0) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.time_positive"));
+            return;
+        }
 
-            } catch (SQLException e) {
-                Bukkit.getScheduler().runTask(plugin, () ->
-                        sender.sendMessage(prefix() + plugin.messages().msg("err.db", Map.of("error", e.getMessage()))));
+        String time = formatDuration(sender, inactiveMs);
+        if (args.length < 3 || !args[2].equalsIgnoreCase("confirm")) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "purge.confirm", Map.of(
+                    "time", time,
+                    "cmd", "/plog purge " + args[1] + " confirm")));
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - inactiveMs;
+        db.playerPurge().purgeInactive(cutoff, p -> sendPurgeProgress(sender, "purge", p), e -> sendDbError(sender, e));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "purge.queued", Map.of("time", time)));
+    }
+
+    private void handleExport(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("playerlogger.Admin.export")) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
+                    Map.of("perm", "playerlogger.Admin.export")));
+            return;
+        }
+        // /plog export <sessions|commands> <von> <bis> [ndjson|csv] [archive]
+        if (args.length < 4) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_export"));
+            return;
+        }
+
+        TableExport.Table table = TableExport.Table.parse(args[1]);
+        TableExport.Format format = args.length > 4 ? TableExport.Format.parse(args[4]) : TableExport.Format.NDJSON;
+        boolean archive = args.length > 5 && args[5].equalsIgnoreCase("archive");
+        if (table == null || format == null || (args.length > 5 && !archive)) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_export"));
+            return;
+        }
+
+        LocalDate first;
+        LocalDate last;
+        try {
+            first = LocalDate.parse(args[2]);
+            last = LocalDate.parse(args[3]);
+        } catch (DateTimeParseException ex) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.invalid_date", Map.of("error", ex.getParsedString())));
+            return;
+        }
+        if (last.isBefore(first)) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_export"));
+            return;
+        }
+        // laufende Tage nicht archivieren, dort kommen noch Zeilen dazu
+        if (archive && !last.isBefore(LocalDate.now(ZONE))) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "export.archive_recent"));
+            return;
+        }
+
+        boolean started = db.tableExport().start(table, first, last, format, archive, new TableExport.Listener() {
+            @Override
+            public void file(String name, long rows, String sha256) {
+                send("export.file", Map.of("file", name, "rows", String.valueOf(rows), "sha", sha256.substring(0, 12)));
+            }
+
+            @Override
+            public void archived(String name, long rows) {
+                send("export.archived", Map.of("file", name, "rows", String.valueOf(rows)));
+            }
+
+            @Override
+            public void done(String dir, long rows, int files, long deleted) {
+                send("export.ok", Map.of("dir", "exports/" + dir, "rows", String.valueOf(rows),
+                        "files", String.valueOf(files), "deleted", String.valueOf(deleted)));
+            }
+
+            @Override
+            public void failed(String error) {
+                send("export.failed", Map.of("error", error));
+            }
+
+            private void send(String key, Map<String, String> vars) {
+                Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, key, vars)));
+            }
+        });
+        if (!started) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "export.busy"));
+            return;
+        }
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "export.started", Map.of(
+                "table", table.name().toLowerCase(Locale.ROOT),
+                "from", first.toString(),
+                "to", last.toString())));
+    }
+
+    private void handleMigrate(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("playerlogger.Admin.migrate")) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
+                    Map.of("perm", "playerlogger.Admin.migrate")));
+            return;
+        }
+        // /plog migrate <sqlite|mysql> <sqlite|mysql>
+        Boolean fromMySql = args.length == 3 ? parseBackend(args[1]) : null;
+        Boolean toMySql = args.length == 3 ? parseBackend(args[2]) : null;
+        if (fromMySql == null || toMySql == null || fromMySql.equals(toMySql)) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_migrate"));
+            return;
+        }
+        // in das laufende Backend schreibt der DB-Thread, das würde sich überschneiden
+        if (toMySql == db.isMySql()) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "migrate.target_active"));
+            return;
+        }
+
+        String from = args[1].toLowerCase(Locale.ROOT);
+        String to = args[2].toLowerCase(Locale.ROOT);
+        boolean started = db.backendMigration().start(fromMySql, toMySql, new BackendMigration.Listener() {
+            @Override
+            public void progress(long rows, long estimate) {
+                send("migrate.progress", Map.of("rows", String.valueOf(rows), "estimate", String.valueOf(estimate)));
+            }
+
+            @Override
+            public void verified(String table, long sourceRows, long targetRows, boolean match) {
+                send(match ? "migrate.verified" : "migrate.mismatch", Map.of("table", table,
+                        "source", String.valueOf(sourceRows), "target", String.valueOf(targetRows)));
+            }
+
+            @Override
+            public void pruned(long rows) {
+                if (rows > 0) send("migrate.pruned", Map.of("rows", String.valueOf(rows)));
+            }
+
+            @Override
+            public void done(long rows, boolean verified) {
+                send(verified ? "migrate.ok" : "migrate.incomplete", Map.of("rows", String.valueOf(rows), "to", to));
+            }
+
+            @Override
+            public void failed(String error) {
+                send("migrate.failed", Map.of("error", error));
+            }
+
+            private void send(String key, Map<String, String> vars) {
+                Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, key, vars)));
             }
         });
+        if (!started) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "migrate.busy"));
+            return;
+        }
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "migrate.started", Map.of("from", from, "to", to)));
+    }
+
+    /** {@code true} = MySQL, {@code false} = SQLite, {@code null} = unbekannt. */
+    private static Boolean parseBackend(String s) {
+        return switch (s.toLowerCase(Locale.ROOT)) {
+            case "mysql" -> Boolean.TRUE;
+            case "sqlite" -> Boolean.FALSE;
+            default -> null;
+        };
+    }
+
+    /** Fortschritt von {@code /plog delete} bzw. {@code /plog purge}; kommt vom DB-Thread. */
+    private void sendPurgeProgress(CommandSender sender, String key, PlayerPurge.Progress p) {
+        Map<String, String> vars = Map.of(
+                "p", String.valueOf(p.done()),
+                "total", String.valueOf(p.total()),
+                "s", String.valueOf(p.sessions()),
+                "c", String.valueOf(p.commands()));
+        String msg = key + (p.finished() ? ".ok" : ".progress");
+        Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, msg, vars)));
     }
 
     private void handleAdd(CommandSender sender, String[] args) {
         if (!sender.hasPermission("playerlogger.Admin.add")) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.no_permission",
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
                     Map.of("perm", "playerlogger.Admin.add")));
             return;
         }
         if (args.length < 3) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.usage_add"));
-            sender.sendMessage(prefix() + plugin.messages().msg("err.time_hint"));
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_add"));
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.time_hint"));
             return;
         }
 
         String targetName = args[1];
         long addMs;
         try {
-            addMs = parseDurationToMs(args[2]);
+            addMs = Durations.parse(args[2]);
         } catch (IllegalArgumentException ex) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.invalid_time", Map.of("error", ex.getMessage())));
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.invalid_time", Map.of("error", ex.getMessage())));
             return;
         }
         if (addMs <= 0) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.time_positive"));
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.time_positive"));
             return;
         }
 
-        OfflinePlayer off = Bukkit.getOfflinePlayer(targetName);
-        String uuid = off.getUniqueId() != null ? off.getUniqueId().toString() : null;
-        if (uuid == null) {
-            sender.sendMessage(prefix() + plugin.messages().msg("err.uuid_not_found"));
+        NameIndex.Entry target = resolve(targetName);
+        if (target == null) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.uuid_not_found"));
             return;
         }
 
         long now = System.currentTimeMillis();
-        String finalName = off.getName() != null ? off.getName() : targetName;
+        UUID uuid = target.uuid();
+        String finalName = target.name();
 
         db.runAsync(() -> {
             try {
                 upsertPlayerMinimal(uuid, finalName, now);
 
-                try (PreparedStatement ps = db.getConnection().prepareStatement(
-                        "UPDATE players SET total_playtime_ms = total_playtime_ms + ? WHERE uuid=?")) {
-                    ps.setLong(1, addMs);
-                    ps.setString(2, uuid);
-                    ps.executeUpdate();
-                }
+                PreparedStatement ps = db.statement(Sql.ADD_PLAYTIME);
+                ps.setLong(1, addMs);
+                ps.setBytes(2, Uuids.toBytes(uuid));
+                ps.executeUpdate();
+                plugin.leaderboard().add(uuid, finalName, addMs);
+                plugin.playerCache().addPlaytime(uuid, addMs);
+                plugin.names().put(uuid, finalName, now);
 
                 Bukkit.getScheduler().runTask(plugin, () ->
-                        sender.sendMessage(prefix() + plugin.messages().msg("add.ok", Map.of(
-                                "time", formatDuration(addMs),
+                        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "add.ok", Map.of(
+                                "time", formatDuration(sender, addMs),
                                 "player", finalName
                         ))));
 
             } catch (SQLException e) {
                 Bukkit.getScheduler().runTask(plugin, () ->
-                        sender.sendMessage(prefix() + plugin.messages().msg("err.db", Map.of("error", e.getMessage()))));
+                        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.db", Map.of("error", e.getMessage()))));
             }
         });
     }
 
-    // -------------------------
-    // DB helper
-    // -------------------------
+    private void handleMetrics(CommandSender sender) {
+        if (!sender.hasPermission("playerlogger.Admin.metrics")) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
+                    Map.of("perm", "playerlogger.Admin.metrics")));
+            return;
+        }
 
-    private void queryAndSendStatsByUuid(CommandSender sender, String uuid, String displayName) {
-        db.runAsync(() -> {
-            String sql = "SELECT name, online, total_playtime_ms, first_seen, last_seen FROM players WHERE uuid=?";
-            try (PreparedStatement ps = db.getConnection().prepareStatement(sql)) {
-                ps.setString(1, uuid);
-
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (!rs.next()) {
-                        Bukkit.getScheduler().runTask(plugin, () ->
-                                sender.sendMessage(prefix() + plugin.messages().msg("err.no_data", Map.of("player", displayName))));
-                        return;
-                    }
-
-                    String name = rs.getString("name");
-                    long basePlayMs = rs.getLong("total_playtime_ms");
-                    boolean online = rs.getInt("online") == 1;
-
-                    long playMs = basePlayMs;
-                    Long sessionMs = null;
-
-                    // Live-Session addieren (nur wenn online und Session-Start bekannt)
-                    if (online) {
-                        try {
-                            UUID u = UUID.fromString(uuid);
-                            Long start = plugin.getSessionStart(u);
-                            if (start != null) {
-                                long now = System.currentTimeMillis();
-                                long liveSession = Math.max(0L, now - start);
-                                sessionMs = liveSession;
-                                playMs = basePlayMs + liveSession;
-                            }
-                        } catch (IllegalArgumentException ignored) {
-                            // uuid kaputt -> ignoriere live
-                        }
-                    }
-
-                    long firstSeen = rs.getLong("first_seen");
-                    long lastSeen = rs.getLong("last_seen");
-
-                    long finalPlayMs = playMs;
-                    Long finalSessionMs = sessionMs;
-                    boolean finalOnline = online;
-
-                    String firstSeenStr = formatDateTime(firstSeen);
-                    String lastSeenStr = formatDateTime(lastSeen);
-
-                    Bukkit.getScheduler().runTask(plugin, () -> {
-                        String onlineStr = finalOnline
-                                ? plugin.messages().msg("online.yes")
-                                : plugin.messages().msg("online.no");
-
-                        sender.sendMessage(prefix() + plugin.messages().msg("stats.title", Map.of("player", name)));
-                        sender.sendMessage(prefix() + plugin.messages().msg("stats.online", Map.of("value", onlineStr)));
-                        sender.sendMessage(prefix() + plugin.messages().msg("stats.playtime", Map.of("time", formatDuration(finalPlayMs))));
-
-                        if (finalSessionMs != null) {
-                            sender.sendMessage(prefix() + plugin.messages().msg("stats.session", Map.of("time", formatDuration(finalSessionMs))));
-                        }
-
-                        sender.sendMessage(prefix() + plugin.messages().msg("stats.first_seen", Map.of("time", firstSeenStr)));
-                        sender.sendMessage(prefix() + plugin.messages().msg("stats.last_seen", Map.of("time", lastSeenStr)));
-                    });
-                }
+        PluginMetrics m = plugin.metrics();
+        Database.QueueStats queue = db.writerQueue();
+        Histogram.Snapshot batches = m.batchSize().snapshot();
+        Histogram.Snapshot batchTime = m.batchTime().snapshot();
+        Histogram.Snapshot wait = m.taskWait().snapshot();
+
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "metrics.title"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "metrics.queue", Map.of(
+                "ready", String.valueOf(queue.ready()),
+                "scheduled", String.valueOf(queue.scheduled()),
+                "age", String.valueOf(queue.oldestWaitMs()),
+                "wait", micros(wait.p99())
+        )));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "metrics.pipeline", Map.of(
+                "pending", String.valueOf(db.pendingEvents()),
+                "reads", String.valueOf(db.readQueueDepth())
+        )));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "metrics.batches", Map.of(
+                "count", String.valueOf(batches.count()),
+                "avg", String.valueOf(batches.mean()),
+                "p99", micros(batchTime.p99()),
+                "retries", String.valueOf(m.batchRetries().sum()),
+                "dropped", String.valueOf(m.eventsDropped().sum())
+        )));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "metrics.shed", Map.of(
+                "session", String.valueOf(m.shed(Priority.SESSION).sum()),
+                "reads", String.valueOf(m.shed(Priority.READ).sum()),
+                "commands", String.valueOf(m.shed(Priority.COMMAND).sum()),
+                "coalesced", String.valueOf(m.coalesced().sum())
+        )));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "metrics.errors", Map.of(
+                "tasks", String.valueOf(m.tasksFailed().sum()),
+                "reads", String.valueOf(m.readsFailed().sum())
+        )));
+
+        Map<Sql, Histogram.Snapshot> statements = m.statements();
+        if (!statements.isEmpty()) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "metrics.statements"));
+            statements.forEach((key, snap) -> sender.sendMessage(prefix(sender) +
+                    plugin.messages().msg(sender, "metrics.line", timings(key.name(), snap, true))));
+        }
 
-            } catch (SQLException e) {
-                Bukkit.getScheduler().runTask(plugin, () ->
-                        sender.sendMessage(prefix() + plugin.messages().msg("err.db", Map.of("error", e.getMessage()))));
-            }
-        });
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "metrics.handlers"));
+        m.handlers().forEach((handler, snap) -> sender.sendMessage(prefix(sender) +
+                plugin.messages().msg(sender, "metrics.line", timings(handler.name(), snap, false))));
     }
 
+    private void handleCommands(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("playerlogger.Admin.commands")) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
+                    Map.of("perm", "playerlogger.Admin.commands")));
+            return;
+        }
+        if (args.length < 2) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_commands"));
+            return;
+        }
 
-    private void queryAndSendStatsByName(CommandSender sender, String name) {
-        db.runAsync(() -> {
-            String sql = "SELECT uuid, name FROM players WHERE name=? LIMIT 1";
-            try (PreparedStatement ps = db.getConnection().prepareStatement(sql)) {
-                ps.setString(1, name);
-
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (!rs.next()) {
-                        Bukkit.getScheduler().runTask(plugin, () ->
-                                sender.sendMessage(prefix() + plugin.messages()
-                                        .msg("err.no_data", Map.of("player", name))));
-                        return;
-                    }
-
-                    String uuid = rs.getString("uuid");
-                    String realName = rs.getString("name");
-                    queryAndSendStatsByUuid(sender, uuid, realName);
-                }
+        // /plog commands <player> [since] [page]; eine reine Zahl an dritter Stelle ist die Seite
+        String since = "all";
+        int page = 1;
+        try {
+            int i = 2;
+            if (args.length > i && !isNumber(args[i])) since = args[i++].toLowerCase(Locale.ROOT);
+            if (args.length > i) page = Integer.parseInt(args[i]);
+        } catch (NumberFormatException ex) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_commands"));
+            return;
+        }
 
-            } catch (SQLException e) {   // 👈 e ist nur hier gültig
-                Bukkit.getScheduler().runTask(plugin, () ->
-                        sender.sendMessage(prefix() + plugin.messages()
-                                .msg("err.db", Map.of("error", e.getMessage()))));
+        long window = 0L;
+        if (!since.equals("all")) {
+            try {
+                window = Durations.parse(since);
+            } catch (IllegalArgumentException ex) {
+                sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.invalid_time", Map.of("error", ex.getMessage())));
+                return;
             }
-        });
-    }
+            if (window <= 0) {
+                sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.time_positive"));
+                return;
+            }
+        }
 
+        NameIndex.Entry target = resolve(args[1]);
+        if (target == null) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.uuid_not_found"));
+            return;
+        }
+        UUID uuid = target.uuid();
+        String name = target.name();
+        boolean console = !(sender instanceof Player);
+        int size = console ? COMMANDS_PAGE_CONSOLE : COMMANDS_PAGE;
+        String viewer = sender.getName();
+        long finalWindow = window;
+        int finalPage = page;
+        String finalSince = since;
+
+        db.runRead(con -> {
+            CommandHistory.Page result = db.commandHistory().page(con, viewer, uuid, finalWindow, finalPage, size);
+            Bukkit.getScheduler().runTask(plugin, () -> sendCommands(sender, name, finalSince, result, console));
+        }, e -> sendDbError(sender, e));
+    }
 
-    private int exec(String sql, String param) throws SQLException {
-        try (PreparedStatement ps = db.getConnection().prepareStatement(sql)) {
-            ps.setString(1, param);
-            return ps.executeUpdate();
+    private void sendCommands(CommandSender sender, String name, String since, CommandHistory.Page page, boolean console) {
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "commands.title", Map.of(
+                "player", name,
+                "page", String.valueOf(page.number()))));
+        if (page.lines().isEmpty()) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "commands.empty", Map.of("player", name)));
+            return;
+        }
+        for (CommandHistory.Line line : page.lines()) {
+            Instant at = Instant.ofEpochMilli(line.time());
+            if (console) {
+                // eine Zeile pro Command, ohne Prefix und Farben
+                sender.sendMessage(CONSOLE_TIME.format(at) + "  " + line.command());
+            } else {
+                sender.sendMessage(ChatColor.DARK_GRAY + "[" + ChatColor.GRAY + CHAT_TIME.format(at) +
+                        ChatColor.DARK_GRAY + "] " + ChatColor.WHITE + line.command());
+            }
+        }
+        if (page.more()) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "commands.more", Map.of(
+                    "next", "/plog commands " + name + " " + since + " " + (page.number() + 1))));
         }
     }
 
-    private void upsertPlayerMinimal(String uuid, String name, long now) throws SQLException {
-        final String sqliteSql =
-                "INSERT INTO players(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
-                        "VALUES(?, ?, ?, ?, 0, 0) " +
-                        "ON CONFLICT(uuid) DO UPDATE SET " +
-                        "name=excluded.name, last_seen=excluded.last_seen";
+    private void handleSearch(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("playerlogger.Admin.search")) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_permission",
+                    Map.of("perm", "playerlogger.Admin.search")));
+            return;
+        }
 
-        final String mysqlSql =
-                "INSERT INTO players(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
-                        "VALUES(?, ?, ?, ?, 0, 0) " +
-                        "ON DUPLICATE KEY UPDATE " +
-                        "name=VALUES(name), last_seen=VALUES(last_seen)";
+        // /plog search <text...> [since] [page]; Seite und Zeitraum werden von hinten abgenommen
+        int end = args.length;
+        int page = 1;
+        String since = "all";
+        if (end > 2 && isNumber(args[end - 1])) {
+            try {
+                page = Integer.parseInt(args[--end]);
+            } catch (NumberFormatException ex) {
+                sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_search"));
+                return;
+            }
+        }
+        if (end > 2 && isSince(args[end - 1])) since = args[--end].toLowerCase(Locale.ROOT);
+        String text = String.join(" ", Arrays.copyOfRange(args, 1, Math.max(1, end)));
+        if (CommandSearch.expression(text, db.isMySql()) == null) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.usage_search"));
+            return;
+        }
 
-        String sql = db.isMySql() ? mysqlSql : sqliteSql;
+        long window;
+        try {
+            window = since.equals("all") ? 0L : Durations.parse(since);
+        } catch (IllegalArgumentException ex) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.invalid_time", Map.of("error", ex.getMessage())));
+            return;
+        }
+        boolean console = !(sender instanceof Player);
+        int size = console ? COMMANDS_PAGE_CONSOLE : COMMANDS_PAGE;
+        String viewer = sender.getName();
+        int finalPage = page;
+        String finalSince = since;
+
+        db.runRead(con -> {
+            CommandSearch.Page result = db.commandSearch().page(con, viewer, text, window, finalPage, size);
+            Bukkit.getScheduler().runTask(plugin, () -> sendSearch(sender, text, finalSince, result, console));
+        }, e -> sendDbError(sender, e));
+    }
+
+    private void sendSearch(CommandSender sender, String text, String since, CommandSearch.Page page, boolean console) {
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "search.title", Map.of(
+                "text", text,
+                "page", String.valueOf(page.number()))));
+        if (page.hits().isEmpty()) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "search.empty", Map.of("text", text)));
+            return;
+        }
+        for (CommandSearch.Hit hit : page.hits()) {
+            Instant at = Instant.ofEpochMilli(hit.time());
+            String player = hit.player() != null ? hit.player() : "?";
+            if (console) {
+                sender.sendMessage(CONSOLE_TIME.format(at) + "  " + player + "  " + hit.command());
+            } else {
+                sender.sendMessage(ChatColor.DARK_GRAY + "[" + ChatColor.GRAY + CHAT_TIME.format(at) +
+                        ChatColor.DARK_GRAY + "] " + ChatColor.YELLOW + player + ChatColor.GRAY + ": " +
+                        ChatColor.WHITE + hit.command());
+            }
+        }
+        if (page.more()) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "commands.more", Map.of(
+                    "next", "/plog search " + text + " " + since + " " + (page.number() + 1))));
+        } else if (page.truncated()) {
+            // am Ende der Liste: weniger relevante Texte sind gar nicht erst durchsucht worden
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "search.truncated"));
+        }
+    }
+
+    /** {@code all} oder eine Zeitangabe mit Einheit (7d, 12h, ...); eine reine Zahl ist die Seite. */
+    private static boolean isSince(String s) {
+        return s.equalsIgnoreCase("all") || s.toLowerCase(Locale.ROOT).matches("\\d+(ms|s|m|h|d)");
+    }
 
-        try (PreparedStatement ps = db.getConnection().prepareStatement(sql)) {
-            ps.setString(1, uuid);
-            ps.setString(2, name);
-            ps.setLong(3, now);
-            ps.setLong(4, now);
-            ps.executeUpdate();
+    private static boolean isNumber(String s) {
+        if (s.isEmpty()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) return false;
         }
+        return true;
+    }
+
+    private static Map<String, String> timings(String name, Histogram.Snapshot s, boolean inMicros) {
+        return Map.of(
+                "name", name.toLowerCase(Locale.ROOT),
+                "count", String.valueOf(s.count()),
+                "p50", inMicros ? micros(s.p50()) : String.valueOf(s.p50()),
+                "p99", inMicros ? micros(s.p99()) : String.valueOf(s.p99()),
+                "max", inMicros ? micros(s.max()) : String.valueOf(s.max())
+        );
+    }
+
+    private static String micros(long nanos) {
+        return String.valueOf(TimeUnit.NANOSECONDS.toMicros(nanos));
     }
 
     // -------------------------
-    // UI helpers
+    // DB helper
     // -------------------------
 
-    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+    private void queryAndSendStatsByUuid(CommandSender sender, UUID uuid, String displayName) {
+        // Online-Spieler (und kürzlich abgefragte) direkt aus dem Cache
+        PlayerCache.PlayerRecord cached = plugin.playerCache().get(uuid);
+        if (cached != null) {
+            if (Bukkit.isPrimaryThread()) {
+                sendStats(sender, cached);
+            } else {
+                Bukkit.getScheduler().runTask(plugin, () -> sendStats(sender, cached));
+            }
+            return;
+        }
 
-    private DateTimeFormatter dateFormatter() {
-        var lang = plugin.messages().lang();
-        Locale locale = lang.equals("en") ? Locale.ENGLISH : Locale.GERMAN;
-        return DateTimeFormatter.ofPattern("EEEE dd.MM.yyyy, HH:mm:ss", locale)
-                .withZone(ZoneId.of("Europe/Berlin"));
+        db.runRead(con -> {
+            PlayerCache.PlayerRecord record = plugin.playerCache().fetch(con, uuid);
+            if (record == null) {
+                Bukkit.getScheduler().runTask(plugin, () ->
+                        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.no_data", Map.of("player", displayName))));
+                return;
+            }
+            Bukkit.getScheduler().runTask(plugin, () -> sendStats(sender, record));
+        }, e -> sendDbError(sender, e));
     }
 
-    private String formatDateTime(long epochMs) {
-        return dateFormatter().format(Instant.ofEpochMilli(epochMs));
-    }
+    private void sendStats(CommandSender sender, PlayerCache.PlayerRecord record) {
+        long now = System.currentTimeMillis();
+        long playMs = record.totalPlaytimeMs();
+        Long sessionMs = null;
+
+        // Live-Session addieren (nur wenn online und Session-Start bekannt)
+        if (record.online()) {
+            Long start = plugin.getSessionStart(record.uuid());
+            if (start != null) {
+                sessionMs = Math.max(0L, now - start);
+                playMs += sessionMs;
+            }
+        }
 
+        String onlineStr = record.online()
+                ? plugin.messages().msg(sender, "online.yes")
+                : plugin.messages().msg(sender, "online.no");
 
-    private void sendHelp(CommandSender sender) {
-        sender.sendMessage(prefix() + plugin.messages().msg("help.title"));
-        sender.sendMessage(prefix() + plugin.messages().msg("help.stats.self"));
-        sender.sendMessage(prefix() + plugin.messages().msg("help.stats.other"));
-        sender.sendMessage(prefix() + plugin.messages().msg("help.top"));
-        sender.sendMessage(prefix() + plugin.messages().msg("help.reload"));
-        sender.sendMessage(prefix() + plugin.messages().msg("help.delete"));
-        sender.sendMessage(prefix() + plugin.messages().msg("help.add"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "stats.title", Map.of("player", record.name())));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "stats.online", Map.of("value", onlineStr)));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "stats.playtime", Map.of("time", formatDuration(sender, playMs))));
+
+        if (sessionMs != null) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "stats.session", Map.of("time", formatDuration(sender, sessionMs))));
+        }
+
+        Leaderboard.Rank rank = plugin.leaderboard().rank(record.uuid(), now);
+        if (rank != null) {
+            sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "stats.rank", Map.of(
+                    "rank", String.valueOf(rank.rank()),
+                    "total", String.valueOf(rank.total()))));
+        }
+
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "stats.first_seen", Map.of("time", formatDateTime(sender, record.firstSeen()))));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "stats.last_seen", Map.of("time", formatDateTime(sender, record.lastSeen()))));
     }
 
 
-    private String prefix() {
-        return plugin.messages().msg("prefix");
+    private void queryAndSendStatsByName(CommandSender sender, String name) {
+        db.runRead(con -> {
+            PreparedStatement ps = db.statement(con, Sql.SELECT_PLAYER_BY_NAME);
+            ps.setString(1, name);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    Bukkit.getScheduler().runTask(plugin, () ->
+                            sender.sendMessage(prefix(sender) + plugin.messages()
+                                    .msg(sender, "err.no_data", Map.of("player", name))));
+                    return;
+                }
+
+                UUID uuid = Uuids.fromBytes(rs.getBytes("uuid"));
+                String realName = rs.getString("name");
+                // gleiche Verbindung, kein zweiter Umweg über den Lese-Pool
+                PlayerCache.PlayerRecord cached = plugin.playerCache().get(uuid);
+                PlayerCache.PlayerRecord record = cached != null ? cached : plugin.playerCache().fetch(con, uuid);
+                if (record == null) {
+                    Bukkit.getScheduler().runTask(plugin, () ->
+                            sender.sendMessage(prefix(sender) + plugin.messages()
+                                    .msg(sender, "err.no_data", Map.of("player", realName))));
+                    return;
+                }
+                Bukkit.getScheduler().runTask(plugin, () -> sendStats(sender, record));
+            }
+        }, e -> sendDbError(sender, e));
+    }
+
+    /**
+     * Name -> UUID ohne Netzwerk: erst der {@link NameIndex}, dann Papers Profil-Cache.
+     * {@code null}, wenn der Name hier nie gesehen wurde.
+     */
+    private NameIndex.Entry resolve(String name) {
+        NameIndex.Entry e = plugin.names().find(name);
+        if (e != null) return e;
+        OfflinePlayer off = Bukkit.getOfflinePlayerIfCached(name);
+        if (off == null) return null;
+        return new NameIndex.Entry(off.getUniqueId(), off.getName() != null ? off.getName() : name, 0L);
     }
 
-    private String formatDuration(long ms) {
-        long totalSeconds = TimeUnit.MILLISECONDS.toSeconds(ms);
+    private void sendDbError(CommandSender sender, SQLException e) {
+        Bukkit.getScheduler().runTask(plugin, () ->
+                sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "err.db", Map.of("error", String.valueOf(e.getMessage())))));
+    }
 
-        long days = totalSeconds / 86400;
-        long hours = (totalSeconds % 86400) / 3600;
-        long minutes = (totalSeconds % 3600) / 60;
-        long seconds = totalSeconds % 60;
 
-        StringBuilder sb = new StringBuilder();
+    private void upsertPlayerMinimal(UUID uuid, String name, long now) throws SQLException {
+        PreparedStatement ps = db.statement(Sql.UPSERT_PLAYER_MINIMAL);
+        ps.setBytes(1, Uuids.toBytes(uuid));
+        ps.setString(2, name);
+        ps.setLong(3, now);
+        ps.setLong(4, now);
+        ps.executeUpdate();
+    }
 
-        boolean en = plugin.messages().lang().equals("en");
+    // -------------------------
+    // UI helpers
+    // -------------------------
 
-        if (days > 0) {
-            if (en) {
-                sb.append(days == 1 ? "1 day " : days + " days ");
-            } else {
-                sb.append(days == 1 ? "1 Tag " : days + " Tage ");
-            }
-        }
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+    private static final DateTimeFormatter CHAT_TIME = DateTimeFormatter.ofPattern("dd.MM. HH:mm:ss").withZone(ZONE);
+    private static final DateTimeFormatter CONSOLE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZONE);
 
-        if (en) {
-            sb.append(String.format("%02dh %02dm %02ds", hours, minutes, seconds));
-        } else {
-            sb.append(String.format("%02dh %02dm %02ds", hours, minutes, seconds));
-        }
+    private DateTimeFormatter dateFormatter(CommandSender sender) {
+        var lang = plugin.messages().lang(sender);
+        Locale locale = lang.equals("en") ? Locale.ENGLISH : Locale.GERMAN;
+        return DateTimeFormatter.ofPattern("EEEE dd.MM.yyyy, HH:mm:ss", locale)
+                .withZone(ZoneId.of("Europe/Berlin"));
+    }
 
-        return sb.toString();
+    private String formatDateTime(CommandSender sender, long epochMs) {
+        return dateFormatter(sender).format(Instant.ofEpochMilli(epochMs));
     }
 
 
+    private void sendHelp(CommandSender sender) {
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.title"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.stats.self"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.stats.other"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.top"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.reload"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.delete"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.purge"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.export"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.migrate"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.add"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.metrics"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.commands"));
+        sender.sendMessage(prefix(sender) + plugin.messages().msg(sender, "help.search"));
+    }
 
-    private static long parseDurationToMs(String input) {
-        String s = input.trim().toLowerCase(Locale.ROOT);
-        if (s.isEmpty()) throw new IllegalArgumentException("leer");
 
-        long multiplier;
-        if (s.endsWith("ms")) {
-            multiplier = 1L;
-            s = s.substring(0, s.length() - 2);
-        } else if (s.endsWith("s")) {
-            multiplier = 1000L;
-            s = s.substring(0, s.length() - 1);
-        } else if (s.endsWith("m")) {
-            multiplier = 60_000L;
-            s = s.substring(0, s.length() - 1);
-        } else if (s.endsWith("h")) {
-            multiplier = 3_600_000L;
-            s = s.substring(0, s.length() - 1);
-        } else {
-            // Default: Minuten
-            multiplier = 60_000L;
-        }
+    private String prefix(CommandSender sender) {
+        return plugin.messages().prefix(sender);
+    }
 
-        long val;
-        try {
-            val = Long.parseLong(s.trim());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("keine Zahl: " + input);
-        }
-        if (val < 0) throw new IllegalArgumentException("negativ");
-        return val * multiplier;
+    private String formatDuration(CommandSender sender, long ms) {
+        return Durations.format(ms, plugin.messages().lang(sender).equals("en"));
     }
 
     private List<String> onlineNames() {
         return Bukkit.getOnlinePlayers().stream().map(Player::getName).toList();
     }
 
+    /** Online-Spieler zuerst, danach alle bekannten Namen aus dem Index. */
+    private List<String> playerNames(String token) {
+        Set<String> out = new LinkedHashSet<>(filterPrefix(onlineNames(), token));
+        out.addAll(plugin.names().complete(token, MAX_NAME_SUGGESTIONS));
+        return out.stream().limit(MAX_NAME_SUGGESTIONS).toList();
+    }
+
     private static List<String> filterPrefix(Collection<String> options, String token) {
         String t = token.toLowerCase(Locale.ROOT);
         List<String> out = new ArrayList<>();
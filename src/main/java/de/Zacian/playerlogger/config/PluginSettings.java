@@ -0,0 +1,217 @@
+package de.Zacian.playerlogger.config;
+
+import de.Zacian.playerlogger.filter.CommandFilter;
+import org.bukkit.configuration.ConfigurationSection;
+import org.sqlite.SQLiteConfig;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * Unveränderlicher Schnappschuss der config.yml. Wird beim Start und bei {@code /plog reload}
+ * einmal gebaut und als Ganzes ausgetauscht, die Event-Handler lesen nur noch finale Felder.
+ */
+public record PluginSettings(
+        boolean logJoinQuit,
+        boolean logCommands,
+        CommandFilter commandFilter,
+        String language,
+        boolean languageAuto,
+        Storage storage
+) {
+
+    /**
+     * Obergrenze einer Warteschlange unter {@code database.queue} und was passiert, wenn sie voll ist.
+     * {@code COALESCE} fasst nur identische Command-Logs zusammen, sonst verhält es sich wie {@code DROP_OLDEST}.
+     */
+    public record QueueLimit(int capacity, Overflow overflow) {
+
+        public enum Overflow {
+            /** bis {@code database.queue.block-ms} auf Platz warten, danach das neue Element verwerfen */
+            BLOCK,
+            /** das älteste wartende Element verwerfen */
+            DROP_OLDEST,
+            /** Duplikate des neuen Elements verwerfen, sonst wie DROP_OLDEST */
+            COALESCE
+        }
+
+        static QueueLimit load(ConfigurationSection c, String path, int capacity, Overflow overflow) {
+            String raw = c.getString(path + ".overflow", overflow.name());
+            Overflow o;
+            try {
+                o = Overflow.valueOf(raw.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                o = overflow;
+            }
+            return new QueueLimit(Math.max(1, c.getInt(path + ".capacity", capacity)), o);
+        }
+    }
+
+    /** Alles unter {@code database}: wird nur beim Start übernommen. */
+    public record Storage(
+            String type,
+            String sqliteFile,
+            String mysqlHost,
+            int mysqlPort,
+            String mysqlDatabase,
+            String mysqlUser,
+            String mysqlPassword,
+            int batchSize,
+            long batchLingerMs,
+            int poolReaders,
+            long poolAcquireTimeoutMs,
+            int poolValidationTimeoutS,
+            long cacheWriteBehindSeconds,
+            long cacheOfflineTtlMinutes,
+            int cacheMaxOfflineEntries,
+            int cacheCommandTexts,
+            int retentionCommandLogDays,
+            boolean journalEnabled,
+            int journalSizeMb,
+            int connectAttempts,
+            long connectBackoffMs,
+            SQLiteConfig.SynchronousMode sqliteSynchronous,
+            int sqliteCacheSizeMb,
+            int sqliteMmapSizeMb,
+            int sqliteBusyTimeoutMs,
+            boolean sqliteForeignKeys,
+            long checkpointSeconds,
+            QueueLimit queueSession,
+            QueueLimit queueReads,
+            QueueLimit queueCommands,
+            long queueBlockMs
+    ) {
+
+        public boolean isMySql() {
+            return "MYSQL".equals(type);
+        }
+
+        public boolean isSqlite() {
+            return "SQLITE".equals(type);
+        }
+
+        /** Das Journal wird komplett gemappt, ein MappedByteBuffer fasst höchstens 2 GiB. */
+        static final int JOURNAL_MAX_MB = 2047;
+
+        static Storage load(ConfigurationSection c, Logger logger) {
+            return new Storage(
+                    c.getString("database.type", "SQLITE").toUpperCase(Locale.ROOT),
+                    c.getString("database.sqlite-file", "playerlogger.db"),
+                    c.getString("database.mysql.host"),
+                    c.getInt("database.mysql.port"),
+                    c.getString("database.mysql.database"),
+                    c.getString("database.mysql.user"),
+                    c.getString("database.mysql.password"),
+                    c.getInt("database.batch.size", 200),
+                    c.getLong("database.batch.linger-ms", 250L),
+                    c.getInt("database.pool.readers", 2),
+                    c.getLong("database.pool.acquire-timeout-ms", 5000L),
+                    c.getInt("database.pool.validation-timeout-s", 2),
+                    c.getLong("database.cache.write-behind-seconds", 10L),
+                    c.getLong("database.cache.offline-ttl-minutes", 30L),
+                    c.getInt("database.cache.max-offline-entries", 5000),
+                    c.getInt("database.cache.command-texts", 4096),
+                    c.getInt("database.retention.command-logs-days", 0),
+                    c.getBoolean("database.journal.enabled", true),
+                    journalSizeMb(c, logger),
+                    c.getInt("database.connect.attempts", 5),
+                    c.getLong("database.connect.backoff-ms", 1000L),
+                    synchronous(c.getString("database.sqlite.synchronous", "NORMAL")),
+                    c.getInt("database.sqlite.cache-size-mb", 32),
+                    c.getInt("database.sqlite.mmap-size-mb", 256),
+                    c.getInt("database.sqlite.busy-timeout-ms", 5000),
+                    c.getBoolean("database.sqlite.foreign-keys", true),
+                    c.getLong("database.checkpoint-seconds", 60L),
+                    QueueLimit.load(c, "database.queue.session", 100_000, QueueLimit.Overflow.BLOCK),
+                    QueueLimit.load(c, "database.queue.reads", 256, QueueLimit.Overflow.BLOCK),
+                    QueueLimit.load(c, "database.queue.commands", 20_000, QueueLimit.Overflow.COALESCE),
+                    c.getLong("database.queue.block-ms", 50L)
+            );
+        }
+
+        private static int journalSizeMb(ConfigurationSection c, Logger logger) {
+            int mb = c.getInt("database.journal.size-mb", 16);
+            int clamped = Math.max(1, Math.min(JOURNAL_MAX_MB, mb));
+            if (clamped != mb) {
+                logger.warning("database.journal.size-mb must be between 1 and " + JOURNAL_MAX_MB
+                        + ", using " + clamped + ".");
+            }
+            return clamped;
+        }
+
+        private static SQLiteConfig.SynchronousMode synchronous(String s) {
+            try {
+                return SQLiteConfig.SynchronousMode.valueOf(s.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return SQLiteConfig.SynchronousMode.NORMAL;
+            }
+        }
+
+        /** Config-Pfad -> Wert, für den Vergleich in {@link #requiresRestart}. */
+        private Map<String, Object> byPath() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("database.type", type);
+            m.put("database.sqlite-file", sqliteFile);
+            m.put("database.mysql.host", mysqlHost);
+            m.put("database.mysql.port", mysqlPort);
+            m.put("database.mysql.database", mysqlDatabase);
+            m.put("database.mysql.user", mysqlUser);
+            m.put("database.mysql.password", mysqlPassword);
+            m.put("database.batch.size", batchSize);
+            m.put("database.batch.linger-ms", batchLingerMs);
+            m.put("database.pool.readers", poolReaders);
+            m.put("database.pool.acquire-timeout-ms", poolAcquireTimeoutMs);
+            m.put("database.pool.validation-timeout-s", poolValidationTimeoutS);
+            m.put("database.cache.write-behind-seconds", cacheWriteBehindSeconds);
+            m.put("database.cache.offline-ttl-minutes", cacheOfflineTtlMinutes);
+            m.put("database.cache.max-offline-entries", cacheMaxOfflineEntries);
+            m.put("database.cache.command-texts", cacheCommandTexts);
+            m.put("database.retention.command-logs-days", retentionCommandLogDays);
+            m.put("database.journal.enabled", journalEnabled);
+            m.put("database.journal.size-mb", journalSizeMb);
+            m.put("database.connect.attempts", connectAttempts);
+            m.put("database.connect.backoff-ms", connectBackoffMs);
+            m.put("database.sqlite.synchronous", sqliteSynchronous);
+            m.put("database.sqlite.cache-size-mb", sqliteCacheSizeMb);
+            m.put("database.sqlite.mmap-size-mb", sqliteMmapSizeMb);
+            m.put("database.sqlite.busy-timeout-ms", sqliteBusyTimeoutMs);
+            m.put("database.sqlite.foreign-keys", sqliteForeignKeys);
+            m.put("database.checkpoint-seconds", checkpointSeconds);
+            m.put("database.queue.session", queueSession);
+            m.put("database.queue.reads", queueReads);
+            m.put("database.queue.commands", queueCommands);
+            m.put("database.queue.block-ms", queueBlockMs);
+            return m;
+        }
+    }
+
+    public static PluginSettings load(ConfigurationSection c, Logger logger) {
+        return new PluginSettings(
+                c.getBoolean("logging.join-quit", true),
+                c.getBoolean("logging.commands", true),
+                CommandFilter.compile(c.getConfigurationSection("command-filter")),
+                c.getString("language", "de").toLowerCase(Locale.ROOT),
+                c.getBoolean("language-auto", false),
+                Storage.load(c, logger)
+        );
+    }
+
+    /**
+     * Pfade, die sich gegenüber den laufenden Werten geändert haben, aber erst nach einem Neustart greifen.
+     * Werte werden bewusst nicht mit ausgegeben (Passwort).
+     */
+    public static List<String> requiresRestart(Storage running, Storage reloaded) {
+        Map<String, Object> a = running.byPath();
+        Map<String, Object> b = reloaded.byPath();
+        List<String> changed = new ArrayList<>();
+        for (var e : a.entrySet()) {
+            if (!Objects.equals(e.getValue(), b.get(e.getKey()))) changed.add(e.getKey());
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,170 @@
+package de.Zacian.playerlogger.filter;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Vorkompilierter Command-Filter: alle Regeln aus {@code command-filter} liegen in einem
+ * case-insensitiven Präfix-Trie. {@link #decide(String)} läuft einmal über den Command
+ * (O(Länge), ohne Allokation) und nimmt die spezifischste (längste) passende Regel.
+ *
+ * <ul>
+ *   <li>Präfix-Regeln passen auf jeden Command, der mit dem Text beginnt ({@code /login} passt auch auf {@code /loginx}).</li>
+ *   <li>Exakte Regeln passen nur auf das Label selbst, also bis zum ersten Leerzeichen.</li>
+ *   <li>Gibt es Allow-Regeln, wird alles ohne passende Regel nicht geloggt.</li>
+ * </ul>
+ */
+public final class CommandFilter {
+
+    public enum Action {
+        /** normal loggen */
+        LOG,
+        /** gar nicht loggen */
+        SKIP,
+        /** nur das Label loggen, Argumente maskieren */
+        REDACT
+    }
+
+    public static final String REDACTED = "***";
+
+    private static final CommandFilter DISABLED = new CommandFilter(new Node(), false, false);
+
+    private final Node root;
+    private final boolean hasAllow;
+    private final boolean enabled;
+
+    private CommandFilter(Node root, boolean hasAllow, boolean enabled) {
+        this.root = root;
+        this.hasAllow = hasAllow;
+        this.enabled = enabled;
+    }
+
+    public static CommandFilter disabled() {
+        return DISABLED;
+    }
+
+    /** Kompiliert den Abschnitt {@code command-filter} aus der config.yml. */
+    public static CommandFilter compile(ConfigurationSection section) {
+        if (section == null || !section.getBoolean("enabled", true)) return DISABLED;
+
+        Builder b = new Builder();
+        b.addAll(section.getStringList("allow-prefixes"), Action.LOG, false);
+        b.addAll(section.getStringList("allow-exact"), Action.LOG, true);
+        b.addAll(section.getStringList("redact-prefixes"), Action.REDACT, false);
+        b.addAll(section.getStringList("redact-exact"), Action.REDACT, true);
+        // Deny zuletzt: bei identischer Regel gewinnt Deny
+        b.addAll(section.getStringList("deny-prefixes"), Action.SKIP, false);
+        b.addAll(section.getStringList("deny-exact"), Action.SKIP, true);
+        return b.build();
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public Action decide(String command) {
+        if (!enabled) return Action.LOG;
+
+        Action best = null;
+        Node n = root;
+        int len = command.length();
+        for (int i = 0; i < len && n != null; i++) {
+            char c = command.charAt(i);
+            if (c == ' ' && n.exact != null) {
+                // Label zu Ende -> exakte Regel passt
+                best = n.exact;
+            }
+            n = n.child(fold(c));
+            if (n != null && n.prefix != null) best = n.prefix;
+        }
+        if (n != null && n.exact != null) {
+            best = n.exact;
+        }
+
+        if (best != null) return best;
+        return hasAllow ? Action.SKIP : Action.LOG;
+    }
+
+    /** Wendet die Entscheidung an: {@code null} = nicht loggen, sonst der zu speichernde Text. */
+    public String apply(String command) {
+        return switch (decide(command)) {
+            case LOG -> command;
+            case SKIP -> null;
+            case REDACT -> redact(command);
+        };
+    }
+
+    static String redact(String command) {
+        int space = command.indexOf(' ');
+        return space < 0 ? command : command.substring(0, space) + " " + REDACTED;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    // -------------------------
+    // Trie
+    // -------------------------
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        Action prefix;
+        Action exact;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node getOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) return children[i];
+            int at = -i - 1;
+            char[] k = new char[keys.length + 1];
+            Node[] ch = new Node[children.length + 1];
+            System.arraycopy(keys, 0, k, 0, at);
+            System.arraycopy(children, 0, ch, 0, at);
+            k[at] = c;
+            ch[at] = new Node();
+            System.arraycopy(keys, at, k, at + 1, keys.length - at);
+            System.arraycopy(children, at, ch, at + 1, children.length - at);
+            keys = k;
+            children = ch;
+            return ch[at];
+        }
+    }
+
+    private static final class Builder {
+        private final Node root = new Node();
+        private boolean hasAllow;
+
+        void addAll(List<String> rules, Action action, boolean exact) {
+            for (String rule : rules) {
+                if (rule == null || rule.isBlank()) continue;
+                add(rule.trim().toLowerCase(Locale.ROOT), action, exact);
+            }
+        }
+
+        private void add(String rule, Action action, boolean exact) {
+            Node n = root;
+            for (int i = 0; i < rule.length(); i++) {
+                n = n.getOrCreate(fold(rule.charAt(i)));
+            }
+            if (exact) {
+                n.exact = action;
+            } else {
+                n.prefix = action;
+            }
+            if (action == Action.LOG) hasAllow = true;
+        }
+
+        CommandFilter build() {
+            return new CommandFilter(root, hasAllow, true);
+        }
+    }
+}
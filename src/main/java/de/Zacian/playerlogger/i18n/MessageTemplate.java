@@ -0,0 +1,86 @@
+package de.Zacian.playerlogger.i18n;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Einmal kompilierte Nachricht: bereits eingefärbte Literale im Wechsel mit {@code %name%}-Platzhaltern.
+ * Gerendert wird mit einem einzigen StringBuilder; Nachrichten ohne Platzhalter sind ein fertiger String.
+ */
+final class MessageTemplate {
+
+    // literals.length == placeholders.length + 1
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private MessageTemplate(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int len = 0;
+        for (String l : literals) len += l.length();
+        this.literalLength = len;
+    }
+
+    static MessageTemplate compile(String raw) {
+        // Farbcodes einmal vorab übersetzen; %name% enthält kein '&' und bleibt unverändert
+        String s = ChatColor.translateAlternateColorCodes('&', raw);
+
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        StringBuilder lit = new StringBuilder();
+
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (c == '%') {
+                int end = s.indexOf('%', i + 1);
+                if (end > i + 1 && isName(s, i + 1, end)) {
+                    literals.add(lit.toString());
+                    lit.setLength(0);
+                    placeholders.add(s.substring(i + 1, end));
+                    i = end + 1;
+                    continue;
+                }
+            }
+            lit.append(c);
+            i++;
+        }
+        literals.add(lit.toString());
+
+        return new MessageTemplate(literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    private static boolean isName(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-')) return false;
+        }
+        return true;
+    }
+
+    String render() {
+        return render(Map.of());
+    }
+
+    String render(Map<String, String> vars) {
+        if (placeholders.length == 0) return literals[0];
+
+        StringBuilder sb = new StringBuilder(literalLength + 16 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            sb.append(literals[i]);
+            String v = vars.get(placeholders[i]);
+            if (v != null) {
+                sb.append(v);
+            } else {
+                // unbekannte Variable bleibt sichtbar stehen
+                sb.append('%').append(placeholders[i]).append('%');
+            }
+        }
+        sb.append(literals[placeholders.length]);
+        return sb.toString();
+    }
+}
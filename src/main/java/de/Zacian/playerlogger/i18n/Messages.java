@@ -1,59 +1,122 @@
 package de.Zacian.playerlogger.i18n;
 
-import org.bukkit.ChatColor;
+import de.Zacian.playerlogger.config.PluginSettings;
+import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class Messages {
 
+    /** Alle Templates einer Sprachdatei, einmal kompiliert. */
+    private record Bundle(String lang, YamlConfiguration cfg, Map<String, MessageTemplate> templates, String prefix) { }
+
     private final JavaPlugin plugin;
-    private YamlConfiguration cfg;
-    private String lang; // "de" / "en"
+    private volatile Bundle fallback;
+    private volatile boolean auto;
+    // Client-Sprache ("de", "en", ...) -> Bundle; Sprachen ohne Datei zeigen auf den Fallback
+    private final Map<String, Bundle> bundles = new ConcurrentHashMap<>();
 
     public Messages(JavaPlugin plugin) {
         this.plugin = plugin;
     }
 
-    public void reload() {
-        lang = plugin.getConfig().getString("language", "de").toLowerCase();
-        String file = "messages_" + lang + ".yml";
+    public void reload(PluginSettings settings) {
+        Bundle b = load(settings.language());
+        if (b == null) {
+            throw new IllegalStateException("Missing resource: messages_" + settings.language() + ".yml");
+        }
+        bundles.clear();
+        bundles.put(b.lang(), b);
+        fallback = b;
+        auto = settings.languageAuto();
+    }
 
+    private Bundle load(String lang) {
+        String file = "messages_" + lang + ".yml";
+        YamlConfiguration cfg;
         try (var in = plugin.getResource(file)) {
-            if (in == null) {
-                throw new IllegalStateException("Missing resource: " + file);
-            }
+            if (in == null) return null;
             cfg = YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
         } catch (Exception e) {
             throw new RuntimeException("Failed to load " + file, e);
         }
+
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        for (String key : cfg.getKeys(true)) {
+            if (cfg.isString(key)) {
+                templates.put(key, MessageTemplate.compile(cfg.getString(key)));
+            }
+        }
+        MessageTemplate prefix = templates.get("prefix");
+        return new Bundle(lang, cfg, templates, prefix != null ? prefix.render() : "");
+    }
+
+    private Bundle bundle(CommandSender sender) {
+        Bundle fb = fallback;
+        if (!auto || !(sender instanceof Player p)) return fb;
+
+        Locale locale = p.locale();
+        String lang = locale != null ? locale.getLanguage().toLowerCase(Locale.ROOT) : fb.lang();
+        if (lang.isEmpty()) return fb;
+        return bundles.computeIfAbsent(lang, l -> {
+            Bundle b = load(l);
+            return b != null ? b : fb;
+        });
     }
 
+    // -------------------------
+    // Standardsprache (Konsole, Logs)
+    // -------------------------
+
     public String lang() {
-        return lang;
+        return fallback.lang();
     }
 
     public String raw(String key) {
-        String s = cfg.getString(key);
+        String s = fallback.cfg().getString(key);
         return s != null ? s : ("<missing:" + key + ">");
     }
 
     public String msg(String key) {
-        return color(raw(key));
+        return render(fallback, key, Map.of());
     }
 
     public String msg(String key, Map<String, String> vars) {
-        String s = raw(key);
-        for (var e : vars.entrySet()) {
-            s = s.replace("%" + e.getKey() + "%", e.getValue());
-        }
-        return color(s);
+        return render(fallback, key, vars);
+    }
+
+    // -------------------------
+    // pro Empfänger (language-auto)
+    // -------------------------
+
+    public String lang(CommandSender sender) {
+        return bundle(sender).lang();
+    }
+
+    public String prefix(CommandSender sender) {
+        return bundle(sender).prefix();
+    }
+
+    public String msg(CommandSender sender, String key) {
+        return render(bundle(sender), key, Map.of());
+    }
+
+    public String msg(CommandSender sender, String key, Map<String, String> vars) {
+        return render(bundle(sender), key, vars);
     }
 
-    private static String color(String s) {
-        return ChatColor.translateAlternateColorCodes('&', s);
+    private String render(Bundle b, String key, Map<String, String> vars) {
+        MessageTemplate t = b.templates().get(key);
+        if (t == null && b != fallback) t = fallback.templates().get(key);
+        if (t == null) return "<missing:" + key + ">";
+        return t.render(vars);
     }
 }
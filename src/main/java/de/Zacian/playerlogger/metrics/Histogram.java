@@ -0,0 +1,83 @@
+package de.Zacian.playerlogger.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-freies Histogramm für nicht-negative Werte (Nanosekunden, Batchgrößen).
+ * Vier Buckets pro Zweierpotenz, Perzentile sind also auf etwa 25 % genau; das reicht,
+ * um zu sehen, ob etwas Mikro- oder Millisekunden kostet. {@link #record} darf von jedem Thread kommen.
+ */
+public final class Histogram {
+
+    public record Snapshot(long count, long sum, long max, long p50, long p95, long p99) {
+        public long mean() {
+            return count == 0 ? 0L : sum / count;
+        }
+    }
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB + (63 - SUB_BITS) * SUB;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+    }
+
+    public void record(long value) {
+        if (value < 0L) value = 0L;
+        buckets[index(value)].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /** Misst seit {@code startNanos} (aus {@link System#nanoTime()}). */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        long mx = max.get();
+        return new Snapshot(count, sum.sum(), mx,
+                percentile(counts, count, 0.50, mx),
+                percentile(counts, count, 0.95, mx),
+                percentile(counts, count, 0.99, mx));
+    }
+
+    private static long percentile(long[] counts, long count, double q, long max) {
+        if (count == 0L) return 0L;
+        long rank = (long) Math.ceil(q * count);
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    static int index(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+        return SUB + (exp - SUB_BITS) * SUB + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB) return index;
+        int exp = (index - SUB) / SUB + SUB_BITS;
+        int sub = (index - SUB) % SUB;
+        long width = 1L << (exp - SUB_BITS);
+        long lower = (SUB + sub) * width;
+        return lower + width - 1;
+    }
+}
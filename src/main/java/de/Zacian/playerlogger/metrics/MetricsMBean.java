@@ -0,0 +1,216 @@
+package de.Zacian.playerlogger.metrics;
+
+import de.Zacian.playerlogger.storage.Database;
+import de.Zacian.playerlogger.storage.Priority;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+/** Registriert {@link PluginMetrics} plus die Queue-Gauges der {@link Database} als MXBean. */
+public final class MetricsMBean implements PlayerLoggerMetricsMXBean {
+
+    private static final String NAME = "de.zacian.playerlogger:type=Metrics";
+
+    private final PluginMetrics metrics;
+    private final Database db;
+    private ObjectName registered;
+
+    public MetricsMBean(PluginMetrics metrics, Database db) {
+        this.metrics = metrics;
+        this.db = db;
+    }
+
+    public void register(Logger logger) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(NAME);
+            // nach einem Plugin-Reload hängt sonst noch die alte Instanz
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(this, name);
+            registered = name;
+        } catch (JMException e) {
+            logger.warning("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    public void unregister() {
+        if (registered == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+        } catch (JMException ignored) {
+            // schon weg
+        }
+        registered = null;
+    }
+
+    // -------------------------
+    // Gauges
+    // -------------------------
+
+    @Override
+    public int getDbQueueReady() {
+        return db.writerQueue().ready();
+    }
+
+    @Override
+    public int getDbQueueScheduled() {
+        return db.writerQueue().scheduled();
+    }
+
+    @Override
+    public long getDbOldestTaskWaitMs() {
+        return db.writerQueue().oldestWaitMs();
+    }
+
+    @Override
+    public int getPendingEvents() {
+        return db.pendingEvents();
+    }
+
+    @Override
+    public int getReadQueueDepth() {
+        return db.readQueueDepth();
+    }
+
+    // -------------------------
+    // Pipeline
+    // -------------------------
+
+    @Override
+    public long getBatches() {
+        return metrics.batchSize().snapshot().count();
+    }
+
+    @Override
+    public double getBatchSizeMean() {
+        Histogram.Snapshot s = metrics.batchSize().snapshot();
+        return s.count() == 0 ? 0.0 : (double) s.sum() / s.count();
+    }
+
+    @Override
+    public long getBatchP99Micros() {
+        return micros(metrics.batchTime().snapshot().p99());
+    }
+
+    @Override
+    public long getCommitP99Micros() {
+        return micros(metrics.commitTime().snapshot().p99());
+    }
+
+    @Override
+    public long getBatchRetries() {
+        return metrics.batchRetries().sum();
+    }
+
+    @Override
+    public long getBatchesDropped() {
+        return metrics.batchesDropped().sum();
+    }
+
+    @Override
+    public long getEventsDropped() {
+        return metrics.eventsDropped().sum();
+    }
+
+    @Override
+    public long getShedSession() {
+        return metrics.shed(Priority.SESSION).sum();
+    }
+
+    @Override
+    public long getShedReads() {
+        return metrics.shed(Priority.READ).sum();
+    }
+
+    @Override
+    public long getShedCommands() {
+        return metrics.shed(Priority.COMMAND).sum();
+    }
+
+    @Override
+    public long getCoalescedCommands() {
+        return metrics.coalesced().sum();
+    }
+
+    @Override
+    public long getTaskWaitP99Micros() {
+        return micros(metrics.taskWait().snapshot().p99());
+    }
+
+    @Override
+    public long getTasksFailed() {
+        return metrics.tasksFailed().sum();
+    }
+
+    @Override
+    public long getReadsFailed() {
+        return metrics.readsFailed().sum();
+    }
+
+    // -------------------------
+    // Statements / Handler
+    // -------------------------
+
+    @Override
+    public Map<String, Long> getStatementCounts() {
+        return statements(Histogram.Snapshot::count);
+    }
+
+    @Override
+    public Map<String, Long> getStatementP50Micros() {
+        return statements(s -> micros(s.p50()));
+    }
+
+    @Override
+    public Map<String, Long> getStatementP99Micros() {
+        return statements(s -> micros(s.p99()));
+    }
+
+    @Override
+    public Map<String, Long> getStatementMaxMicros() {
+        return statements(s -> micros(s.max()));
+    }
+
+    @Override
+    public Map<String, Long> getHandlerCounts() {
+        return handlers(Histogram.Snapshot::count);
+    }
+
+    @Override
+    public Map<String, Long> getHandlerP50Nanos() {
+        return handlers(Histogram.Snapshot::p50);
+    }
+
+    @Override
+    public Map<String, Long> getHandlerP99Nanos() {
+        return handlers(Histogram.Snapshot::p99);
+    }
+
+    @Override
+    public Map<String, Long> getHandlerMaxNanos() {
+        return handlers(Histogram.Snapshot::max);
+    }
+
+    private Map<String, Long> statements(ToLongFunction<Histogram.Snapshot> value) {
+        Map<String, Long> out = new TreeMap<>();
+        metrics.statements().forEach((k, s) -> out.put(k.name(), value.applyAsLong(s)));
+        return out;
+    }
+
+    private Map<String, Long> handlers(ToLongFunction<Histogram.Snapshot> value) {
+        Map<String, Long> out = new TreeMap<>();
+        metrics.handlers().forEach((k, s) -> out.put(k.name(), value.applyAsLong(s)));
+        return out;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,64 @@
+package de.Zacian.playerlogger.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX-Sicht auf {@link PluginMetrics} unter {@code de.zacian.playerlogger:type=Metrics}.
+ * Zeiten in Mikrosekunden, die Maps sind nach Statement bzw. Handler geschlüsselt.
+ */
+public interface PlayerLoggerMetricsMXBean {
+
+    int getDbQueueReady();
+
+    int getDbQueueScheduled();
+
+    long getDbOldestTaskWaitMs();
+
+    int getPendingEvents();
+
+    int getReadQueueDepth();
+
+    long getBatches();
+
+    double getBatchSizeMean();
+
+    long getBatchP99Micros();
+
+    long getCommitP99Micros();
+
+    long getBatchRetries();
+
+    long getBatchesDropped();
+
+    long getEventsDropped();
+
+    long getShedSession();
+
+    long getShedReads();
+
+    long getShedCommands();
+
+    long getCoalescedCommands();
+
+    long getTaskWaitP99Micros();
+
+    long getTasksFailed();
+
+    long getReadsFailed();
+
+    Map<String, Long> getStatementCounts();
+
+    Map<String, Long> getStatementP50Micros();
+
+    Map<String, Long> getStatementP99Micros();
+
+    Map<String, Long> getStatementMaxMicros();
+
+    Map<String, Long> getHandlerCounts();
+
+    Map<String, Long> getHandlerP50Nanos();
+
+    Map<String, Long> getHandlerP99Nanos();
+
+    Map<String, Long> getHandlerMaxNanos();
+}
@@ -0,0 +1,133 @@
+package de.Zacian.playerlogger.metrics;
+
+import de.Zacian.playerlogger.storage.Priority;
+import de.Zacian.playerlogger.storage.Sql;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Zähler und Histogramme des Plugins. Wird einmal beim Start angelegt und von allen Threads beschrieben;
+ * gelesen wird über {@code /plog metrics} und {@link MetricsMBean}. Zeiten sind in Nanosekunden.
+ */
+public final class PluginMetrics {
+
+    /** Event-Handler, deren Kosten auf dem Main-Thread (bzw. beim Pre-Login async) gemessen werden. */
+    public enum Handler {
+        PRE_LOGIN, JOIN, QUIT, COMMAND, CHECKPOINT, CACHE_TICK
+    }
+
+    // Pipeline
+    private final Histogram batchSize = new Histogram();
+    private final Histogram batchTime = new Histogram();
+    private final Histogram commitTime = new Histogram();
+    private final LongAdder batchRetries = new LongAdder();
+    private final LongAdder batchesDropped = new LongAdder();
+    private final LongAdder eventsDropped = new LongAdder();
+
+    // volle Warteschlangen
+    private final Map<Priority, LongAdder> shed = new EnumMap<>(Priority.class);
+    private final LongAdder coalesced = new LongAdder();
+
+    // DB-Thread und Lese-Pool
+    private final Histogram taskWait = new Histogram();
+    private final Histogram taskTime = new Histogram();
+    private final Histogram readTime = new Histogram();
+    private final LongAdder tasksFailed = new LongAdder();
+    private final LongAdder readsFailed = new LongAdder();
+
+    // vorab befüllt, danach nur noch gelesen -> ohne Synchronisation sicher
+    private final Map<Sql, Histogram> statements = new EnumMap<>(Sql.class);
+    private final Map<Handler, Histogram> handlers = new EnumMap<>(Handler.class);
+
+    public PluginMetrics() {
+        for (Sql key : Sql.values()) statements.put(key, new Histogram());
+        for (Handler h : Handler.values()) handlers.put(h, new Histogram());
+        for (Priority p : Priority.values()) shed.put(p, new LongAdder());
+    }
+
+    /** Events pro geschriebenem Batch; die Anzahl ist zugleich die Zahl der Batches. */
+    public Histogram batchSize() {
+        return batchSize;
+    }
+
+    /** Dauer eines Batches vom ersten Statement bis nach dem Commit. */
+    public Histogram batchTime() {
+        return batchTime;
+    }
+
+    public Histogram commitTime() {
+        return commitTime;
+    }
+
+    /** Gescheiterte Batches, die für einen neuen Versuch behalten wurden. */
+    public LongAdder batchRetries() {
+        return batchRetries;
+    }
+
+    public LongAdder batchesDropped() {
+        return batchesDropped;
+    }
+
+    public LongAdder eventsDropped() {
+        return eventsDropped;
+    }
+
+    /** Wegen voller Warteschlange verworfene Events bzw. abgelehnte Abfragen. */
+    public LongAdder shed(Priority priority) {
+        return shed.get(priority);
+    }
+
+    /** Command-Logs, die als Duplikat eines wartenden Eintrags verworfen wurden. */
+    public LongAdder coalesced() {
+        return coalesced;
+    }
+
+    /** Wie lange ein Task in der Queue des DB-Threads gewartet hat. */
+    public Histogram taskWait() {
+        return taskWait;
+    }
+
+    public Histogram taskTime() {
+        return taskTime;
+    }
+
+    public Histogram readTime() {
+        return readTime;
+    }
+
+    public LongAdder tasksFailed() {
+        return tasksFailed;
+    }
+
+    public LongAdder readsFailed() {
+        return readsFailed;
+    }
+
+    public Histogram statement(Sql key) {
+        return statements.get(key);
+    }
+
+    public Histogram handler(Handler handler) {
+        return handlers.get(handler);
+    }
+
+    /** Schnappschüsse aller Statements, die schon einmal gelaufen sind. */
+    public Map<Sql, Histogram.Snapshot> statements() {
+        Map<Sql, Histogram.Snapshot> out = new EnumMap<>(Sql.class);
+        for (Map.Entry<Sql, Histogram> e : statements.entrySet()) {
+            Histogram.Snapshot s = e.getValue().snapshot();
+            if (s.count() > 0) out.put(e.getKey(), s);
+        }
+        return out;
+    }
+
+    public Map<Handler, Histogram.Snapshot> handlers() {
+        Map<Handler, Histogram.Snapshot> out = new EnumMap<>(Handler.class);
+        for (Map.Entry<Handler, Histogram> e : handlers.entrySet()) {
+            out.put(e.getKey(), e.getValue().snapshot());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,730 @@
+package de.Zacian.playerlogger.storage;
+
+import de.Zacian.playerlogger.storage.migration.MigrationContext;
+import de.Zacian.playerlogger.storage.migration.SchemaMigrator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Kopiert alle Daten von einem Backend ins andere ({@code /plog migrate sqlite mysql} und umgekehrt). Beide Seiten
+ * kommen aus {@code database.sqlite}/{@code database.mysql} der config.yml. Das Ziel darf nicht das laufende Backend
+ * sein, die Quelle schon: gelesen wird über eigene Verbindungen, der DB-Thread merkt davon nichts.
+ *
+ * <p>Die großen Tabellen ({@code command_logs}, {@code sessions}, {@code command_texts}) werden nach ID in
+ * {@link #RANGES} Bereiche geteilt, die parallel laufen. Jeder Bereich liest per Keyset {@link #CHUNK} Zeilen und
+ * schreibt sie als mehrzeilige {@code REPLACE}-Statements in einer Transaktion, zusammen mit seinem Stand in
+ * {@code backend_migration} auf dem Ziel. Ein abgebrochener Lauf macht dort weiter; was seitdem in der Quelle dazukam,
+ * wird als neue Bereiche angehängt. Die kleinen Tabellen werden jedes Mal ganz kopiert.</p>
+ *
+ * <p>Danach werden auf dem Ziel die Zeilen gelöscht, die es in der Quelle nicht mehr gibt (Purge, Retention,
+ * Archiv-Export seit dem letzten Lauf). Dafür laufen die Schlüssel beider Seiten sortiert nebeneinander her, bei
+ * den ID-Tabellen wieder in {@link #RANGES} parallelen Bereichen.</p>
+ *
+ * <p>Zum Schluss werden pro Tabelle Anzahl und SHA-256 über alle Zeilen in Schlüsselreihenfolge auf beiden Seiten
+ * parallel gerechnet und verglichen. {@code backend_migration} bleibt stehen, damit ein späterer Lauf kurz vor dem
+ * Umschalten nur noch die neuen Zeilen holt. Ein Ziel, das schon Daten, aber keinen solchen Stand hat, wird nicht
+ * angefasst.</p>
+ */
+public final class BackendMigration {
+
+    private static final int CHUNK = 5000;
+    // ältere SQLite-Builds erlauben 999 Parameter pro Statement
+    private static final int MAX_PARAMS = 900;
+    private static final int RANGES = 4;
+    private static final long REPORT_MS = 5_000L;
+    private static final int TARGET_BUSY_TIMEOUT_MS = 60_000;
+    private static final String STATE_TABLE = "backend_migration";
+
+    /** Rückmeldungen an den Auftraggeber, auf dem Migrations-Thread. */
+    public interface Listener {
+        void progress(long rows, long estimate);
+
+        void verified(String table, long sourceRows, long targetRows, boolean match);
+
+        void pruned(long rows);
+
+        void done(long rows, boolean verified);
+
+        void failed(String error);
+    }
+
+    /** Tabelle mit ihren Spalten; die Schlüsselspalten stehen vorne. {@code ranged} = nach {@code id} aufteilbar. */
+    private record Table(String name, int keys, boolean ranged, String... columns) { }
+
+    private static final List<Table> TABLES = List.of(
+            new Table("players", 1, false, "uuid", "name", "first_seen", "last_seen", "online", "total_playtime_ms"),
+            new Table("playtime_daily", 2, false, "uuid", "day", "ms"),
+            new Table("journal_state", 1, false, "journal_id", "last_seq", "command_seq"),
+            new Table("command_texts", 1, true, "id", "hash", "text"),
+            new Table("sessions", 1, true, "id", "uuid", "join_time", "leave_time", "playtime_ms"),
+            new Table("command_logs", 1, true, "id", "uuid", "time", "command_id"));
+
+    /** Ein ID-Bereich {@code (from, to]}, kopiert bis einschließlich {@code done}. */
+    private record Range(Table table, long from, long to, long done) { }
+
+    private record Check(long rows, byte[] sha256) { }
+
+    @FunctionalInterface
+    private interface ChunkSink {
+        void accept(List<Object[]> rows) throws SQLException;
+    }
+
+    private final Database db;
+    private final Logger logger;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean cancelled;
+    private volatile ExecutorService workers;
+
+    BackendMigration(Database db, Logger logger) {
+        this.db = db;
+        this.logger = logger;
+    }
+
+    /**
+     * Startet die Migration im Hintergrund.
+     * @return {@code false}, wenn schon eine läuft
+     */
+    public boolean start(boolean fromMySql, boolean toMySql, Listener listener) {
+        if (fromMySql == toMySql) throw new IllegalArgumentException("source and target are the same backend");
+        if (toMySql == db.isMySql()) throw new IllegalArgumentException("target is the active backend");
+        if (!running.compareAndSet(false, true)) return false;
+        cancelled = false;
+
+        Thread t = new Thread(() -> {
+            try {
+                run(fromMySql, toMySql, listener);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Backend migration failed: " + e.getMessage(), e);
+                listener.failed(cancelled ? "cancelled" : String.valueOf(e.getMessage()));
+            } finally {
+                ExecutorService w = workers;
+                if (w != null) w.shutdownNow();
+                workers = null;
+                running.set(false);
+            }
+        }, "PlayerLogger-Migrate");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    /** Bricht einen laufenden Lauf ab (Plugin-Shutdown); der nächste macht beim letzten Commit weiter. */
+    void cancel() {
+        cancelled = true;
+        ExecutorService w = workers;
+        if (w != null) w.shutdownNow();
+    }
+
+    private void run(boolean fromMySql, boolean toMySql, Listener listener) throws Exception {
+        String from = fromMySql ? "MySQL" : "SQLite";
+        String to = toMySql ? "MySQL" : "SQLite";
+        logger.info("Migrating data from " + from + " to " + to + "...");
+
+        List<Range> ranges = new ArrayList<>();
+        long[] high = new long[TABLES.size()];
+        try (Connection src = db.openBackend(fromMySql, true);
+             Connection dst = target(toMySql)) {
+            if (tableExists(src, CommandLogBackfill.LEGACY_TABLE) || tableExists(src, PlaytimeBackfill.STATE_TABLE)) {
+                throw new SQLException("background migrations on the source are not finished yet");
+            }
+            if (!tableExists(dst, STATE_TABLE) && tableExists(dst, "players")
+                    && queryLong(dst, "SELECT COUNT(*) FROM (SELECT uuid FROM players LIMIT 1) t") > 0) {
+                throw new SQLException("the " + to + " database already contains data");
+            }
+            new SchemaMigrator().migrate(new MigrationContext(dst, toMySql, logger, CHUNK));
+            if (queryLong(src, "SELECT MAX(version) FROM schema_version")
+                    < queryLong(dst, "SELECT MAX(version) FROM schema_version")) {
+                throw new SQLException("the " + from + " schema is outdated, start the plugin on it once first");
+            }
+            // playtime_daily kommt komplett aus der Quelle, ein Backfill auf dem Ziel würde doppelt zählen
+            execute(dst, "DROP TABLE IF EXISTS " + PlaytimeBackfill.STATE_TABLE);
+            execute(dst, "CREATE TABLE IF NOT EXISTS " + STATE_TABLE + " (" +
+                    "tbl VARCHAR(32) NOT NULL," +
+                    "range_from BIGINT NOT NULL," +
+                    "range_to BIGINT NOT NULL," +
+                    "done_to BIGINT NOT NULL," +
+                    "PRIMARY KEY (tbl, range_to))");
+            if (toMySql) splitFirstPartition(src, dst);
+
+            for (int i = 0; i < TABLES.size(); i++) {
+                Table t = TABLES.get(i);
+                if (!t.ranged()) continue;
+                high[i] = plan(src, dst, t, ranges);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(RANGES, new WorkerFactory());
+        workers = pool;
+        if (cancelled) throw new SQLException("cancelled");
+
+        // kopieren
+        // Schätzung: ID-Lücken zählen mit, die kleinen Tabellen nicht
+        long estimate = 0L;
+        for (Range r : ranges) estimate += r.to() - r.done();
+        long total = estimate;
+        AtomicLong copied = new AtomicLong();
+        List<Future<?>> copies = new ArrayList<>();
+        for (Table t : TABLES) {
+            if (t.ranged()) continue;
+            copies.add(pool.submit(() -> copyAll(fromMySql, toMySql, t, copied)));
+        }
+        for (Range r : ranges) {
+            copies.add(pool.submit(() -> copyRange(fromMySql, toMySql, r, copied)));
+        }
+        awaitAll(copies, () -> listener.progress(copied.get(), total), REPORT_MS);
+        logger.info("Copied " + copied.get() + " rows, removing rows deleted on the source...");
+
+        // in der Quelle gelöschte Zeilen auch im Ziel löschen
+        AtomicLong pruned = new AtomicLong();
+        List<Future<?>> prunes = new ArrayList<>();
+        for (int i = 0; i < TABLES.size(); i++) {
+            Table t = TABLES.get(i);
+            if (!t.ranged()) {
+                prunes.add(pool.submit(() -> prune(fromMySql, toMySql, t, null, null, pruned)));
+                continue;
+            }
+            long span = Math.max(CHUNK, (high[i] + RANGES - 1) / RANGES);
+            for (long lo = 0L; lo < high[i]; lo += span) {
+                Object[] after = {lo};
+                long upTo = Math.min(high[i], lo + span);
+                prunes.add(pool.submit(() -> prune(fromMySql, toMySql, t, after, upTo, pruned)));
+            }
+        }
+        awaitAll(prunes, () -> { }, REPORT_MS);
+        listener.pruned(pruned.get());
+        logger.info("Removed " + pruned.get() + " rows that no longer exist on the source, verifying...");
+
+        // prüfen: pro Tabelle Quelle und Ziel parallel
+        List<Future<Check>> checks = new ArrayList<>();
+        for (int i = 0; i < TABLES.size(); i++) {
+            Table t = TABLES.get(i);
+            Long upTo = t.ranged() ? high[i] : null;
+            checks.add(pool.submit(() -> check(fromMySql, false, t, upTo)));
+            checks.add(pool.submit(() -> check(toMySql, true, t, upTo)));
+        }
+        awaitAll(checks, () -> { }, REPORT_MS);
+
+        boolean ok = true;
+        for (int i = 0; i < TABLES.size(); i++) {
+            Check a = checks.get(2 * i).get();
+            Check b = checks.get(2 * i + 1).get();
+            boolean match = a.rows() == b.rows() && Arrays.equals(a.sha256(), b.sha256());
+            ok &= match;
+            listener.verified(TABLES.get(i).name(), a.rows(), b.rows(), match);
+        }
+
+        if (ok) {
+            logger.info("Migration from " + from + " to " + to + " verified, switch database.type and restart.");
+        } else {
+            logger.warning("Migration from " + from + " to " + to + " finished with mismatches, run it again to catch up.");
+        }
+        listener.done(copied.get(), ok);
+    }
+
+    // -------------------------
+    // Planung
+    // -------------------------
+
+    /**
+     * Übernimmt offene Bereiche aus {@code backend_migration} und hängt neue für alles an, was seit dem letzten Lauf
+     * in der Quelle dazukam. Bei {@code sessions} wird ab der ältesten damals offenen Session neu kopiert, weil sich
+     * deren Ende inzwischen geändert haben kann.
+     * @return die größte ID der Quelle, bis zu der geprüft wird
+     */
+    private long plan(Connection src, Connection dst, Table t, List<Range> out) throws SQLException {
+        List<Range> known = new ArrayList<>();
+        try (PreparedStatement ps = dst.prepareStatement(
+                "SELECT range_from, range_to, done_to FROM " + STATE_TABLE + " WHERE tbl=? ORDER BY range_to")) {
+            ps.setString(1, t.name());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) known.add(new Range(t, rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+            }
+        }
+
+        long copiedTo = known.isEmpty() ? 0L : known.get(known.size() - 1).to();
+
+        if (t.name().equals("sessions")) {
+            long open = queryLong(dst, "SELECT MIN(id) FROM sessions WHERE leave_time IS NULL");
+            if (open > 0) {
+                List<Range> rewound = new ArrayList<>(known.size());
+                for (Range r : known) {
+                    long done = Math.min(r.done(), Math.max(r.from(), open - 1));
+                    rewound.add(new Range(t, r.from(), r.to(), done));
+                    if (done != r.done()) saveDone(dst, r, done);
+                }
+                known = rewound;
+            }
+        }
+
+        long high = queryLong(src, "SELECT MAX(id) FROM " + t.name());
+        if (high > copiedTo) {
+            long span = (high - copiedTo + RANGES - 1) / RANGES;
+            long from = copiedTo;
+            while (from < high) {
+                long to = Math.min(high, from + Math.max(span, CHUNK));
+                Range r = new Range(t, from, to, from);
+                try (PreparedStatement ps = dst.prepareStatement(
+                        "INSERT INTO " + STATE_TABLE + "(tbl, range_from, range_to, done_to) VALUES(?, ?, ?, ?)")) {
+                    ps.setString(1, t.name());
+                    ps.setLong(2, r.from());
+                    ps.setLong(3, r.to());
+                    ps.setLong(4, r.done());
+                    ps.executeUpdate();
+                }
+                known.add(r);
+                from = to;
+            }
+        }
+
+        for (Range r : known) {
+            if (r.done() < r.to()) out.add(r);
+        }
+        return Math.max(high, copiedTo);
+    }
+
+    /**
+     * MySQL legt bei leerer Tabelle nur Partitionen ab dem aktuellen Monat an, alles Ältere landete dann in der ersten.
+     * Solange {@code command_logs} auf dem Ziel leer ist, wird sie deshalb in Monate ab dem ältesten Eintrag geteilt.
+     */
+    private static void splitFirstPartition(Connection src, Connection dst) throws SQLException {
+        if (queryLong(dst, "SELECT COUNT(*) FROM (SELECT id FROM command_logs LIMIT 1) t") > 0) return;
+        long min = queryLong(src, "SELECT MIN(time) FROM command_logs");
+        if (min <= 0) return;
+
+        String first;
+        Long bound;
+        try (Statement st = dst.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+                             "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'command_logs' " +
+                             "AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION LIMIT 1")) {
+            if (!rs.next()) return;
+            first = rs.getString(1);
+            String desc = rs.getString(2);
+            bound = desc == null || desc.equalsIgnoreCase("MAXVALUE") ? null : Long.parseLong(desc.trim());
+        }
+        if (bound == null) return;
+
+        YearMonth last = CommandLogPartitions.monthOf(bound - 1);
+        YearMonth m = CommandLogPartitions.monthOf(min);
+        if (!m.isBefore(last) || CommandLogPartitions.upperBound(last) != bound) return;
+
+        StringBuilder parts = new StringBuilder();
+        for (; m.isBefore(last); m = m.plusMonths(1)) {
+            parts.append(CommandLogPartitions.definition(m)).append(", ");
+        }
+        parts.append(CommandLogPartitions.definition(last));
+        execute(dst, "ALTER TABLE command_logs REORGANIZE PARTITION " + first + " INTO (" + parts + ")");
+    }
+
+    // -------------------------
+    // Kopieren
+    // -------------------------
+
+    private Void copyAll(boolean fromMySql, boolean toMySql, Table t, AtomicLong copied) throws SQLException {
+        try (Connection src = db.openBackend(fromMySql, true);
+             Connection dst = target(toMySql)) {
+            dst.setAutoCommit(false);
+            Inserter insert = new Inserter(dst, toMySql, t);
+            try {
+                scan(src, t, null, null, rows -> {
+                    insert.write(rows);
+                    dst.commit();
+                    copied.addAndGet(rows.size());
+                });
+            } catch (SQLException e) {
+                try { dst.rollback(); } catch (SQLException ignored) { }
+                throw e;
+            }
+        }
+        return null;
+    }
+
+    private Void copyRange(boolean fromMySql, boolean toMySql, Range r, AtomicLong copied) throws SQLException {
+        Table t = r.table();
+        try (Connection src = db.openBackend(fromMySql, true);
+             Connection dst = target(toMySql);
+             PreparedStatement state = dst.prepareStatement(
+                     "UPDATE " + STATE_TABLE + " SET done_to=? WHERE tbl=? AND range_to=?")) {
+            dst.setAutoCommit(false);
+            Inserter insert = new Inserter(dst, toMySql, t);
+            state.setString(2, t.name());
+            state.setLong(3, r.to());
+            try {
+                long[] done = {r.done()};
+                scan(src, t, new Object[]{r.done()}, r.to(), rows -> {
+                    insert.write(rows);
+                    done[0] = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+                    // Stand in derselben Transaktion, dann passt er nach einem Abbruch genau
+                    state.setLong(1, done[0]);
+                    state.executeUpdate();
+                    dst.commit();
+                    copied.addAndGet(rows.size());
+                });
+                state.setLong(1, r.to());
+                state.executeUpdate();
+                dst.commit();
+            } catch (SQLException e) {
+                try { dst.rollback(); } catch (SQLException ignored) { }
+                throw e;
+            }
+        }
+        return null;
+    }
+
+    /** Mehrzeilige {@code REPLACE}-Statements, so viele Zeilen pro Statement, wie Parameter erlaubt sind. */
+    private static final class Inserter {
+        private final Connection con;
+        private final boolean mySql;
+        private final Table table;
+        private final int perStatement;
+        private final PreparedStatement full;
+
+        Inserter(Connection con, boolean mySql, Table table) throws SQLException {
+            this.con = con;
+            this.mySql = mySql;
+            this.table = table;
+            this.perStatement = Math.max(1, MAX_PARAMS / table.columns().length);
+            this.full = con.prepareStatement(sql(perStatement));
+        }
+
+        void write(List<Object[]> rows) throws SQLException {
+            int i = 0;
+            while (rows.size() - i >= perStatement) {
+                bind(full, rows, i, perStatement);
+                full.executeUpdate();
+                i += perStatement;
+            }
+            if (i < rows.size()) {
+                try (PreparedStatement rest = con.prepareStatement(sql(rows.size() - i))) {
+                    bind(rest, rows, i, rows.size() - i);
+                    rest.executeUpdate();
+                }
+            }
+        }
+
+        private void bind(PreparedStatement ps, List<Object[]> rows, int from, int count) throws SQLException {
+            int p = 1;
+            for (int r = from; r < from + count; r++) {
+                for (Object v : rows.get(r)) ps.setObject(p++, v);
+            }
+        }
+
+        private String sql(int rows) {
+            int cols = table.columns().length;
+            String one = "(" + "?, ".repeat(cols - 1) + "?)";
+            StringBuilder sb = new StringBuilder(mySql ? "REPLACE INTO " : "INSERT OR REPLACE INTO ")
+                    .append(table.name()).append('(').append(String.join(", ", table.columns())).append(") VALUES ");
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(one);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Löscht im Ziel, was im Schlüsselbereich {@code (after, upTo]} nicht mehr in der Quelle steht. Beide Seiten
+     * liefern nur die Schlüssel in derselben Reihenfolge (vorzeichenlos für BLOB/BINARY), also reicht ein Merge.
+     */
+    private Void prune(boolean fromMySql, boolean toMySql, Table t, Object[] after, Long upTo, AtomicLong pruned)
+            throws SQLException {
+        int keys = t.keys();
+        StringBuilder where = new StringBuilder();
+        for (int i = 0; i < keys; i++) {
+            if (i > 0) where.append(" AND ");
+            where.append(t.columns()[i]).append("=?");
+        }
+        try (Connection src = db.openBackend(fromMySql, true);
+             Connection dst = target(toMySql);
+             Scanner source = new Scanner(src, t, true, after, upTo);
+             Scanner target = new Scanner(dst, t, true, after, upTo);
+             PreparedStatement delete = dst.prepareStatement("DELETE FROM " + t.name() + " WHERE " + where)) {
+            dst.setAutoCommit(false);
+            Object[] s = source.row();
+            int batch = 0;
+            try {
+                for (Object[] d = target.row(); d != null; d = target.row()) {
+                    while (s != null && compareKey(s, d, keys) < 0) s = source.row();
+                    if (s != null && compareKey(s, d, keys) == 0) continue;
+                    for (int i = 0; i < keys; i++) delete.setObject(i + 1, d[i]);
+                    delete.addBatch();
+                    if (++batch >= CHUNK) {
+                        delete.executeBatch();
+                        dst.commit();
+                        pruned.addAndGet(batch);
+                        batch = 0;
+                    }
+                }
+                delete.executeBatch();
+                dst.commit();
+                pruned.addAndGet(batch);
+            } catch (SQLException e) {
+                try { dst.rollback(); } catch (SQLException ignored) { }
+                throw e;
+            }
+        }
+        return null;
+    }
+
+    private static int compareKey(Object[] a, Object[] b, int keys) {
+        for (int i = 0; i < keys; i++) {
+            int c;
+            if (a[i] instanceof byte[] x && b[i] instanceof byte[] y) {
+                c = Arrays.compareUnsigned(x, y);
+            } else if (a[i] instanceof Number x && b[i] instanceof Number y) {
+                c = Long.compare(x.longValue(), y.longValue());
+            } else {
+                c = String.valueOf(a[i]).compareTo(String.valueOf(b[i]));
+            }
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    // -------------------------
+    // Prüfen
+    // -------------------------
+
+    private Check check(boolean mySql, boolean isTarget, Table t, Long upTo) throws SQLException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        AtomicLong rows = new AtomicLong();
+        try (Connection con = isTarget ? target(mySql) : db.openBackend(mySql, true)) {
+            scan(con, t, null, upTo, chunk -> {
+                for (Object[] row : chunk) {
+                    for (Object v : row) digest(md, v);
+                }
+                rows.addAndGet(chunk.size());
+            });
+        }
+        return new Check(rows.get(), md.digest());
+    }
+
+    /** Backend-unabhängige Form eines Werts: MySQL liefert z. B. Boolean und Integer, wo SQLite Long liefert. */
+    private static void digest(MessageDigest md, Object v) {
+        ByteBuffer buf = ByteBuffer.allocate(9);
+        if (v == null) {
+            md.update((byte) 0);
+        } else if (v instanceof byte[] b) {
+            md.update(buf.put((byte) 1).putInt(b.length).array(), 0, 5);
+            md.update(b);
+        } else if (v instanceof Number || v instanceof Boolean) {
+            long l = v instanceof Boolean b ? (b ? 1L : 0L) : ((Number) v).longValue();
+            md.update(buf.put((byte) 2).putLong(l).array());
+        } else {
+            byte[] s = v.toString().getBytes(StandardCharsets.UTF_8);
+            md.update(buf.put((byte) 3).putInt(s.length).array(), 0, 5);
+            md.update(s);
+        }
+    }
+
+    // -------------------------
+    // Hilfen
+    // -------------------------
+
+    /** Liest die Tabelle chunkweise, siehe {@link Scanner}, und reicht jeden Chunk weiter. */
+    private void scan(Connection con, Table t, Object[] after, Long upTo, ChunkSink sink) throws SQLException {
+        try (Scanner scanner = new Scanner(con, t, false, after, upTo)) {
+            for (List<Object[]> rows = scanner.chunk(); !rows.isEmpty(); rows = scanner.chunk()) {
+                sink.accept(rows);
+            }
+        }
+    }
+
+    /**
+     * Liest eine Tabelle in Schlüsselreihenfolge, {@link #CHUNK} Zeilen pro Abfrage, ab hinter {@code after}
+     * (Schlüsselwerte, {@code null} = von vorne) und bei ID-Tabellen bis einschließlich {@code upTo}.
+     * Mit {@code keysOnly} nur die Schlüsselspalten.
+     */
+    private final class Scanner implements AutoCloseable {
+        private final int keys;
+        private final int cols;
+        private final Long upTo;
+        private final PreparedStatement first;
+        private final PreparedStatement next;
+        private Object[] last;
+        private boolean end;
+        private List<Object[]> rows = List.of();
+        private int pos;
+
+        Scanner(Connection con, Table t, boolean keysOnly, Object[] after, Long upTo) throws SQLException {
+            String[] key = Arrays.copyOf(t.columns(), t.keys());
+            String[] columns = keysOnly ? key : t.columns();
+            this.keys = key.length;
+            this.cols = columns.length;
+            this.upTo = upTo;
+            this.last = after;
+
+            String select = "SELECT " + String.join(", ", columns) + " FROM " + t.name();
+            String order = " ORDER BY " + String.join(", ", key) + " LIMIT " + CHUNK;
+            String bound = upTo != null ? key[0] + " <= ?" : null;
+
+            // (k1 > ?) OR (k1 = ? AND k2 > ?) ...
+            StringBuilder keyset = new StringBuilder();
+            for (int i = 0; i < key.length; i++) {
+                if (i > 0) keyset.append(" OR ");
+                keyset.append('(');
+                for (int j = 0; j < i; j++) keyset.append(key[j]).append(" = ? AND ");
+                keyset.append(key[i]).append(" > ?)");
+            }
+            String firstSql = select + (bound != null ? " WHERE " + bound : "") + order;
+            String nextSql = select + " WHERE (" + keyset + ")" + (bound != null ? " AND " + bound : "") + order;
+            this.first = con.prepareStatement(firstSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            try {
+                this.next = con.prepareStatement(nextSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            } catch (SQLException e) {
+                first.close();
+                throw e;
+            }
+        }
+
+        /** Nächster Chunk, leer am Ende. */
+        List<Object[]> chunk() throws SQLException {
+            if (end) return List.of();
+            if (cancelled) throw new SQLException("cancelled");
+            PreparedStatement ps = last == null ? first : next;
+            int p = 1;
+            if (last != null) {
+                for (int i = 0; i < keys; i++) {
+                    for (int j = 0; j <= i; j++) ps.setObject(p++, last[j]);
+                }
+            }
+            if (upTo != null) ps.setLong(p, upTo);
+            ps.setFetchSize(CHUNK);
+
+            List<Object[]> out = new ArrayList<>(CHUNK);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Object[] row = new Object[cols];
+                    for (int c = 0; c < cols; c++) row[c] = rs.getObject(c + 1);
+                    out.add(row);
+                }
+            }
+            if (out.size() < CHUNK) end = true;
+            if (!out.isEmpty()) last = Arrays.copyOf(out.get(out.size() - 1), keys);
+            return out;
+        }
+
+        /** Nächste Zeile, {@code null} am Ende. */
+        Object[] row() throws SQLException {
+            if (pos == rows.size()) {
+                rows = chunk();
+                pos = 0;
+                if (rows.isEmpty()) return null;
+            }
+            return rows.get(pos++);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                first.close();
+            } finally {
+                next.close();
+            }
+        }
+    }
+
+    private Connection target(boolean mySql) throws SQLException {
+        Connection con = db.openBackend(mySql, false);
+        try (Statement st = con.createStatement()) {
+            if (mySql) {
+                // players wird per REPLACE (Delete + Insert) erneuert, während sessions darauf zeigt
+                st.execute("SET SESSION foreign_key_checks = 0");
+            } else {
+                st.execute("PRAGMA foreign_keys = OFF");
+                // die Bereiche schreiben parallel, SQLite lässt sie nacheinander rein
+                st.execute("PRAGMA busy_timeout = " + TARGET_BUSY_TIMEOUT_MS);
+            }
+        } catch (SQLException e) {
+            con.close();
+            throw e;
+        }
+        return con;
+    }
+
+    private void saveDone(Connection dst, Range r, long done) throws SQLException {
+        try (PreparedStatement ps = dst.prepareStatement(
+                "UPDATE " + STATE_TABLE + " SET done_to=? WHERE tbl=? AND range_to=?")) {
+            ps.setLong(1, done);
+            ps.setString(2, r.table().name());
+            ps.setLong(3, r.to());
+            ps.executeUpdate();
+        }
+    }
+
+    private static void awaitAll(List<? extends Future<?>> futures, Runnable report, long everyMs) throws Exception {
+        for (Future<?> f : futures) {
+            while (true) {
+                try {
+                    f.get(everyMs, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    report.run();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ex ? ex : e;
+                }
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection con, String table) throws SQLException {
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private static long queryLong(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    private static void execute(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger n = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "PlayerLogger-Migrate-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package de.Zacian.playerlogger.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Interniert Command-Texte in {@code command_texts}, jede Zeile in {@code command_logs} speichert nur die ID.
+ * In der DB ist der SHA-256 des Textes eindeutig (TEXT lässt sich unter MySQL nicht sinnvoll unique indizieren),
+ * davor liegt ein LRU Text -> ID für die paar Commands, die den Großteil ausmachen.
+ * Nur auf dem DB-Thread benutzen.
+ */
+final class CommandDictionary {
+
+    private final Database db;
+    private final Map<String, Long> lru;
+    private final MessageDigest sha256;
+
+    CommandDictionary(Database db, int capacity) {
+        this.db = db;
+        int cap = Math.max(16, capacity);
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cap;
+            }
+        };
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** ID des Textes, legt ihn bei Bedarf an. Läuft in der Transaktion des Aufrufers. */
+    long intern(Connection con, String text) throws SQLException {
+        Long cached = lru.get(text);
+        if (cached != null) return cached;
+
+        byte[] hash = sha256.digest(text.getBytes(StandardCharsets.UTF_8));
+        long id = lookup(con, hash);
+        if (id < 0) {
+            PreparedStatement ins = db.statement(con, Sql.INSERT_COMMAND_TEXT);
+            ins.setBytes(1, hash);
+            ins.setString(2, text);
+            ins.executeUpdate();
+            id = lookup(con, hash);
+            if (id < 0) throw new SQLException("command_texts row missing after insert");
+        }
+        lru.put(text, id);
+        return id;
+    }
+
+    /** Nach dem Aufräumen von {@code command_texts}: gelöschte IDs dürfen nicht mehr vergeben werden. */
+    void forget(Set<Long> ids) {
+        lru.values().removeIf(ids::contains);
+    }
+
+    /** Nach einem Rollback: IDs aus der verworfenen Transaktion dürfen nicht im Cache bleiben. */
+    void clear() {
+        lru.clear();
+    }
+
+    private long lookup(Connection con, byte[] hash) throws SQLException {
+        PreparedStatement ps = db.statement(con, Sql.SELECT_COMMAND_TEXT_ID);
+        ps.setBytes(1, hash);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : -1L;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Seitenweise Command-Historie für {@code /plog commands}. Geblättert wird per Keyset auf {@code (time, id)} über
+ * {@code idx_command_uuid_time} statt mit OFFSET, damit Seite 500 so schnell ist wie Seite 1.
+ *
+ * <p>Pro Betrachter wird das Ende jeder schon gezeigten Seite gemerkt. Springt jemand direkt weit nach vorne,
+ * wird einmal Seite für Seite vorgelaufen (jeweils ein kurzer Range-Scan), danach sind die Cursor bekannt.</p>
+ */
+public final class CommandHistory {
+
+    public record Line(long id, long time, String command) { }
+
+    public record Page(int number, List<Line> lines, boolean more) { }
+
+    private record Cursor(long time, long id) { }
+
+    private static final Cursor START = new Cursor(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    /** Laufende Abfrage eines Betrachters; {@code ends.get(i)} ist das letzte Element von Seite {@code i + 1}. */
+    private static final class Query {
+        final UUID uuid;
+        final long window;
+        final int size;
+        final long since;
+        final List<Cursor> ends = new ArrayList<>();
+
+        Query(UUID uuid, long window, int size, long now) {
+            this.uuid = uuid;
+            this.window = window;
+            this.size = size;
+            this.since = window > 0 ? now - window : 0L;
+        }
+
+        boolean matches(UUID uuid, long window, int size) {
+            return this.uuid.equals(uuid) && this.window == window && this.size == size;
+        }
+    }
+
+    private final Database db;
+    private final Map<String, Query> queries = new ConcurrentHashMap<>();
+
+    CommandHistory(Database db) {
+        this.db = db;
+    }
+
+    /**
+     * Seite {@code page} (ab 1) der Commands von {@code uuid}, neueste zuerst. {@code window} ist die Zeitspanne
+     * rückwärts ab der ersten Abfrage, 0 = alles. Seite 1 startet die Abfrage des Betrachters neu.
+     * Läuft auf einer Verbindung aus {@link Database#runRead}.
+     */
+    public Page page(Connection con, String viewer, UUID uuid, long window, int page, int size) throws SQLException {
+        page = Math.max(1, page);
+        Query q = queries.get(viewer);
+        if (page == 1 || q == null || !q.matches(uuid, window, size)) {
+            q = new Query(uuid, window, size, System.currentTimeMillis());
+            queries.put(viewer, q);
+        }
+
+        synchronized (q) {
+            // bis zum Anfang der gewünschten Seite vorlaufen, falls deren Cursor noch fehlt
+            while (q.ends.size() < page - 1) {
+                Cursor from = q.ends.isEmpty() ? START : q.ends.get(q.ends.size() - 1);
+                List<Line> skipped = fetch(con, q, from, size);
+                if (skipped.isEmpty()) {
+                    // hinter dem Ende: letzte vorhandene Seite zeigen
+                    page = Math.max(1, q.ends.size());
+                    break;
+                }
+                Line last = skipped.get(skipped.size() - 1);
+                q.ends.add(new Cursor(last.time(), last.id()));
+                if (skipped.size() < size) {
+                    page = q.ends.size();
+                    break;
+                }
+            }
+
+            Cursor from = page == 1 ? START : q.ends.get(page - 2);
+            // eine Zeile mehr holen, um zu wissen, ob es weitergeht
+            List<Line> lines = fetch(con, q, from, size + 1);
+            boolean more = lines.size() > size;
+            if (more) lines = lines.subList(0, size);
+            if (!lines.isEmpty() && q.ends.size() == page - 1) {
+                Line last = lines.get(lines.size() - 1);
+                q.ends.add(new Cursor(last.time(), last.id()));
+            }
+            return new Page(page, List.copyOf(lines), more);
+        }
+    }
+
+    /** Vergisst die Abfrage eines Betrachters, z. B. beim Quit. */
+    public void forget(String viewer) {
+        queries.remove(viewer);
+    }
+
+    private List<Line> fetch(Connection con, Query q, Cursor from, int limit) throws SQLException {
+        PreparedStatement ps = db.statement(con, Sql.SELECT_COMMANDS_PAGE);
+        ps.setBytes(1, Uuids.toBytes(q.uuid));
+        ps.setLong(2, q.since);
+        ps.setLong(3, from.time());
+        ps.setLong(4, from.time());
+        ps.setLong(5, from.id());
+        ps.setInt(6, limit);
+        // nie mehr als eine Seite im Treiber puffern
+        ps.setFetchSize(limit);
+
+        List<Line> out = new ArrayList<>(limit);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                out.add(new Line(rs.getLong(1), rs.getLong(2), rs.getString(3)));
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,115 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Überführt {@code command_logs_legacy} (Text und Name pro Zeile) im Hintergrund in das
+ * dictionary-codierte {@code command_logs}. Läuft in kleinen Transaktionen auf dem DB-Thread,
+ * dazwischen kommen die normalen Event-Batches dran. Kopierte Zeilen werden aus der Legacy-Tabelle
+ * gelöscht, ein Neustart macht also einfach weiter; ist sie leer, wird sie gedroppt.
+ */
+final class CommandLogBackfill {
+
+    static final String LEGACY_TABLE = "command_logs_legacy";
+
+    private static final int CHUNK = 1000;
+    private static final long PAUSE_MS = 50L;
+    private static final long RETRY_MS = 30_000L;
+
+    private final Database db;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    private long moved;
+    private long dropped;
+
+    CommandLogBackfill(Database db, Logger logger, ScheduledExecutorService executor) {
+        this.db = db;
+        this.logger = logger;
+        this.executor = executor;
+    }
+
+    /** Nur auf dem DB-Thread aufrufen, nachdem die Migrationen gelaufen sind. */
+    void startIfNeeded() throws SQLException {
+        Connection con = db.getConnection();
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, LEGACY_TABLE, new String[]{"TABLE"})) {
+            if (!rs.next()) return;
+        }
+        logger.info("Migrating old command log entries in the background...");
+        schedule(0L);
+    }
+
+    private void schedule(long delayMs) {
+        try {
+            executor.schedule(this::step, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Shutdown, geht beim nächsten Start weiter
+        }
+    }
+
+    private void step() {
+        Connection con = db.getConnection();
+        try {
+            con.setAutoCommit(false);
+
+            int rows = 0;
+            long maxId = -1L;
+            PreparedStatement insert = db.statement(Sql.INSERT_COMMAND);
+            // Zeilen ohne players-Eintrag (gelöschte Spieler) wären ohne Namen nicht mehr zuzuordnen
+            try (PreparedStatement sel = con.prepareStatement(
+                    "SELECT l.id, l.uuid, l.time, l.command, p.uuid AS known FROM " + LEGACY_TABLE + " l " +
+                            "LEFT JOIN players p ON p.uuid = l.uuid ORDER BY l.id LIMIT ?")) {
+                sel.setInt(1, CHUNK);
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        maxId = rs.getLong("id");
+                        if (rs.getBytes("known") == null) {
+                            dropped++;
+                            continue;
+                        }
+                        insert.setBytes(1, rs.getBytes("uuid"));
+                        insert.setLong(2, rs.getLong("time"));
+                        insert.setLong(3, db.commandTexts().intern(con, rs.getString("command")));
+                        insert.addBatch();
+                        moved++;
+                    }
+                }
+            }
+
+            if (rows == 0) {
+                con.commit();
+                con.setAutoCommit(true);
+                try (Statement st = con.createStatement()) {
+                    st.execute("DROP TABLE " + LEGACY_TABLE);
+                }
+                logger.info("Command log migration done: " + moved + " entries moved, " + dropped + " orphaned entries dropped.");
+                return;
+            }
+
+            insert.executeBatch();
+            try (PreparedStatement del = con.prepareStatement("DELETE FROM " + LEGACY_TABLE + " WHERE id <= ?")) {
+                del.setLong(1, maxId);
+                del.executeUpdate();
+            }
+            con.commit();
+            schedule(PAUSE_MS);
+        } catch (SQLException e) {
+            try { con.rollback(); } catch (SQLException ignored) { }
+            db.dropStatements(con);
+            db.commandTexts().clear();
+            logger.log(Level.WARNING, "Command log migration step failed, retrying in " + (RETRY_MS / 1000) + "s: " + e.getMessage(), e);
+            schedule(RETRY_MS);
+        } finally {
+            try { con.setAutoCommit(true); } catch (SQLException ignored) { }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.Zacian.playerlogger.storage;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Monatspartitionen von {@code command_logs} unter MySQL ({@code RANGE} auf {@code time}, UTC).
+ * Partition {@code pYYYYMM} enthält alles vor dem Ersten des Folgemonats, {@code pmax} fängt den Rest.
+ */
+public final class CommandLogPartitions {
+
+    public static final String MAX = "PARTITION pmax VALUES LESS THAN MAXVALUE";
+
+    private CommandLogPartitions() { }
+
+    public static String name(YearMonth month) {
+        return String.format("p%04d%02d", month.getYear(), month.getMonthValue());
+    }
+
+    /** Exklusive Obergrenze in Epoch-Millis. */
+    public static long upperBound(YearMonth month) {
+        return month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    public static String definition(YearMonth month) {
+        return "PARTITION " + name(month) + " VALUES LESS THAN (" + upperBound(month) + ")";
+    }
+
+    public static YearMonth monthOf(long epochMs) {
+        return YearMonth.from(Instant.ofEpochMilli(epochMs).atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,273 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hält {@code command_logs} klein. Läuft stündlich auf dem DB-Thread.
+ *
+ * <ul>
+ *   <li>MySQL: legt die Monatspartitionen im Voraus an (aus {@code pmax} herausgeteilt, solange die noch leer ist)
+ *   und droppt Partitionen, die komplett älter als die Retention sind.</li>
+ *   <li>SQLite: dasselbe mit Monatstabellen hinter der View {@code command_logs} ({@link CommandLogTables}).
+ *   Neue Monate und abgelaufene Tabellen wechseln zusammen mit der View in einer Transaktion. Die Seiten einer
+ *   gedroppten Tabelle landen auf der Freelist und werden von den neuen Monaten wiederverwendet.</li>
+ * </ul>
+ *
+ * <p>Zeilenweise gelöscht wird in beiden Fällen nichts.</p>
+ *
+ * <p>Danach (und auch ohne Retention, weil Purge und Archiv-Export ebenfalls Zeilen löschen) räumt ein Durchlauf
+ * {@code command_texts} auf: Texte, auf die keine Zeile in {@code command_logs} mehr zeigt, fliegen raus, in
+ * ID-Bereichen von {@link #SWEEP_CHUNK} über {@code idx_command_text_time}. Die Volltext-Indizes ziehen mit
+ * (Trigger bzw. FULLTEXT), die gelöschten IDs werden aus dem {@link CommandDictionary} geworfen.</p>
+ */
+final class CommandLogRetention {
+
+    private static final long INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long FIRST_RUN_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final int MONTHS_AHEAD = 2;
+    private static final int SWEEP_CHUNK = 5000;
+    private static final long SWEEP_PAUSE_MS = 50L;
+
+    private record Partition(String name, Long upperBound) { }
+
+    private final Database db;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    private final long retentionMs;
+    private boolean warnedUnpartitioned;
+    private boolean warnedNoTables;
+    // nur DB-Thread; sweepCursor < 0 = kein Durchlauf aktiv
+    private long sweepCursor = -1L;
+    private long sweepEnd;
+    private long swept;
+
+    CommandLogRetention(Database db, Logger logger, ScheduledExecutorService executor, int retentionDays) {
+        this.db = db;
+        this.logger = logger;
+        this.executor = executor;
+        this.retentionMs = retentionDays > 0 ? TimeUnit.DAYS.toMillis(retentionDays) : 0L;
+    }
+
+    void start() {
+        // auch ohne Retention: neue Monate anlegen, und die Texte gelöschter Spieler müssen weg
+        executor.scheduleWithFixedDelay(this::run, FIRST_RUN_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        try {
+            if (db.isMySql()) {
+                maintainPartitions(db.getConnection());
+            } else {
+                maintainTables(db.getConnection());
+            }
+            startSweep();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Command log retention failed: " + e.getMessage(), e);
+        }
+    }
+
+    // -------------------------
+    // MySQL
+    // -------------------------
+
+    private void maintainPartitions(Connection con) throws SQLException {
+        List<Partition> parts = partitions(con);
+        if (parts.isEmpty()) {
+            if (!warnedUnpartitioned) {
+                logger.warning("command_logs is not partitioned, retention is disabled.");
+                warnedUnpartitioned = true;
+            }
+            return;
+        }
+
+        long newest = Long.MIN_VALUE;
+        for (Partition p : parts) {
+            if (p.upperBound() != null) newest = Math.max(newest, p.upperBound());
+        }
+
+        // neue Monate aus pmax herausteilen (pmax ist leer, solange wir vorne bleiben)
+        YearMonth next = newest == Long.MIN_VALUE
+                ? YearMonth.now(ZoneOffset.UTC)
+                : CommandLogPartitions.monthOf(newest);
+        YearMonth until = YearMonth.now(ZoneOffset.UTC).plusMonths(MONTHS_AHEAD);
+        if (!next.isAfter(until)) {
+            StringBuilder add = new StringBuilder();
+            for (YearMonth m = next; !m.isAfter(until); m = m.plusMonths(1)) {
+                add.append(CommandLogPartitions.definition(m)).append(", ");
+            }
+            add.append(CommandLogPartitions.MAX);
+            execute(con, "ALTER TABLE command_logs REORGANIZE PARTITION pmax INTO (" + add + ")");
+        }
+
+        if (retentionMs == 0L) return;
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        List<String> expired = new ArrayList<>();
+        for (Partition p : parts) {
+            if (p.upperBound() != null && p.upperBound() <= cutoff) expired.add(p.name());
+        }
+        if (!expired.isEmpty()) {
+            execute(con, "ALTER TABLE command_logs DROP PARTITION " + String.join(", ", expired));
+            logger.info("Dropped expired command log partitions: " + String.join(", ", expired));
+        }
+    }
+
+    private static List<Partition> partitions(Connection con) throws SQLException {
+        List<Partition> out = new ArrayList<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+                             "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'command_logs' " +
+                             "AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION")) {
+            while (rs.next()) {
+                String desc = rs.getString(2);
+                Long bound = desc == null || desc.equalsIgnoreCase("MAXVALUE") ? null : Long.parseLong(desc.trim());
+                out.add(new Partition(rs.getString(1), bound));
+            }
+        }
+        return out;
+    }
+
+    private static void execute(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    // -------------------------
+    // SQLite
+    // -------------------------
+
+    private void maintainTables(Connection con) throws SQLException {
+        List<YearMonth> months = CommandLogTables.list(con);
+        if (months.isEmpty()) {
+            if (!warnedNoTables) {
+                logger.warning("command_logs is not split into monthly tables, retention is disabled.");
+                warnedNoTables = true;
+            }
+            return;
+        }
+
+        YearMonth newest = months.get(months.size() - 1);
+        YearMonth until = YearMonth.now(ZoneOffset.UTC).plusMonths(MONTHS_AHEAD);
+        List<YearMonth> added = new ArrayList<>();
+        for (YearMonth m = newest.plusMonths(1); !m.isAfter(until); m = m.plusMonths(1)) added.add(m);
+
+        List<YearMonth> expired = new ArrayList<>();
+        if (retentionMs > 0L) {
+            long cutoff = System.currentTimeMillis() - retentionMs;
+            // die neueste bleibt immer, sie nimmt alles Spätere
+            for (YearMonth m : months.subList(0, months.size() - 1)) {
+                if (CommandLogPartitions.upperBound(m) <= cutoff) expired.add(m);
+            }
+        }
+        if (added.isEmpty() && expired.isEmpty()) return;
+
+        List<YearMonth> keep = new ArrayList<>(months);
+        keep.removeAll(expired);
+        keep.addAll(added);
+        con.setAutoCommit(false);
+        try {
+            for (YearMonth m : added) CommandLogTables.create(con, m);
+            CommandLogTables.rebuildView(con, keep);
+            if (!added.isEmpty()) {
+                // die bisher neueste hatte keine Obergrenze; was schon dahinter liegt (nur nach langer Pause
+                // möglich), zieht über den Trigger in seinen Monat um
+                String t = CommandLogTables.name(newest);
+                long bound = CommandLogPartitions.upperBound(newest);
+                execute(con, "INSERT INTO command_logs(id, uuid, time, command_id) " +
+                        "SELECT id, uuid, time, command_id FROM " + t + " WHERE time >= " + bound);
+                execute(con, "DELETE FROM " + t + " WHERE time >= " + bound);
+            }
+            for (YearMonth m : expired) execute(con, "DROP TABLE " + CommandLogTables.name(m));
+            con.commit();
+        } catch (SQLException e) {
+            try { con.rollback(); } catch (SQLException ignored) { }
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
+        }
+
+        if (!expired.isEmpty()) {
+            List<String> names = new ArrayList<>(expired.size());
+            for (YearMonth m : expired) names.add(CommandLogTables.name(m));
+            logger.info("Dropped expired command log tables: " + String.join(", ", names));
+        }
+    }
+
+    // -------------------------
+    // command_texts
+    // -------------------------
+
+    private void startSweep() throws SQLException {
+        if (sweepCursor >= 0) return;
+        try (Statement st = db.getConnection().createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(id) FROM command_texts")) {
+            sweepEnd = rs.next() ? rs.getLong(1) : 0L;
+        }
+        if (sweepEnd <= 0) return;
+        sweepCursor = 0L;
+        swept = 0L;
+        schedule(this::sweepStep, 0L);
+    }
+
+    private void sweepStep() {
+        Connection con = db.getConnection();
+        long to = Math.min(sweepEnd, sweepCursor + SWEEP_CHUNK);
+        String orphans = "FROM command_texts WHERE id > ? AND id <= ? " +
+                "AND NOT EXISTS (SELECT 1 FROM command_logs c WHERE c.command_id = command_texts.id)";
+        try {
+            // nur der DB-Thread schreibt, SELECT und DELETE sehen also dieselben Zeilen
+            Set<Long> ids = new HashSet<>();
+            try (PreparedStatement ps = con.prepareStatement("SELECT id " + orphans)) {
+                ps.setLong(1, sweepCursor);
+                ps.setLong(2, to);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) ids.add(rs.getLong(1));
+                }
+            }
+            if (!ids.isEmpty()) {
+                try (PreparedStatement ps = con.prepareStatement("DELETE " + orphans)) {
+                    ps.setLong(1, sweepCursor);
+                    ps.setLong(2, to);
+                    swept += ps.executeUpdate();
+                }
+                db.commandTexts().forget(ids);
+            }
+            sweepCursor = to;
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Command text cleanup failed: " + e.getMessage(), e);
+            sweepCursor = -1L;
+            return;
+        }
+
+        if (sweepCursor < sweepEnd) {
+            schedule(this::sweepStep, SWEEP_PAUSE_MS);
+            return;
+        }
+        if (swept > 0) logger.info("Removed " + swept + " unused command texts.");
+        sweepCursor = -1L;
+    }
+
+    private void schedule(Runnable task, long delayMs) {
+        try {
+            executor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Shutdown
+        }
+    }
+}
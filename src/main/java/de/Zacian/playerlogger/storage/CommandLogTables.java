@@ -0,0 +1,104 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Monatstabellen von {@code command_logs} unter SQLite, das keine Partitionen kennt.
+ *
+ * <p>Tabelle {@code command_logs_YYYYMM} enthält alles vor dem Ersten des Folgemonats (UTC, Grenzen wie
+ * {@link CommandLogPartitions}), ab der Grenze der vorherigen Tabelle. Die älteste nimmt zusätzlich alles davor,
+ * die neueste alles danach, wie {@code pmax} unter MySQL. {@code command_logs} selbst ist eine View über alle
+ * Tabellen ({@code UNION ALL}), Lesen und Löschen bleiben damit unverändert. Geschrieben wird über einen
+ * INSTEAD-OF-Trigger, der die Zeile in ihren Monat legt; die IDs kommen aus {@link #SEQUENCE}, damit sie über alle
+ * Monate eindeutig und aufsteigend bleiben. Eine explizit gesetzte ID (Backend-Migration) wird übernommen.</p>
+ *
+ * <p>Nur auf einer Verbindung aufrufen, die sonst niemand benutzt (DB-Thread bzw. Migration), und in einer
+ * Transaktion: View und Tabellen müssen zusammen wechseln.</p>
+ */
+public final class CommandLogTables {
+
+    /** Eine Zeile mit der zuletzt vergebenen ID. */
+    public static final String SEQUENCE = "command_log_seq";
+
+    private static final String PREFIX = "command_logs_";
+
+    private CommandLogTables() { }
+
+    public static String name(YearMonth month) {
+        return String.format(PREFIX + "%04d%02d", month.getYear(), month.getMonthValue());
+    }
+
+    /** Vorhandene Monatstabellen, aufsteigend. */
+    public static List<YearMonth> list(Connection con) throws SQLException {
+        List<YearMonth> out = new ArrayList<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' " +
+                     "AND name GLOB '" + PREFIX + "[0-9][0-9][0-9][0-9][0-9][0-9]' ORDER BY name")) {
+            while (rs.next()) {
+                String ym = rs.getString(1).substring(PREFIX.length());
+                out.add(YearMonth.of(Integer.parseInt(ym.substring(0, 4)), Integer.parseInt(ym.substring(4))));
+            }
+        }
+        return out;
+    }
+
+    /** Legt die Tabelle samt Indizes an (Indexnamen sind global, deshalb mit Monat). */
+    public static void create(Connection con, YearMonth month) throws SQLException {
+        String t = name(month);
+        String suffix = t.substring(PREFIX.length());
+        execute(con, "CREATE TABLE IF NOT EXISTS " + t + " (" +
+                "id INTEGER PRIMARY KEY," +
+                "uuid BLOB NOT NULL," +
+                "time INTEGER NOT NULL," +
+                "command_id INTEGER NOT NULL" +
+                ")");
+        execute(con, "CREATE INDEX IF NOT EXISTS idx_command_uuid_time_" + suffix + " ON " + t + "(uuid, time)");
+        execute(con, "CREATE INDEX IF NOT EXISTS idx_command_time_" + suffix + " ON " + t + "(time)");
+        execute(con, "CREATE INDEX IF NOT EXISTS idx_command_text_time_" + suffix + " ON " + t + "(command_id, time)");
+    }
+
+    /** Baut View und Trigger über {@code months} (aufsteigend, nicht leer) neu auf. */
+    public static void rebuildView(Connection con, List<YearMonth> months) throws SQLException {
+        // die Trigger hängen an der View und gehen mit
+        execute(con, "DROP VIEW IF EXISTS command_logs");
+
+        StringBuilder view = new StringBuilder("CREATE VIEW command_logs AS ");
+        StringBuilder insert = new StringBuilder(
+                "CREATE TRIGGER command_logs_insert INSTEAD OF INSERT ON command_logs BEGIN " +
+                "UPDATE " + SEQUENCE + " SET id = CASE WHEN NEW.id IS NULL THEN id + 1 " +
+                "WHEN NEW.id > id THEN NEW.id ELSE id END; ");
+        StringBuilder delete = new StringBuilder(
+                "CREATE TRIGGER command_logs_delete INSTEAD OF DELETE ON command_logs BEGIN ");
+        for (int i = 0; i < months.size(); i++) {
+            String t = name(months.get(i));
+            if (i > 0) view.append(" UNION ALL ");
+            view.append("SELECT id, uuid, time, command_id FROM ").append(t);
+
+            List<String> range = new ArrayList<>(2);
+            if (i > 0) range.add("NEW.time >= " + CommandLogPartitions.upperBound(months.get(i - 1)));
+            if (i < months.size() - 1) range.add("NEW.time < " + CommandLogPartitions.upperBound(months.get(i)));
+            insert.append("INSERT INTO ").append(t).append("(id, uuid, time, command_id) ")
+                    .append("SELECT COALESCE(NEW.id, (SELECT id FROM ").append(SEQUENCE).append(")), ")
+                    .append("NEW.uuid, NEW.time, NEW.command_id");
+            if (!range.isEmpty()) insert.append(" WHERE ").append(String.join(" AND ", range));
+            insert.append("; ");
+
+            delete.append("DELETE FROM ").append(t).append(" WHERE id = OLD.id; ");
+        }
+        execute(con, view.toString());
+        execute(con, insert.append("END").toString());
+        execute(con, delete.append("END").toString());
+    }
+
+    private static void execute(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(sql);
+        }
+    }
+}
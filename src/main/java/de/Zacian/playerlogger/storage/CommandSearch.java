@@ -0,0 +1,186 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Volltextsuche für {@code /plog search}. Zuerst liefert der Volltextindex die passenden Command-Texte nach
+ * Relevanz (höchstens {@link #MAX_TEXTS}, und nur solche, die im Zeitraum überhaupt ausgeführt wurden), danach
+ * werden deren Ausführungen Text für Text über {@code idx_command_text_time} gelesen, jeweils neueste zuerst.
+ * Passen mehr Texte, sagt {@link Page#truncated()} das dem Aufrufer.
+ *
+ * <p>Geblättert wird wie in {@link CommandHistory} per Keyset, hier auf {@code (Text-Rang, time, id)}.
+ * Die Trefferliste und die Seitenenden werden pro Betrachter gemerkt.</p>
+ */
+public final class CommandSearch {
+
+    static final int MAX_TEXTS = 200;
+
+    public record Hit(long id, long time, String player, String command) { }
+
+    /** @param truncated mehr als {@link #MAX_TEXTS} Texte passen, die weniger relevanten fehlen */
+    public record Page(int number, List<Hit> hits, boolean more, boolean truncated) { }
+
+    private record Text(long id, String text) { }
+
+    // text = Index in Query.texts
+    private record Cursor(int text, long time, long id) { }
+
+    private record Row(Cursor at, Hit hit) { }
+
+    private static final Cursor START = new Cursor(0, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private static final class Query {
+        final String match;
+        final long window;
+        final int size;
+        final long since;
+        final List<Text> texts;
+        final boolean truncated;
+        final List<Cursor> ends = new ArrayList<>();
+
+        Query(String match, long window, int size, long since, List<Text> texts) {
+            this.match = match;
+            this.window = window;
+            this.size = size;
+            this.since = since;
+            this.truncated = texts.size() > MAX_TEXTS;
+            this.texts = truncated ? texts.subList(0, MAX_TEXTS) : texts;
+        }
+
+        boolean matches(String match, long window, int size) {
+            return this.match.equals(match) && this.window == window && this.size == size;
+        }
+    }
+
+    private final Database db;
+    private final Map<String, Query> queries = new ConcurrentHashMap<>();
+
+    CommandSearch(Database db) {
+        this.db = db;
+    }
+
+    /**
+     * Macht aus der Eingabe einen Suchausdruck: jedes Wort muss vorkommen, als Präfix.
+     * Sonderzeichen fallen weg, damit nichts als FTS- bzw. Boolean-Mode-Syntax interpretiert wird.
+     * @return {@code null}, wenn kein Wort übrig bleibt
+     */
+    public static String expression(String input, boolean mySql) {
+        StringBuilder sb = new StringBuilder();
+        for (String token : input.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            if (mySql) {
+                sb.append('+').append(token).append('*');
+            } else {
+                sb.append('"').append(token).append("\"*");
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    /**
+     * Seite {@code page} (ab 1) der Treffer für {@code input}. {@code window} ist die Zeitspanne rückwärts ab der
+     * ersten Abfrage, 0 = alles. Seite 1 sucht neu. Läuft auf einer Verbindung aus {@link Database#runRead}.
+     */
+    public Page page(Connection con, String viewer, String input, long window, int page, int size) throws SQLException {
+        String match = expression(input, db.isMySql());
+        if (match == null) return new Page(1, List.of(), false, false);
+
+        page = Math.max(1, page);
+        Query q = queries.get(viewer);
+        if (page == 1 || q == null || !q.matches(match, window, size)) {
+            long since = window > 0 ? System.currentTimeMillis() - window : 0L;
+            q = new Query(match, window, size, since, texts(con, match, since));
+            queries.put(viewer, q);
+        }
+
+        synchronized (q) {
+            while (q.ends.size() < page - 1) {
+                Cursor from = q.ends.isEmpty() ? START : q.ends.get(q.ends.size() - 1);
+                List<Row> skipped = fetch(con, q, from, size);
+                if (skipped.isEmpty()) {
+                    page = Math.max(1, q.ends.size());
+                    break;
+                }
+                q.ends.add(skipped.get(skipped.size() - 1).at());
+                if (skipped.size() < size) {
+                    page = q.ends.size();
+                    break;
+                }
+            }
+
+            Cursor from = page == 1 ? START : q.ends.get(page - 2);
+            List<Row> rows = fetch(con, q, from, size + 1);
+            boolean more = rows.size() > size;
+            if (more) rows = rows.subList(0, size);
+            if (!rows.isEmpty() && q.ends.size() == page - 1) {
+                q.ends.add(rows.get(rows.size() - 1).at());
+            }
+
+            List<Hit> hits = new ArrayList<>(rows.size());
+            for (Row r : rows) hits.add(r.hit());
+            return new Page(page, List.copyOf(hits), more, q.truncated);
+        }
+    }
+
+    /** Vergisst die Suche eines Betrachters, z. B. beim Quit. */
+    public void forget(String viewer) {
+        queries.remove(viewer);
+    }
+
+    /** Bis zu {@code limit} Treffer ab {@code from}: Rest des aktuellen Texts, dann die folgenden Texte. */
+    private List<Row> fetch(Connection con, Query q, Cursor from, int limit) throws SQLException {
+        List<Row> out = new ArrayList<>(limit);
+        int t = from.text();
+        long time = from.time();
+        long id = from.id();
+        while (out.size() < limit && t < q.texts.size()) {
+            Text text = q.texts.get(t);
+            PreparedStatement ps = db.statement(con, Sql.SELECT_COMMANDS_BY_TEXT);
+            ps.setLong(1, text.id());
+            ps.setLong(2, q.since);
+            ps.setLong(3, time);
+            ps.setLong(4, time);
+            ps.setLong(5, id);
+            ps.setInt(6, limit - out.size());
+            ps.setFetchSize(limit - out.size());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long rowId = rs.getLong(1);
+                    long rowTime = rs.getLong(2);
+                    out.add(new Row(new Cursor(t, rowTime, rowId), new Hit(rowId, rowTime, rs.getString(3), text.text())));
+                }
+            }
+            // nächster Text von vorne
+            t++;
+            time = Long.MAX_VALUE;
+            id = Long.MAX_VALUE;
+        }
+        return out;
+    }
+
+    /** Bis zu {@link #MAX_TEXTS} + 1 Texte, der letzte zeigt nur an, dass abgeschnitten wurde. */
+    private List<Text> texts(Connection con, String match, long since) throws SQLException {
+        PreparedStatement ps = db.statement(con, Sql.SEARCH_COMMAND_TEXTS);
+        int i = 1;
+        ps.setString(i++, match);
+        ps.setLong(i++, since);
+        if (db.isMySql()) ps.setString(i++, match);
+        ps.setInt(i, MAX_TEXTS + 1);
+
+        List<Text> out = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                out.add(new Text(rs.getLong(1), rs.getString(2)));
+            }
+        }
+        return out;
+    }
+}
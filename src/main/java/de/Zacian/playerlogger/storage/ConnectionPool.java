@@ -0,0 +1,125 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Kleiner, begrenzter Pool für die Lese-Verbindungen.
+ * Verbindungen werden erst bei Bedarf geöffnet und beim Ausleihen optional validiert.
+ */
+final class ConnectionPool {
+
+    @FunctionalInterface
+    interface Opener {
+        Connection open() throws SQLException;
+    }
+
+    private final Opener opener;
+    private final Consumer<Connection> onDiscard;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final int validationTimeoutS;
+
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private volatile boolean closed;
+
+    ConnectionPool(Opener opener, Consumer<Connection> onDiscard, int maxSize, long acquireTimeoutMs, int validationTimeoutS) {
+        this.opener = opener;
+        this.onDiscard = onDiscard;
+        this.maxSize = Math.max(1, maxSize);
+        this.acquireTimeoutMs = Math.max(0L, acquireTimeoutMs);
+        this.validationTimeoutS = Math.max(0, validationTimeoutS);
+    }
+
+    int maxSize() {
+        return maxSize;
+    }
+
+    Connection acquire() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        Connection con = idle.poll();
+        if (con == null) {
+            con = tryOpen();
+        }
+        if (con == null) {
+            try {
+                con = idle.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a DB connection", e);
+            }
+            if (con == null) {
+                throw new SQLException("No DB connection available after " + acquireTimeoutMs + " ms");
+            }
+        }
+
+        if (validationTimeoutS > 0 && !isValid(con)) {
+            discard(con);
+            con = tryOpen();
+            if (con == null) throw new SQLException("DB connection invalid and pool exhausted");
+        }
+        return con;
+    }
+
+    void release(Connection con) {
+        if (con == null) return;
+        if (closed) {
+            discard(con);
+            return;
+        }
+        try {
+            if (con.isClosed()) {
+                created.decrementAndGet();
+                onDiscard.accept(con);
+                return;
+            }
+        } catch (SQLException e) {
+            discard(con);
+            return;
+        }
+        idle.offer(con);
+    }
+
+    void close() {
+        closed = true;
+        Connection con;
+        while ((con = idle.poll()) != null) {
+            discard(con);
+        }
+    }
+
+    private Connection tryOpen() throws SQLException {
+        while (true) {
+            int n = created.get();
+            if (n >= maxSize) return null;
+            if (created.compareAndSet(n, n + 1)) break;
+        }
+        try {
+            return opener.open();
+        } catch (SQLException | RuntimeException e) {
+            created.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean isValid(Connection con) {
+        try {
+            return con.isValid(validationTimeoutS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(Connection con) {
+        created.decrementAndGet();
+        onDiscard.accept(con);
+        try { con.close(); } catch (SQLException ignored) { }
+    }
+}
@@ -1,207 +1,486 @@
 package de.Zacian.playerlogger.storage;
 
+import de.Zacian.playerlogger.config.PluginSettings;
+import de.Zacian.playerlogger.metrics.PluginMetrics;
+import de.Zacian.playerlogger.storage.migration.MigrationContext;
+import de.Zacian.playerlogger.storage.migration.SchemaMigrator;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.sqlite.SQLiteConfig;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.*;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 
 public final class Database {
+
+    /** Arbeit auf einer geliehenen Verbindung, siehe {@link #runRead}. */
+    @FunctionalInterface
+    public interface SqlTask {
+        void run(Connection con) throws SQLException;
+    }
+
+    /**
+     * Wartende Tasks des DB-Threads: sofort fällige, nur eingeplante (Linger, Retention, Retry)
+     * und wie lange die älteste fällige schon auf den Thread wartet.
+     */
+    public record QueueStats(int ready, int scheduled, long oldestWaitMs) { }
+
+    /** Zeilen pro Transaktion, wenn eine Migration Tabellen umkopiert. */
+    private static final int MIGRATION_CHUNK = 2000;
+
     private final JavaPlugin plugin;
-    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor executor;
+    private final EventJournal journal;
+    private final EventPipeline pipeline;
+    private final CommandDictionary commandTexts;
+    private final CommandLogBackfill commandBackfill;
+    private final CommandLogRetention commandRetention;
+    private final PlaytimeRollup playtimeRollup;
+    private final PlaytimeBackfill playtimeBackfill;
+    private final CommandHistory commandHistory;
+    private final CommandSearch commandSearch;
+    private final PlayerPurge playerPurge;
+    private final TableExport tableExport;
+    private final BackendMigration backendMigration;
     private Connection connection;
-    private String dbType;
+    private ConnectionPool readers;
+    private ThreadPoolExecutor readExecutor;
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final PluginSettings.Storage settings;
+    private final PluginMetrics metrics;
     private final AtomicBoolean shuttingDown = new AtomicBoolean(false);
 
-    public Database(JavaPlugin plugin) {
+    public Database(JavaPlugin plugin, PluginSettings.Storage settings, PluginMetrics metrics) {
         this.plugin = plugin;
-        this.executor = Executors.newSingleThreadExecutor(r -> {
+        this.settings = settings;
+        this.metrics = metrics;
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
             Thread t = new Thread(r, "PlayerLogger-DB");
             t.setDaemon(true);
             return t;
         });
+        // Linger-Timer nach shutdown() nicht mehr abwarten, shutdown() drained selbst
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.journal = openJournal();
+        this.pipeline = new EventPipeline(this, journal, plugin.getLogger(), executor,
+                settings.batchSize(), settings.batchLingerMs(),
+                settings.queueSession(), settings.queueCommands(), settings.queueBlockMs());
+        this.commandTexts = new CommandDictionary(this, settings.cacheCommandTexts());
+        this.commandBackfill = new CommandLogBackfill(this, plugin.getLogger(), executor);
+        this.commandRetention = new CommandLogRetention(this, plugin.getLogger(), executor,
+                settings.retentionCommandLogDays());
+        this.playtimeRollup = new PlaytimeRollup(this);
+        this.playtimeBackfill = new PlaytimeBackfill(this, playtimeRollup, plugin.getLogger(), executor);
+        this.commandHistory = new CommandHistory(this);
+        this.commandSearch = new CommandSearch(this);
+        this.playerPurge = new PlayerPurge(this, plugin.getLogger(), executor);
+        this.tableExport = new TableExport(this, new File(plugin.getDataFolder(), "exports"), plugin.getLogger(), executor);
+        this.backendMigration = new BackendMigration(this, plugin.getLogger());
+    }
+
+    private EventJournal openJournal() {
+        if (!settings.journalEnabled()) return EventJournal.disabled();
+        File file = new File(plugin.getDataFolder(), "events.journal");
+        file.getParentFile().mkdirs();
+        try {
+            EventJournal j = EventJournal.open(file.toPath(), settings.journalSizeMb() * 1024L * 1024L,
+                    plugin.getLogger());
+            int open = j.recoveredCount();
+            if (open > 0) {
+                plugin.getLogger().info("Event journal contains " + open + " uncommitted events, replaying after connect.");
+            }
+            return j;
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().warning("Could not open event journal, events are only buffered in memory: " + e.getMessage());
+            return EventJournal.disabled();
+        }
     }
 
+    /** Baut die Schreib-Verbindung auf, bei Fehlern mit Backoff bis {@code database.connect.attempts}. */
     public void connect() {
-        dbType = plugin.getConfig().getString("database.type", "SQLITE").toUpperCase();
-        String type = dbType;
+        int attempts = Math.max(1, settings.connectAttempts());
+        long backoff = Math.max(100L, settings.connectBackoffMs());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                connection = openWriter();
+                break;
+            } catch (SQLException e) {
+                if (attempt >= attempts) {
+                    throw new RuntimeException("DB connection failed after " + attempts + " attempts", e);
+                }
+                plugin.getLogger().warning("DB connection failed (attempt " + attempt + "/" + attempts + "), retrying in "
+                        + backoff + " ms: " + e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("DB connection interrupted", e);
+                }
+                backoff = Math.min(backoff * 2, 30_000L);
+            }
+        }
 
-        try {
-            if ("SQLITE".equals(type)) {
+        readers = new ConnectionPool(() -> openConnection(isMySql(), true), this::dropStatements,
+                settings.poolReaders(), settings.poolAcquireTimeoutMs(), settings.poolValidationTimeoutS());
 
-                File dbFile = new File(plugin.getDataFolder(),
-                        plugin.getConfig().getString("database.sqlite-file", "playerlogger.db"));
-                dbFile.getParentFile().mkdirs();
+        AtomicInteger readerId = new AtomicInteger();
+        PluginSettings.QueueLimit limit = settings.queueReads();
+        readExecutor = new ThreadPoolExecutor(readers.maxSize(), readers.maxSize(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(limit.capacity()), r -> {
+            Thread t = new Thread(r, "PlayerLogger-DB-Read-" + readerId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, readOverflow(limit.overflow()));
+    }
 
-                connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+    /** Eine Abfrage aus {@link #runRead}; kann abgelehnt werden, wenn sie aus der vollen Queue fliegt. */
+    private final class ReadTask implements Runnable {
+        private final SqlTask task;
+        private final Consumer<SQLException> onError;
 
-            } else { // MYSQL
+        ReadTask(SqlTask task, Consumer<SQLException> onError) {
+            this.task = task;
+            this.onError = onError;
+        }
 
-                String host = plugin.getConfig().getString("database.mysql.host");
-                int port = plugin.getConfig().getInt("database.mysql.port");
-                String db = plugin.getConfig().getString("database.mysql.database");
-                String user = plugin.getConfig().getString("database.mysql.user");
-                String pass = plugin.getConfig().getString("database.mysql.password");
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                withReader(task);
+            } catch (SQLException e) {
+                metrics.readsFailed().increment();
+                onError.accept(e);
+            } catch (Throwable t) {
+                metrics.readsFailed().increment();
+                plugin.getLogger().log(Level.SEVERE, "DB read failed: " + t.getMessage(), t);
+            } finally {
+                metrics.readTime().recordSince(start);
+            }
+        }
 
-                // 🔹 Hier wird die URL definiert
-                String url = "jdbc:mysql://" + host + ":" + port + "/" + db +
-                        "?useSSL=false" +
-                        "&allowPublicKeyRetrieval=true" +
-                        "&useUnicode=true" +
-                        "&characterEncoding=utf8" +
-                        "&serverTimezone=UTC";
+        void reject() {
+            metrics.shed(Priority.READ).increment();
+            onError.accept(new SQLException("Read queue is full, try again later."));
+        }
+    }
 
-                connection = DriverManager.getConnection(url, user, pass);
+    /**
+     * Was passiert, wenn die Lese-Queue voll ist. Für Abfragen gibt es nichts zusammenzufassen,
+     * {@code COALESCE} verhält sich deshalb wie {@code DROP_OLDEST}.
+     */
+    private RejectedExecutionHandler readOverflow(PluginSettings.QueueLimit.Overflow overflow) {
+        long blockMs = settings.queueBlockMs();
+        return (r, pool) -> {
+            if (pool.isShutdown()) throw new RejectedExecutionException("read executor stopped");
+            if (overflow == PluginSettings.QueueLimit.Overflow.BLOCK) {
+                try {
+                    if (pool.getQueue().offer(r, blockMs, TimeUnit.MILLISECONDS)) return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ((ReadTask) r).reject();
+                return;
             }
+            Runnable oldest = pool.getQueue().poll();
+            if (oldest instanceof ReadTask t) t.reject();
+            if (!pool.getQueue().offer(r)) ((ReadTask) r).reject();
+        };
+    }
 
-            connection.setAutoCommit(true);
+    private Connection openWriter() throws SQLException {
+        Connection con = openConnection(isMySql(), false);
+        con.setAutoCommit(true);
+        return con;
+    }
 
+    /** Ob die Schreib-Verbindung noch lebt. Nur auf dem DB-Thread. */
+    boolean writerValid() {
+        try {
+            return connection != null && connection.isValid(2);
         } catch (SQLException e) {
-            throw new RuntimeException("DB connection failed", e);
+            return false;
         }
     }
 
+    /**
+     * Baut die Schreib-Verbindung neu auf, falls sie weg ist. Nur auf dem DB-Thread.
+     * @return {@code false}, solange die DB nicht erreichbar ist
+     */
+    boolean ensureWriter() {
+        if (writerValid()) return true;
 
-    public boolean isMySql() {
-        return "MYSQL".equals(dbType);
+        if (connection != null) {
+            dropStatements(connection);
+            try { connection.close(); } catch (SQLException ignored) { }
+            connection = null;
+        }
+        // IDs aus abgebrochenen Transaktionen nicht weiterverwenden
+        commandTexts.clear();
+        try {
+            connection = openWriter();
+            plugin.getLogger().info("DB connection re-established.");
+            return true;
+        } catch (SQLException e) {
+            plugin.getLogger().warning("DB still unreachable: " + e.getMessage());
+            return false;
+        }
     }
 
-    public boolean isSqlite() {
-        return "SQLITE".equals(dbType);
+    /** Verbindung zu einem der beiden konfigurierten Backends, unabhängig von {@code database.type}. Für BackendMigration. */
+    Connection openBackend(boolean mySql, boolean readOnly) throws SQLException {
+        return openConnection(mySql, readOnly);
     }
 
-    private void tryCreateIndex(Statement st, String sql) throws SQLException {
-        try {
-            st.executeUpdate(sql);
-        } catch (SQLException e) {
-            // Index existiert schon -> ignorieren
-            // SQLite: "already exists"
-            // MySQL: "Duplicate key name"
-            String msg = e.getMessage().toLowerCase();
-            if (msg.contains("already exists") || msg.contains("duplicate") || msg.contains("exists")) {
-                return;
-            }
-            throw e;
+    private Connection openConnection(boolean mySql, boolean readOnly) throws SQLException {
+        if (!mySql) {
+            File dbFile = new File(plugin.getDataFolder(), settings.sqliteFile());
+            dbFile.getParentFile().mkdirs();
+
+            return DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath(),
+                    sqliteProfile(readOnly).toProperties());
+        }
+
+        // MYSQL
+        String host = settings.mysqlHost();
+        int port = settings.mysqlPort();
+        String db = settings.mysqlDatabase();
+        String user = settings.mysqlUser();
+        String pass = settings.mysqlPassword();
+
+        // 🔹 Hier wird die URL definiert
+        String url = "jdbc:mysql://" + host + ":" + port + "/" + db +
+                "?useSSL=false" +
+                "&allowPublicKeyRetrieval=true" +
+                "&useUnicode=true" +
+                "&characterEncoding=utf8" +
+                "&serverTimezone=UTC" +
+                "&rewriteBatchedStatements=true" +
+                "&useServerPrepStmts=true" +
+                "&cachePrepStmts=true";
+
+        Connection con = DriverManager.getConnection(url, user, pass);
+        if (readOnly) con.setReadOnly(true);
+        return con;
+    }
+
+    /**
+     * Pragmas aus {@code database.sqlite}. Der Writer schaltet WAL ein (Leser blockieren ihn nicht,
+     * mit synchronous=NORMAL kein fsync pro Commit), die read-only Leser übernehmen nur Cache/mmap/Timeout.
+     */
+    private SQLiteConfig sqliteProfile(boolean readOnly) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(readOnly);
+        if (!readOnly) {
+            config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+            config.setSynchronous(settings.sqliteSynchronous());
         }
+        config.setBusyTimeout(settings.sqliteBusyTimeoutMs());
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        // negativ = KiB statt Seiten
+        config.setCacheSize(-settings.sqliteCacheSizeMb() * 1024);
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(settings.sqliteMmapSizeMb() * 1024L * 1024L));
+        // sonst greift das ON DELETE CASCADE auf sessions nie
+        config.enforceForeignKeys(settings.sqliteForeignKeys());
+        return config;
+    }
+
+    /** Die beim Start übernommenen Einstellungen (Änderungen brauchen einen Neustart). */
+    public PluginSettings.Storage settings() {
+        return settings;
     }
 
+    public PluginMetrics metrics() {
+        return metrics;
+    }
 
+    public boolean isMySql() {
+        return settings.isMySql();
+    }
+
+    public boolean isSqlite() {
+        return settings.isSqlite();
+    }
+
+    /**
+     * Bringt das Schema per {@link SchemaMigrator} auf den aktuellen Stand. Läuft auf dem DB-Thread,
+     * alles was danach eingereiht wird (Events, Leaderboard-Load) sieht schon das neue Schema.
+     */
     public void initSchema() {
         runAsync(() -> {
-            try (Statement st = connection.createStatement()) {
+            try {
+                new SchemaMigrator().migrate(new MigrationContext(connection, isMySql(), plugin.getLogger(), MIGRATION_CHUNK));
+                // setzt den Cutoff für playtime_daily, bevor das Journal Checkpoints nachschreibt
+                playtimeBackfill.startIfNeeded();
+                replayJournal();
                 if (isMySql()) {
-                    // MySQL / MariaDB
-                    st.executeUpdate(
-                            "CREATE TABLE IF NOT EXISTS players (" +
-                                    "uuid VARCHAR(36) NOT NULL PRIMARY KEY," +
-                                    "name VARCHAR(16) NOT NULL," +
-                                    "first_seen BIGINT NOT NULL," +
-                                    "last_seen BIGINT NOT NULL," +
-                                    "online TINYINT(1) NOT NULL DEFAULT 0," +
-                                    "total_playtime_ms BIGINT NOT NULL DEFAULT 0" +
-                                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
-                    );
-
-                    st.executeUpdate(
-                            "CREATE TABLE IF NOT EXISTS sessions (" +
-                                    "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
-                                    "uuid VARCHAR(36) NOT NULL," +
-                                    "join_time BIGINT NOT NULL," +
-                                    "leave_time BIGINT NULL," +
-                                    "playtime_ms BIGINT NULL," +
-                                    "CONSTRAINT fk_sessions_players FOREIGN KEY(uuid) REFERENCES players(uuid)" +
-                                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
-                    );
-
-                    st.executeUpdate(
-                            "CREATE TABLE IF NOT EXISTS command_logs (" +
-                                    "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
-                                    "uuid VARCHAR(36) NOT NULL," +
-                                    "name VARCHAR(16) NOT NULL," +
-                                    "time BIGINT NOT NULL," +
-                                    "command TEXT NOT NULL" +
-                                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
-                    );
-
-                    tryCreateIndex(st, "CREATE INDEX idx_sessions_uuid ON sessions(uuid)");
-                    tryCreateIndex(st, "CREATE INDEX idx_sessions_leave_time ON sessions(leave_time)");
-
-                    tryCreateIndex(st, "CREATE INDEX idx_command_uuid ON command_logs(uuid)");
-                    tryCreateIndex(st, "CREATE INDEX idx_command_time ON command_logs(time)");
-                    tryCreateIndex(st, "CREATE INDEX idx_command_uuid_time ON command_logs(uuid, time)");
-
-                    tryCreateIndex(st, "CREATE INDEX idx_players_online ON players(online)");
-
-                    st.executeUpdate("UPDATE players SET online = 0");
-
-                } else {
-                    // SQLite
-                    st.executeUpdate(
-                            "CREATE TABLE IF NOT EXISTS players (" +
-                                    "uuid TEXT PRIMARY KEY," +
-                                    "name TEXT NOT NULL," +
-                                    "first_seen INTEGER NOT NULL," +
-                                    "last_seen INTEGER NOT NULL," +
-                                    "online INTEGER NOT NULL DEFAULT 0," +
-                                    "total_playtime_ms INTEGER NOT NULL DEFAULT 0" +
-                                    ")"
-                    );
-
-                    st.executeUpdate(
-                            "CREATE TABLE IF NOT EXISTS sessions (" +
-                                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                                    "uuid TEXT NOT NULL," +
-                                    "join_time INTEGER NOT NULL," +
-                                    "leave_time INTEGER," +
-                                    "playtime_ms INTEGER," +
-                                    "FOREIGN KEY(uuid) REFERENCES players(uuid) ON DELETE CASCADE" +
-                                    ")"
-                    );
-
-                    st.executeUpdate(
-                            "CREATE TABLE IF NOT EXISTS command_logs (" +
-                                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                                    "uuid TEXT NOT NULL," +
-                                    "name TEXT NOT NULL," +
-                                    "time INTEGER NOT NULL," +
-                                    "command TEXT NOT NULL" +
-                                    ")"
-                    );
-
-                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_sessions_uuid ON sessions(uuid)");
-                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_sessions_leave_time ON sessions(leave_time)");
-
-                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_command_uuid ON command_logs(uuid)");
-                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_command_time ON command_logs(time)");
-                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_command_uuid_time ON command_logs(uuid, time)");
-
-                    st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_players_online ON players(online)");
-
+                    try (Statement st = connection.createStatement()) {
+                        st.executeUpdate("UPDATE players SET online = 0");
+                    }
                 }
+                commandBackfill.startIfNeeded();
+                commandRetention.start();
+                playerPurge.startIfNeeded();
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
         });
     }
 
+    /** Lädt die Marken aus {@code journal_state} und spielt die noch nicht committeten Events ein. */
+    private void replayJournal() throws SQLException {
+        if (!journal.enabled()) return;
+
+        long sessionMark = 0L;
+        long commandMark = 0L;
+        PreparedStatement ps = statement(Sql.SELECT_JOURNAL_STATE);
+        ps.setBytes(1, Uuids.toBytes(journal.id()));
+        try (ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                sessionMark = rs.getLong(1);
+                commandMark = rs.getLong(2);
+            }
+        }
+        pipeline.replay(journal.takeRecovered(), sessionMark, commandMark);
+    }
+
+    /** Schreib-Verbindung. Nur auf dem DB-Thread ({@link #runAsync}/{@link #runSync}) benutzen. */
     public Connection getConnection() {
         return connection;
     }
 
+    /**
+     * Gecachtes Statement der Schreib-Verbindung. Nur auf dem DB-Thread benutzen
+     * und nicht schließen, nur die ResultSets.
+     */
+    public PreparedStatement statement(Sql key) throws SQLException {
+        return statement(connection, key);
+    }
+
+    /** Gecachtes Statement für eine beliebige Verbindung, z. B. die aus {@link #runRead}. Nicht schließen. */
+    public PreparedStatement statement(Connection con, Sql key) throws SQLException {
+        return statementCaches.computeIfAbsent(con, c -> new StatementCache(c, isMySql(), metrics)).get(key);
+    }
+
+    /**
+     * {@code executeUpdate} für DELETEs, die unter SQLite auch {@code command_logs} treffen: Dort läuft das Löschen
+     * über die INSTEAD-OF-Trigger der View ({@link CommandLogTables}), und die zählt SQLite nicht mit. Deshalb die
+     * Differenz von {@code total_changes()}, die Trigger einschließt.
+     */
+    int executeDelete(PreparedStatement ps) throws SQLException {
+        if (isMySql()) return ps.executeUpdate();
+        PreparedStatement changes = statement(ps.getConnection(), Sql.SELECT_TOTAL_CHANGES);
+        long before = totalChanges(changes);
+        ps.executeUpdate();
+        return (int) (totalChanges(changes) - before);
+    }
+
+    private static long totalChanges(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /** Tagesweise Spielzeit für {@code /plog top day|week|month}. */
+    public PlaytimeRollup playtimeRollup() {
+        return playtimeRollup;
+    }
+
+    /** Seitenweise Command-Historie für {@code /plog commands}. */
+    public CommandHistory commandHistory() {
+        return commandHistory;
+    }
+
+    /** Volltextsuche für {@code /plog search}. */
+    public CommandSearch commandSearch() {
+        return commandSearch;
+    }
+
+    /** Löschen von Spielerdaten in kleinen Schritten. */
+    public PlayerPurge playerPurge() {
+        return playerPurge;
+    }
+
+    /** Export (und Archivierung) von sessions/command_logs nach {@code exports/}. */
+    public TableExport tableExport() {
+        return tableExport;
+    }
+
+    /** Kopiert alle Daten ins jeweils andere Backend ({@code /plog migrate}). */
+    public BackendMigration backendMigration() {
+        return backendMigration;
+    }
+
+    /** Text -> ID für command_logs. Nur auf dem DB-Thread. */
+    CommandDictionary commandTexts() {
+        return commandTexts;
+    }
+
+    /** Verwirft die gecachten Statements einer Verbindung (nach Fehlern, Reconnect oder Close). */
+    void dropStatements(Connection con) {
+        StatementCache cache = statementCaches.remove(con);
+        if (cache != null) cache.clear();
+    }
+
+    /**
+     * Führt eine Leseabfrage auf einer Verbindung aus dem Lese-Pool aus,
+     * parallel zum DB-Thread. SQL-Fehler (auch Timeouts beim Ausleihen) gehen an onError.
+     */
+    public void runRead(SqlTask task, Consumer<SQLException> onError) {
+        if (shuttingDown.get()) {
+            plugin.getLogger().warning("DB read rejected: shutdown in progress.");
+            return;
+        }
+        try {
+            readExecutor.execute(new ReadTask(task, onError));
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("DB read rejected: executor already stopped.");
+        }
+    }
+
+    /** Synchrone Variante von {@link #runRead} für Threads, die ohnehin warten dürfen. */
+    public void withReader(SqlTask task) throws SQLException {
+        Connection con = readers.acquire();
+        try {
+            task.run(con);
+        } finally {
+            readers.release(con);
+        }
+    }
+
+    /**
+     * Wird auf dem DB-Thread aufgerufen, sobald der Upsert eines Joins committet ist (Spieler ohne Cache-Zeile),
+     * z. B. um die echte players-Zeile nachzuladen.
+     */
+    public void onInserted(Consumer<LogEvent.Join> listener) {
+        pipeline.onInserted(listener);
+    }
+
+    /** Legt ein Event in die Batch-Pipeline. Darf von jedem Thread aufgerufen werden. */
+    public void submit(LogEvent event) {
+        if (shuttingDown.get()) {
+            plugin.getLogger().warning("DB event rejected: shutdown in progress.");
+            return;
+        }
+        try {
+            pipeline.submit(event);
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("DB event rejected: executor already stopped.");
+        }
+    }
+
     public void runAsync(Runnable task) {
         if (shuttingDown.get()) {
             plugin.getLogger().warning("DB task rejected: shutdown in progress.");
             return;
         }
-        executor.submit(() -> {
-            try {
-                task.run();
-            } catch (Throwable t) {
-                plugin.getLogger().severe("DB task failed: " + t.getMessage());
-                t.printStackTrace();
-            }
-        });
+        executor.submit(timed(task));
     }
 
     public void runSync(Runnable task) {
@@ -209,14 +488,7 @@ public final class Database {
             plugin.getLogger().warning("DB sync task rejected: shutdown in progress.");
             return;
         }
-        Future<?> f = executor.submit(() -> {
-            try {
-                task.run();
-            } catch (Throwable t) {
-                plugin.getLogger().severe("DB task failed: " + t.getMessage());
-                t.printStackTrace();
-            }
-        });
+        Future<?> f = executor.submit(timed(task));
         try {
             f.get();
         } catch (InterruptedException e) {
@@ -226,9 +498,57 @@ public final class Database {
         }
     }
 
+    /** Misst Wartezeit und Laufzeit eines Tasks auf dem DB-Thread; Fehler landen im Log statt im Future. */
+    private Runnable timed(Runnable task) {
+        long queued = System.nanoTime();
+        return () -> {
+            long start = System.nanoTime();
+            metrics.taskWait().record(start - queued);
+            try {
+                task.run();
+            } catch (Throwable t) {
+                metrics.tasksFailed().increment();
+                plugin.getLogger().log(Level.SEVERE, "DB task failed: " + t.getMessage(), t);
+            } finally {
+                metrics.taskTime().recordSince(start);
+            }
+        };
+    }
+
+    // -------------------------
+    // Gauges für /plog metrics und JMX (von jedem Thread)
+    // -------------------------
+
+    public QueueStats writerQueue() {
+        int ready = 0;
+        int scheduled = 0;
+        long oldest = 0L;
+        // Iterator der DelayedWorkQueue ist eine Kopie, blockiert den DB-Thread also nur kurz
+        for (Runnable r : executor.getQueue()) {
+            if (!(r instanceof Delayed d)) continue;
+            long delay = d.getDelay(TimeUnit.MILLISECONDS);
+            if (delay <= 0L) {
+                ready++;
+                oldest = Math.max(oldest, -delay);
+            } else {
+                scheduled++;
+            }
+        }
+        return new QueueStats(ready, scheduled, oldest);
+    }
+
+    /** Events in der Pipeline, die noch nicht committet sind (inklusive Retry). */
+    public int pendingEvents() {
+        return pipeline.pending();
+    }
+
+    public int readQueueDepth() {
+        return readExecutor != null ? readExecutor.getQueue().size() : 0;
+    }
+
     public void flush() {
         if (shuttingDown.get()) return;
-        Future<?> f = executor.submit(() -> { });
+        Future<?> f = executor.submit(pipeline::drainNow);
         try {
             f.get();
         } catch (InterruptedException e) {
@@ -240,6 +560,10 @@ public final class Database {
 
     public void shutdown() {
         shuttingDown.set(true);
+        backendMigration.cancel();
+        if (readExecutor != null) readExecutor.shutdown();
+        // alles, was noch in der Pipeline liegt, vor dem Schließen schreiben
+        executor.execute(pipeline::drainNow);
         executor.shutdown();
         try {
             if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
@@ -247,8 +571,18 @@ public final class Database {
             }
         } catch (InterruptedException ignored) { }
 
+        try {
+            if (readExecutor != null && !readExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("DB readers still busy, closing anyway.");
+            }
+        } catch (InterruptedException ignored) { }
+        if (readers != null) readers.close();
+
         if (connection != null) {
+            dropStatements(connection);
             try { connection.close(); } catch (SQLException ignored) { }
         }
+        // was nicht geschrieben werden konnte, bleibt für den nächsten Start im Journal
+        journal.close();
     }
 }
@@ -0,0 +1,342 @@
+package de.Zacian.playerlogger.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only Journal der {@link LogEvent}s als memory-mapped Datei im Plugin-Ordner.
+ *
+ * <p>Jedes Event bekommt beim Einreihen eine fortlaufende Sequenznummer und landet sofort in der Datei
+ * (sequenzielles Schreiben in den Page-Cache, kein fsync). Nach dem Commit meldet die {@link EventPipeline}
+ * die höchste geschriebene Nummer zurück; sind alle Einträge bestätigt, fängt die Datei wieder vorne an.
+ * Nach einem Absturz oder während die DB weg ist, liegen die offenen Events hier und werden beim Start
+ * wieder eingespielt. Die DB merkt sich in {@code journal_state} pro Journal die letzte Nummer
+ * (in derselben Transaktion wie die Events), doppelt eingespielt wird also nichts.</p>
+ *
+ * <p>Aufbau: Header (Magic, Version, Journal-ID, bestätigte Sequenz), danach Records
+ * {@code [len][crc32][seq][payload]}; ein {@code len} von 0 markiert das Ende.</p>
+ */
+final class EventJournal {
+
+    private static final int MAGIC = 0x504C4A31; // "PLJ1"
+    private static final int VERSION = 4;
+    private static final int HEADER = 32;
+    private static final int OFF_COMMITTED = 24;
+    private static final int RECORD_HEADER = 16;
+
+    /** Event mit seiner Sequenznummer (0 = nicht journalt). */
+    record Entry(long seq, LogEvent event) { }
+
+    private static final EventJournal DISABLED = new EventJournal();
+
+    private final Logger logger;
+    private final FileChannel channel;
+    private final MappedByteBuffer buf;
+    private final UUID id;
+
+    private long nextSeq = 1;
+    private long committedSeq;
+    private int pos = HEADER;
+    // {seq, Startposition} der noch nicht bestätigten Records, aufsteigend
+    private final ArrayDeque<long[]> unacked = new ArrayDeque<>();
+    private List<Entry> recovered = List.of();
+    private boolean warnedFull;
+
+    private EventJournal() {
+        this.logger = null;
+        this.channel = null;
+        this.buf = null;
+        this.id = null;
+    }
+
+    private EventJournal(Logger logger, FileChannel channel, MappedByteBuffer buf) {
+        this.logger = logger;
+        this.channel = channel;
+        this.buf = buf;
+
+        if (buf.getInt(0) == MAGIC && buf.getInt(4) == VERSION) {
+            this.id = new UUID(buf.getLong(8), buf.getLong(16));
+            this.committedSeq = buf.getLong(OFF_COMMITTED);
+            scan();
+        } else {
+            this.id = UUID.randomUUID();
+            buf.putInt(0, MAGIC);
+            buf.putInt(4, VERSION);
+            buf.putLong(8, id.getMostSignificantBits());
+            buf.putLong(16, id.getLeastSignificantBits());
+            buf.putLong(OFF_COMMITTED, 0L);
+            buf.putInt(HEADER, 0);
+        }
+    }
+
+    static EventJournal disabled() {
+        return DISABLED;
+    }
+
+    static EventJournal open(Path file, long sizeBytes, Logger logger) throws IOException {
+        FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // eine größere Datei aus einem früheren Lauf nicht abschneiden
+            long size = Math.max(Math.max(sizeBytes, HEADER + 4096), ch.size());
+            return new EventJournal(logger, ch, ch.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    boolean enabled() {
+        return buf != null;
+    }
+
+    /** Kennung dieses Journals in {@code journal_state}. */
+    UUID id() {
+        return id;
+    }
+
+    synchronized int recoveredCount() {
+        return recovered.size();
+    }
+
+    /** Beim Öffnen gefundene, offene Events in Schreibreihenfolge. Nur einmal abholbar. */
+    synchronized List<Entry> takeRecovered() {
+        List<Entry> r = recovered;
+        recovered = List.of();
+        return r;
+    }
+
+    /**
+     * Hängt das Event an. Liefert die Sequenznummer oder 0, wenn es nicht journalt wurde
+     * (Journal aus oder voll, dann wird nur noch im Speicher gepuffert).
+     */
+    synchronized long append(LogEvent event) {
+        if (buf == null) return 0L;
+
+        byte[] payload = encode(event);
+        int need = RECORD_HEADER + payload.length + 4; // + Endmarke
+        if (pos + need > buf.capacity()) {
+            compact();
+            if (pos + need > buf.capacity()) {
+                if (!warnedFull) {
+                    logger.warning("Event journal is full, new events are only kept in memory until the database catches up.");
+                    warnedFull = true;
+                }
+                return 0L;
+            }
+        }
+
+        long seq = nextSeq++;
+        int p = pos;
+        buf.putInt(p + RECORD_HEADER + payload.length, 0);
+        buf.putLong(p + 8, seq);
+        buf.put(p + RECORD_HEADER, payload);
+        buf.putInt(p + 4, crc(p, payload.length));
+        // Länge zuletzt: ein halb geschriebener Record ist beim Einlesen unsichtbar
+        buf.putInt(p, payload.length);
+
+        unacked.addLast(new long[]{seq, p});
+        pos = p + RECORD_HEADER + payload.length;
+        warnedFull = false;
+        return seq;
+    }
+
+    /** Alles bis einschließlich {@code seq} ist committet. */
+    synchronized void committed(long seq) {
+        if (buf == null || seq <= committedSeq) return;
+        committedSeq = seq;
+        buf.putLong(OFF_COMMITTED, seq);
+        while (!unacked.isEmpty() && unacked.peekFirst()[0] <= seq) {
+            unacked.pollFirst();
+        }
+        if (unacked.isEmpty()) {
+            pos = HEADER;
+            buf.putInt(HEADER, 0);
+        }
+    }
+
+    synchronized void close() {
+        if (buf == null) return;
+        buf.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warning("Could not close event journal: " + e.getMessage());
+        }
+    }
+
+    // -------------------------
+    // intern
+    // -------------------------
+
+    /** Schiebt die offenen Records an den Dateianfang. */
+    private void compact() {
+        if (unacked.isEmpty()) {
+            pos = HEADER;
+            buf.putInt(HEADER, 0);
+            return;
+        }
+        int from = (int) unacked.peekFirst()[1];
+        if (from == HEADER) return;
+
+        int len = pos - from;
+        byte[] tail = new byte[len];
+        buf.get(from, tail);
+        buf.put(HEADER, tail);
+        int shift = from - HEADER;
+        for (long[] u : unacked) u[1] -= shift;
+        pos -= shift;
+        buf.putInt(pos, 0);
+    }
+
+    private void scan() {
+        List<Entry> found = new ArrayList<>();
+        long lastSeq = committedSeq;
+        long prevSeq = Long.MIN_VALUE;
+        int p = HEADER;
+        int cap = buf.capacity();
+
+        while (p + RECORD_HEADER <= cap) {
+            int len = buf.getInt(p);
+            if (len <= 0 || p + RECORD_HEADER + len > cap) break;
+            long seq = buf.getLong(p + 8);
+            // alte Reste hinter einem Neuanfang haben kleinere Nummern
+            if (seq <= prevSeq || buf.getInt(p + 4) != crc(p, len)) break;
+            prevSeq = seq;
+
+            if (seq > committedSeq) {
+                byte[] payload = new byte[len];
+                buf.get(p + RECORD_HEADER, payload);
+                try {
+                    found.add(new Entry(seq, decode(payload)));
+                    unacked.addLast(new long[]{seq, p});
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.warning("Skipping unreadable journal record " + seq + ": " + e.getMessage());
+                }
+            }
+            lastSeq = Math.max(lastSeq, seq);
+            p += RECORD_HEADER + len;
+        }
+
+        if (found.isEmpty()) {
+            pos = HEADER;
+        } else {
+            pos = p;
+        }
+        if (pos + 4 <= cap) buf.putInt(pos, 0);
+        nextSeq = lastSeq + 1;
+        recovered = found;
+    }
+
+    private int crc(int p, int len) {
+        CRC32 c = new CRC32();
+        ByteBuffer d = buf.duplicate();
+        d.limit(p + RECORD_HEADER + len).position(p + 8);
+        c.update(d);
+        return (int) c.getValue();
+    }
+
+    private static byte[] encode(LogEvent event) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            if (event instanceof LogEvent.Join j) {
+                out.writeByte(1);
+                writeUuid(out, j.uuid());
+                out.writeUTF(j.name());
+                out.writeLong(j.time());
+                out.writeBoolean(j.upsert());
+            } else if (event instanceof LogEvent.Quit q) {
+                out.writeByte(2);
+                writeUuid(out, q.uuid());
+                out.writeUTF(q.name());
+                out.writeLong(q.time());
+                out.writeLong(q.sessionMs());
+                // Start und (falls schon bekannt) ID, damit ein Replay die Session wiederfindet
+                out.writeBoolean(q.session() != null);
+                if (q.session() != null) {
+                    out.writeLong(q.session().startMs());
+                    out.writeLong(q.session().id());
+                }
+            } else if (event instanceof LogEvent.PlayerUpdate u) {
+                out.writeByte(3);
+                writeUuid(out, u.uuid());
+                out.writeUTF(u.name());
+                out.writeLong(u.lastSeen());
+                out.writeBoolean(u.online());
+            } else if (event instanceof LogEvent.Command c) {
+                out.writeByte(4);
+                writeUuid(out, c.uuid());
+                out.writeLong(c.time());
+                out.writeUTF(c.command());
+            } else if (event instanceof LogEvent.Checkpoint c) {
+                out.writeByte(5);
+                out.writeLong(c.time());
+                out.writeInt(c.sessions().size());
+                for (LogEvent.Checkpoint.Progress p : c.sessions()) {
+                    writeUuid(out, p.uuid());
+                    out.writeLong(p.session().startMs());
+                    out.writeLong(p.session().id());
+                    out.writeLong(p.sessionMs());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    private static LogEvent decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int type = in.readByte();
+        if (type == 5) {
+            long time = in.readLong();
+            int n = in.readInt();
+            List<LogEvent.Checkpoint.Progress> sessions = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                OpenSession session = new OpenSession(in.readLong(), in.readLong());
+                sessions.add(new LogEvent.Checkpoint.Progress(uuid, session, in.readLong()));
+            }
+            return new LogEvent.Checkpoint(time, sessions);
+        }
+
+        UUID uuid = new UUID(in.readLong(), in.readLong());
+        return switch (type) {
+            case 1 -> {
+                String name = in.readUTF();
+                long time = in.readLong();
+                yield new LogEvent.Join(uuid, name, time, in.readBoolean(), new OpenSession(time));
+            }
+            case 2 -> {
+                String name = in.readUTF();
+                long time = in.readLong();
+                long sessionMs = in.readLong();
+                OpenSession session = in.readBoolean() ? new OpenSession(in.readLong(), in.readLong()) : null;
+                yield new LogEvent.Quit(uuid, name, time, sessionMs, session);
+            }
+            case 3 -> new LogEvent.PlayerUpdate(uuid, in.readUTF(), in.readLong(), in.readBoolean());
+            case 4 -> new LogEvent.Command(uuid, in.readLong(), in.readUTF());
+            default -> throw new IllegalArgumentException("unknown event type " + type);
+        };
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+}
@@ -0,0 +1,650 @@
+package de.Zacian.playerlogger.storage;
+
+import de.Zacian.playerlogger.config.PluginSettings.QueueLimit;
+import de.Zacian.playerlogger.metrics.PluginMetrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sammelt Join/Quit/Command-Events und schreibt sie als JDBC-Batches, eine Transaktion pro Batch.
+ * Es gibt genau einen Konsumenten: {@link #drain()} läuft immer auf dem DB-Thread.
+ * Geflusht wird, sobald ein Batch voll ist oder die Linger-Zeit des ältesten Events abgelaufen ist.
+ *
+ * <p>Session-Events (Join, Quit, Updates, Checkpoints) und Command-Logs stehen in zwei begrenzten
+ * Warteschlangen ({@link Priority}). Ein Batch nimmt zuerst Session-Events und füllt mit Commands auf;
+ * nach einem Batch mit Commands kommen erst andere Tasks des DB-Threads dran. Ist eine Warteschlange voll,
+ * entscheidet ihr {@link QueueLimit.Overflow}; alles Verworfene wird in {@link PluginMetrics} gezählt.</p>
+ *
+ * <p>Jedes Event steht vorher im {@link EventJournal}. Scheitert ein Batch, weil die DB weg ist,
+ * bleibt er vorne in der Warteschlange und wird mit Backoff erneut versucht (nach einem Reconnect).
+ * Erst ein Batch, der auch bei funktionierender Verbindung mehrfach scheitert, wird verworfen.
+ * Weil Commands überholt werden, führt {@code journal_state} eine Marke pro Warteschlange.</p>
+ */
+final class EventPipeline {
+
+    private static final long RETRY_MIN_MS = 1000L;
+    private static final long RETRY_MAX_MS = 30_000L;
+    /** So oft darf ein Batch bei gültiger Verbindung scheitern, bevor er verworfen wird. */
+    private static final int MAX_ATTEMPTS = 3;
+
+    private record CommandKey(UUID uuid, String command) { }
+
+    /** Begrenzte FIFO einer Prioritätsklasse. Nur unter {@code lock} benutzen, bis auf {@link #mark}. */
+    private static final class Lane {
+        final Priority priority;
+        final int capacity;
+        final QueueLimit.Overflow overflow;
+        final ArrayDeque<EventJournal.Entry> entries = new ArrayDeque<>();
+        // nur bei COALESCE: wartende Commands pro (Spieler, Text)
+        final Map<CommandKey, Integer> commands;
+        // nur DB-Thread: höchste committete Journal-Nummer dieser Klasse
+        long mark;
+
+        Lane(Priority priority, QueueLimit limit) {
+            this.priority = priority;
+            this.capacity = limit.capacity();
+            this.overflow = limit.overflow();
+            this.commands = overflow == QueueLimit.Overflow.COALESCE ? new HashMap<>() : null;
+        }
+
+        boolean full() {
+            return entries.size() >= capacity;
+        }
+
+        void addLast(EventJournal.Entry e) {
+            entries.addLast(e);
+            track(e, 1);
+        }
+
+        void addFirst(EventJournal.Entry e) {
+            entries.addFirst(e);
+            track(e, 1);
+        }
+
+        EventJournal.Entry pollFirst() {
+            EventJournal.Entry e = entries.pollFirst();
+            if (e != null) track(e, -1);
+            return e;
+        }
+
+        boolean isDuplicate(LogEvent event) {
+            return commands != null && event instanceof LogEvent.Command c
+                    && commands.containsKey(new CommandKey(c.uuid(), c.command()));
+        }
+
+        /** Kleinste Journal-Nummer, die hier noch wartet (0 = keine). */
+        long firstSeq() {
+            for (EventJournal.Entry e : entries) {
+                if (e.seq() != 0L) return e.seq();
+            }
+            return 0L;
+        }
+
+        private void track(EventJournal.Entry e, int delta) {
+            if (commands == null || !(e.event() instanceof LogEvent.Command c)) return;
+            commands.merge(new CommandKey(c.uuid(), c.command()), delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private final Database db;
+    private final EventJournal journal;
+    private final Logger logger;
+    private final PluginMetrics metrics;
+    private final ScheduledExecutorService executor;
+    private final int batchSize;
+    private final long lingerMs;
+    private final long blockNanos;
+
+    private final Object lock = new Object();
+    private final Lane session;
+    private final Lane commands;
+    private int size;      // unter lock: Events in beiden Lanes
+    private long lastSeq;  // unter lock: zuletzt vergebene Journal-Nummer
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+    private volatile Consumer<LogEvent.Join> onInserted = j -> { };
+
+    // nur DB-Thread
+    private int failures;
+    private int attempts;
+    private long backoffUntil;
+
+    EventPipeline(Database db, EventJournal journal, Logger logger, ScheduledExecutorService executor,
+                  int batchSize, long lingerMs, QueueLimit sessionLimit, QueueLimit commandLimit, long blockMs) {
+        this.db = db;
+        this.journal = journal;
+        this.logger = logger;
+        this.metrics = db.metrics();
+        this.executor = executor;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerMs = Math.max(0L, lingerMs);
+        this.blockNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, blockMs));
+        this.session = new Lane(Priority.SESSION, sessionLimit);
+        this.commands = new Lane(Priority.COMMAND, commandLimit);
+    }
+
+    /** Wird auf dem DB-Thread nach dem Commit jedes Joins mit Upsert aufgerufen. */
+    void onInserted(Consumer<LogEvent.Join> listener) {
+        this.onInserted = listener;
+    }
+
+    void submit(LogEvent event) {
+        Lane lane = event instanceof LogEvent.Command ? commands : session;
+        int n;
+        // Journal- und Lane-Reihenfolge müssen übereinstimmen, sonst würde committed() eine Lücke überspringen
+        synchronized (lock) {
+            if (!admit(lane, event)) return;
+            long seq = journal.append(event);
+            if (seq != 0L) lastSeq = seq;
+            lane.addLast(new EventJournal.Entry(seq, event));
+            n = ++size;
+        }
+        if (n == 1) {
+            // erstes Event nach einem leeren Drain -> Linger-Timer starten
+            executor.schedule(this::drain, lingerMs, TimeUnit.MILLISECONDS);
+        } else if (n >= batchSize && drainQueued.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /** Platz für ein neues Event schaffen. Unter {@code lock}; {@code false} = Event verwerfen. */
+    private boolean admit(Lane lane, LogEvent event) {
+        if (!lane.full()) return true;
+
+        switch (lane.overflow) {
+            case BLOCK -> {
+                long deadline = System.nanoTime() + blockNanos;
+                long left;
+                while (lane.full() && (left = deadline - System.nanoTime()) > 0L) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(lock, left);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (!lane.full()) return true;
+                metrics.shed(lane.priority).increment();
+                return false;
+            }
+            case COALESCE -> {
+                if (lane.isDuplicate(event)) {
+                    metrics.coalesced().increment();
+                    return false;
+                }
+                dropOldest(lane);
+                return true;
+            }
+            default -> {
+                dropOldest(lane);
+                return true;
+            }
+        }
+    }
+
+    private void dropOldest(Lane lane) {
+        if (lane.pollFirst() != null) {
+            size--;
+            metrics.shed(lane.priority).increment();
+        }
+    }
+
+    /**
+     * Übernimmt die Marken aus {@code journal_state} und stellt die noch offenen Events aus dem Journal
+     * vor alles andere. Nur auf dem DB-Thread, vor dem ersten Batch.
+     */
+    void replay(List<EventJournal.Entry> recovered, long sessionMark, long commandMark) {
+        session.mark = sessionMark;
+        commands.mark = commandMark;
+        // bis hier ist beides drin (Absturz zwischen Commit und Journal-Update)
+        journal.committed(Math.min(sessionMark, commandMark));
+
+        int replayed = 0;
+        synchronized (lock) {
+            if (!recovered.isEmpty()) lastSeq = Math.max(lastSeq, recovered.get(recovered.size() - 1).seq());
+            for (int i = recovered.size() - 1; i >= 0; i--) {
+                EventJournal.Entry e = recovered.get(i);
+                Lane lane = e.event() instanceof LogEvent.Command ? commands : session;
+                if (e.seq() <= lane.mark) continue;
+                lane.addFirst(e);
+                replayed++;
+            }
+            size += replayed;
+        }
+        if (replayed > 0) {
+            logger.info("Replaying " + replayed + " events from the event journal.");
+            drainNow();
+        }
+    }
+
+    /** Noch nicht geschriebene Events, von jedem Thread lesbar. */
+    int pending() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /** Wie {@link #drain()}, aber ohne ein laufendes Backoff abzuwarten und ohne Pause (Flush, Shutdown). */
+    void drainNow() {
+        backoffUntil = 0L;
+        drainLanes(false);
+    }
+
+    /** Schreibt, bis die Lanes leer sind. Nur auf dem DB-Thread aufrufen. */
+    void drain() {
+        drainLanes(true);
+    }
+
+    private void drainLanes(boolean yieldToTasks) {
+        drainQueued.set(false);
+        if (backoffUntil != 0L && System.currentTimeMillis() < backoffUntil) {
+            // der Retry ist schon eingeplant
+            return;
+        }
+        backoffUntil = 0L;
+
+        List<EventJournal.Entry> batch = new ArrayList<>(batchSize);
+        while (true) {
+            batch.clear();
+            boolean bulk;
+            synchronized (lock) {
+                poll(session, batch);
+                int sessionEvents = batch.size();
+                poll(commands, batch);
+                bulk = batch.size() > sessionEvents;
+                size -= batch.size();
+                // wartende Produzenten (Overflow BLOCK) wecken
+                lock.notifyAll();
+            }
+            if (batch.isEmpty()) return;
+
+            if (!write(batch)) {
+                pushBack(batch);
+                metrics.batchRetries().increment();
+                long delay = Math.min(RETRY_MAX_MS, RETRY_MIN_MS << Math.min(failures, 5));
+                failures++;
+                backoffUntil = System.currentTimeMillis() + delay;
+                executor.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+            failures = 0;
+
+            if (bulk && yieldToTasks) {
+                // Command-Logs sind Masse: erst die anderen Tasks des DB-Threads (/plog add, delete ...) vorlassen
+                try {
+                    executor.execute(this::drain);
+                    return;
+                } catch (RejectedExecutionException ignored) {
+                    // Shutdown -> hier weiterschreiben
+                }
+            }
+        }
+    }
+
+    private void poll(Lane lane, List<EventJournal.Entry> batch) {
+        EventJournal.Entry e;
+        while (batch.size() < batchSize && (e = lane.pollFirst()) != null) {
+            batch.add(e);
+        }
+    }
+
+    /** Gescheiterten Batch in Originalreihenfolge zurück an den Anfang der Lanes (auch über die Kapazität). */
+    private void pushBack(List<EventJournal.Entry> batch) {
+        synchronized (lock) {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                EventJournal.Entry e = batch.get(i);
+                (e.event() instanceof LogEvent.Command ? commands : session).addFirst(e);
+            }
+            size += batch.size();
+        }
+    }
+
+    /**
+     * Bis wohin das Journal gekürzt werden darf: vor das älteste noch wartende Event,
+     * sonst alles bis zur zuletzt vergebenen Nummer.
+     */
+    private long trimPoint() {
+        synchronized (lock) {
+            long first = Long.MAX_VALUE;
+            for (Lane lane : new Lane[]{session, commands}) {
+                long seq = lane.firstSeq();
+                if (seq != 0L) first = Math.min(first, seq);
+            }
+            return first == Long.MAX_VALUE ? lastSeq : first - 1;
+        }
+    }
+
+    /** Nach Commit oder endgültigem Verwerfen: Marken nachziehen und das Journal kürzen. */
+    private void settle(long sessionSeq, long commandSeq) {
+        session.mark = Math.max(session.mark, sessionSeq);
+        commands.mark = Math.max(commands.mark, commandSeq);
+        journal.committed(trimPoint());
+    }
+
+    /** @return {@code false}, wenn der Batch später noch einmal versucht werden soll */
+    private boolean write(List<EventJournal.Entry> batch) {
+        if (!db.ensureWriter()) {
+            return false;
+        }
+        long sessionSeq = 0L;
+        long commandSeq = 0L;
+        for (EventJournal.Entry entry : batch) {
+            if (entry.event() instanceof LogEvent.Command) {
+                commandSeq = Math.max(commandSeq, entry.seq());
+            } else {
+                sessionSeq = Math.max(sessionSeq, entry.seq());
+            }
+        }
+
+        long start = System.nanoTime();
+        Connection con = db.getConnection();
+        // Sessions, die in diesem Batch eine ID bekommen haben
+        List<OpenSession> assigned = new ArrayList<>();
+        try {
+            con.setAutoCommit(false);
+
+            Statements st = new Statements(db, assigned);
+            PreparedStatement insertCommand = db.statement(Sql.INSERT_COMMAND);
+
+            // Join, Quit und Updates desselben Spielers dürfen nicht umsortiert werden:
+            // Läufe gleicher Art werden gebatcht, beim Wechsel wird der Lauf ausgeführt.
+            Class<?> run = null;
+            boolean hasCommands = false;
+
+            for (EventJournal.Entry entry : batch) {
+                LogEvent event = entry.event();
+                if (event instanceof LogEvent.Command c) {
+                    insertCommand.setBytes(1, Uuids.toBytes(c.uuid()));
+                    insertCommand.setLong(2, c.time());
+                    insertCommand.setLong(3, db.commandTexts().intern(con, c.command()));
+                    insertCommand.addBatch();
+                    hasCommands = true;
+                    continue;
+                }
+
+                if (run != null && run != event.getClass()) {
+                    st.execute(run);
+                }
+                run = event.getClass();
+
+                if (event instanceof LogEvent.Join j) {
+                    st.join(j);
+                } else if (event instanceof LogEvent.PlayerUpdate u) {
+                    st.update(u);
+                } else if (event instanceof LogEvent.Quit q) {
+                    st.quit(q);
+                } else if (event instanceof LogEvent.Checkpoint c) {
+                    st.checkpoint(c);
+                }
+            }
+
+            if (run != null) {
+                st.execute(run);
+            }
+            if (hasCommands) {
+                insertCommand.executeBatch();
+            }
+            if (sessionSeq > 0L || commandSeq > 0L) {
+                // Marken in derselben Transaktion -> beim Replay nichts doppelt
+                PreparedStatement mark = db.statement(Sql.UPSERT_JOURNAL_STATE);
+                mark.setBytes(1, Uuids.toBytes(journal.id()));
+                mark.setLong(2, Math.max(session.mark, sessionSeq));
+                mark.setLong(3, Math.max(commands.mark, commandSeq));
+                mark.executeUpdate();
+            }
+            long commit = System.nanoTime();
+            con.commit();
+            st.committed();
+            metrics.commitTime().recordSince(commit);
+            for (LogEvent.Join j : st.inserted) onInserted.accept(j);
+            metrics.batchTime().recordSince(start);
+            metrics.batchSize().record(batch.size());
+            attempts = 0;
+            settle(sessionSeq, commandSeq);
+            return true;
+        } catch (SQLException ex) {
+            try { con.rollback(); } catch (SQLException ignored) { }
+            // angefangene Batches hängen noch an den Statements -> neu vorbereiten
+            db.dropStatements(con);
+            // neu angelegte Texte sind mit zurückgerollt
+            db.commandTexts().clear();
+            // die IDs auch: SQLite vergibt sie nach dem Rollback neu, Quit/Checkpoint träfen sonst fremde Zeilen
+            for (OpenSession s : assigned) s.id(0L);
+
+            if (!db.writerValid() || ++attempts < MAX_ATTEMPTS) {
+                logger.warning("DB batch failed, " + batch.size() + " events kept for retry: " + ex.getMessage());
+                return false;
+            }
+            attempts = 0;
+            metrics.batchesDropped().increment();
+            metrics.eventsDropped().add(batch.size());
+            logger.log(Level.SEVERE, "DB batch failed " + MAX_ATTEMPTS + " times, " + batch.size() + " events lost: " + ex.getMessage(), ex);
+            settle(sessionSeq, commandSeq);
+            return true;
+        } finally {
+            try { con.setAutoCommit(true); } catch (SQLException ignored) { }
+        }
+    }
+
+    /** Session aus dem Journal, siehe {@link Statements#mark}. */
+    private record RestoredKey(UUID uuid, long startMs) { }
+
+    /**
+     * Statements für Join/Quit/Update eines Batches. Session-IDs kommen über die generierten Schlüssel:
+     * MySQL liefert sie für den ganzen Batch in Einfügereihenfolge, SQLite nur für das letzte Insert,
+     * dort wird deshalb einzeln eingefügt (lokal und in derselben Transaktion, also billig).
+     */
+    private static final class Statements {
+        private final boolean batchKeys;
+        private final PreparedStatement upsertPlayer;
+        private final PreparedStatement insertSession;
+        private final PreparedStatement updatePlayer;
+        private final PreparedStatement quitPlayer;
+        private final PreparedStatement closeSession;
+        private final PreparedStatement closeSessionByStart;
+        private final PreparedStatement checkpointPlayer;
+        private final PreparedStatement checkpointSession;
+        private final PreparedStatement checkpointSessionByStart;
+        private final PreparedStatement playtimeDaily;
+        private final PlaytimeRollup rollup;
+        private final List<OpenSession> newSessions = new ArrayList<>();
+        private final List<OpenSession> assigned;
+        // Joins mit Upsert, für onInserted nach dem Commit
+        private final List<LogEvent.Join> inserted = new ArrayList<>();
+        private final PreparedStatement selectSessionPlaytime;
+        // Checkpoint-Stand pro Session in diesem Batch; Schlüssel OpenSession bzw. RestoredKey
+        private final Map<Object, Long> marks = new HashMap<>();
+
+        Statements(Database db, List<OpenSession> assigned) throws SQLException {
+            this.assigned = assigned;
+            this.batchKeys = db.isMySql();
+            this.upsertPlayer = db.statement(Sql.UPSERT_PLAYER);
+            this.insertSession = db.statement(Sql.INSERT_SESSION);
+            this.updatePlayer = db.statement(Sql.UPDATE_PLAYER_SEEN);
+            this.quitPlayer = db.statement(Sql.QUIT_PLAYER);
+            this.closeSession = db.statement(Sql.CLOSE_SESSION);
+            this.closeSessionByStart = db.statement(Sql.CLOSE_SESSION_BY_START);
+            this.checkpointPlayer = db.statement(Sql.CHECKPOINT_PLAYER);
+            this.checkpointSession = db.statement(Sql.CHECKPOINT_SESSION);
+            this.checkpointSessionByStart = db.statement(Sql.CHECKPOINT_SESSION_BY_START);
+            this.playtimeDaily = db.statement(Sql.UPSERT_PLAYTIME_DAILY);
+            this.selectSessionPlaytime = db.statement(Sql.SELECT_SESSION_PLAYTIME);
+            this.rollup = db.playtimeRollup();
+        }
+
+        void join(LogEvent.Join j) throws SQLException {
+            if (j.upsert()) {
+                inserted.add(j);
+                upsertPlayer.setBytes(1, Uuids.toBytes(j.uuid()));
+                upsertPlayer.setString(2, j.name());
+                upsertPlayer.setLong(3, j.time());
+                upsertPlayer.setLong(4, j.time());
+                upsertPlayer.setInt(5, 1);
+                if (batchKeys) {
+                    upsertPlayer.addBatch();
+                } else {
+                    // vor dem Session-Insert, sonst schlägt der Foreign Key an
+                    upsertPlayer.executeUpdate();
+                }
+            }
+
+            insertSession.setBytes(1, Uuids.toBytes(j.uuid()));
+            insertSession.setLong(2, j.time());
+            if (batchKeys) {
+                insertSession.addBatch();
+                newSessions.add(j.session());
+            } else {
+                insertSession.executeUpdate();
+                try (ResultSet keys = insertSession.getGeneratedKeys()) {
+                    if (keys.next()) assign(j.session(), keys.getLong(1));
+                }
+            }
+        }
+
+        private void assign(OpenSession session, long id) {
+            session.id(id);
+            assigned.add(session);
+        }
+
+        void update(LogEvent.PlayerUpdate u) throws SQLException {
+            updatePlayer.setString(1, u.name());
+            updatePlayer.setLong(2, u.lastSeen());
+            updatePlayer.setInt(3, u.online() ? 1 : 0);
+            updatePlayer.setBytes(4, Uuids.toBytes(u.uuid()));
+            updatePlayer.addBatch();
+        }
+
+        void quit(LogEvent.Quit q) throws SQLException {
+            OpenSession session = q.session();
+            // der Rest seit dem letzten committeten Checkpoint
+            long addMs = session == null ? 0L : Math.max(0L, q.sessionMs() - mark(q.uuid(), session));
+            quitPlayer.setString(1, q.name());
+            quitPlayer.setLong(2, q.time());
+            quitPlayer.setLong(3, addMs);
+            quitPlayer.setBytes(4, Uuids.toBytes(q.uuid()));
+            quitPlayer.addBatch();
+            daily(Uuids.toBytes(q.uuid()), q.time() - addMs, q.time());
+
+            if (session == null) return;
+            marks.put(key(q.uuid(), session), Math.max(q.sessionMs(), mark(q.uuid(), session)));
+            if (session.id() > 0L) {
+                closeSession.setLong(1, q.time());
+                closeSession.setLong(2, q.sessionMs());
+                closeSession.setLong(3, session.id());
+                closeSession.addBatch();
+            } else {
+                closeSessionByStart.setLong(1, q.time());
+                closeSessionByStart.setLong(2, q.sessionMs());
+                closeSessionByStart.setBytes(3, Uuids.toBytes(q.uuid()));
+                closeSessionByStart.setLong(4, session.startMs());
+                closeSessionByStart.addBatch();
+            }
+        }
+
+        void checkpoint(LogEvent.Checkpoint c) throws SQLException {
+            for (LogEvent.Checkpoint.Progress p : c.sessions()) {
+                long delta = p.sessionMs() - mark(p.uuid(), p.session());
+                if (delta <= 0L) continue;
+                marks.put(key(p.uuid(), p.session()), p.sessionMs());
+
+                byte[] uuid = Uuids.toBytes(p.uuid());
+                checkpointPlayer.setLong(1, delta);
+                checkpointPlayer.setLong(2, c.time());
+                checkpointPlayer.setBytes(3, uuid);
+                checkpointPlayer.addBatch();
+                daily(uuid, c.time() - delta, c.time());
+
+                if (p.session().id() > 0L) {
+                    checkpointSession.setLong(1, p.sessionMs());
+                    checkpointSession.setLong(2, p.session().id());
+                    checkpointSession.addBatch();
+                } else {
+                    checkpointSessionByStart.setLong(1, p.sessionMs());
+                    checkpointSessionByStart.setBytes(2, uuid);
+                    checkpointSessionByStart.setLong(3, p.session().startMs());
+                    checkpointSessionByStart.addBatch();
+                }
+            }
+        }
+
+        /**
+         * Bis wohin die Session schon in players steht: zuerst was dieser Batch geschrieben hat, sonst der committete
+         * Stand. Sessions aus dem Journal lesen ihn aus {@code sessions.playtime_ms}, das jeder Checkpoint in derselben
+         * Transaktion setzt.
+         */
+        private long mark(UUID uuid, OpenSession session) throws SQLException {
+            Long pending = marks.get(key(uuid, session));
+            if (pending != null) return pending;
+            if (!session.restored()) return session.committedMs();
+
+            selectSessionPlaytime.setBytes(1, Uuids.toBytes(uuid));
+            selectSessionPlaytime.setLong(2, session.startMs());
+            try (ResultSet rs = selectSessionPlaytime.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        }
+
+        private static Object key(UUID uuid, OpenSession session) {
+            // jede Journal-Zeile bringt ihr eigenes OpenSession-Objekt mit
+            return session.restored() ? new RestoredKey(uuid, session.startMs()) : session;
+        }
+
+        /** Nach dem Commit: die Stände dieses Batches gelten jetzt. */
+        void committed() {
+            for (Map.Entry<Object, Long> e : marks.entrySet()) {
+                if (e.getKey() instanceof OpenSession s) s.committed(e.getValue());
+            }
+        }
+
+        private void daily(byte[] uuid, long from, long to) throws SQLException {
+            rollup.split(from, to, (day, ms) -> {
+                playtimeDaily.setBytes(1, uuid);
+                playtimeDaily.setLong(2, day);
+                playtimeDaily.setLong(3, ms);
+                playtimeDaily.addBatch();
+            });
+        }
+
+        void execute(Class<?> run) throws SQLException {
+            if (run == LogEvent.Join.class) {
+                if (!batchKeys) return;
+                upsertPlayer.executeBatch();
+                insertSession.executeBatch();
+                try (ResultSet keys = insertSession.getGeneratedKeys()) {
+                    for (OpenSession s : newSessions) {
+                        if (!keys.next()) break;
+                        assign(s, keys.getLong(1));
+                    }
+                }
+                newSessions.clear();
+            } else if (run == LogEvent.PlayerUpdate.class) {
+                updatePlayer.executeBatch();
+            } else if (run == LogEvent.Checkpoint.class) {
+                checkpointPlayer.executeBatch();
+                checkpointSession.executeBatch();
+                checkpointSessionByStart.executeBatch();
+                playtimeDaily.executeBatch();
+            } else {
+                quitPlayer.executeBatch();
+                closeSession.executeBatch();
+                closeSessionByStart.executeBatch();
+                playtimeDaily.executeBatch();
+            }
+        }
+    }
+}
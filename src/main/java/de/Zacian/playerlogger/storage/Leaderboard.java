@@ -0,0 +1,357 @@
+package de.Zacian.playerlogger.storage;
+
+import de.Zacian.playerlogger.metrics.PluginMetrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Spielzeit-Rangliste im Speicher: wird beim Start einmal aus {@code players} geladen
+ * und danach bei Join/Quit/add/delete inkrementell gepflegt.
+ *
+ * <p>Offline-Spieler liegen nach {@code total_playtime_ms} sortiert in einem Baum,
+ * Online-Spieler nach {@code total_playtime_ms - sessionStart} in einem zweiten.
+ * Da "jetzt" für alle Online-Spieler gleich ist, bleibt deren Reihenfolge stabil,
+ * und Top-N sowie Rang lassen sich in O(log n) ohne SQL beantworten.</p>
+ */
+public final class Leaderboard {
+
+    public record Row(UUID uuid, String name, long playtimeMs) { }
+
+    public record Rank(int rank, int total) { }
+
+    private static final class Entry {
+        final UUID uuid;
+        String name;
+        long baseMs;
+        long sessionStart = -1L; // -1 = offline
+
+        Entry(UUID uuid, String name, long baseMs) {
+            this.uuid = uuid;
+            this.name = name;
+            this.baseMs = baseMs;
+        }
+
+        boolean online() {
+            return sessionStart >= 0;
+        }
+
+        long score() {
+            return online() ? baseMs - sessionStart : baseMs;
+        }
+    }
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final RankTree offline = new RankTree();
+    private final RankTree online = new RankTree();
+
+    // Änderungen vor dem ersten Laden werden gepuffert und danach nachgespielt
+    private final List<Runnable> beforeLoad = new ArrayList<>();
+    private boolean loaded;
+
+    // -------------------------
+    // Laden
+    // -------------------------
+
+    /** Lädt alle Spieler. Auf dem DB-Thread nach {@link Database#initSchema()} aufrufen. */
+    public void load(Connection con, boolean mySql, PluginMetrics metrics) throws SQLException {
+        Map<UUID, Entry> fresh = new HashMap<>();
+        try (PreparedStatement ps = TimedStatement.wrap(con.prepareStatement(Sql.SELECT_LEADERBOARD.text(mySql),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY), metrics.statement(Sql.SELECT_LEADERBOARD))) {
+            // MySQL: Zeilen streamen statt die ganze Tabelle in den Speicher zu holen
+            ps.setFetchSize(mySql ? Integer.MIN_VALUE : 1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    UUID uuid;
+                    try {
+                        uuid = Uuids.fromBytes(rs.getBytes("uuid"));
+                    } catch (IllegalArgumentException | NullPointerException ignored) {
+                        continue;
+                    }
+                    fresh.put(uuid, new Entry(uuid, rs.getString("name"), rs.getLong("total_playtime_ms")));
+                }
+            }
+        }
+
+        synchronized (this) {
+            entries.clear();
+            offline.clear();
+            online.clear();
+            for (Entry e : fresh.values()) {
+                entries.put(e.uuid, e);
+                offline.insert(e.score(), e.uuid);
+            }
+            loaded = true;
+            for (Runnable r : beforeLoad) r.run();
+            beforeLoad.clear();
+        }
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    // -------------------------
+    // Updates
+    // -------------------------
+
+    public synchronized void join(UUID uuid, String name, long sessionStart) {
+        if (!loaded) {
+            beforeLoad.add(() -> join(uuid, name, sessionStart));
+            return;
+        }
+        Entry e = detach(uuid);
+        if (e == null) e = new Entry(uuid, name, 0L);
+        e.name = name;
+        e.sessionStart = sessionStart;
+        attach(e);
+    }
+
+    public synchronized void quit(UUID uuid, String name, long sessionMs) {
+        if (!loaded) {
+            beforeLoad.add(() -> quit(uuid, name, sessionMs));
+            return;
+        }
+        Entry e = detach(uuid);
+        if (e == null) e = new Entry(uuid, name, 0L);
+        e.name = name;
+        e.baseMs += sessionMs;
+        e.sessionStart = -1L;
+        attach(e);
+    }
+
+    public synchronized void add(UUID uuid, String name, long addMs) {
+        if (!loaded) {
+            beforeLoad.add(() -> add(uuid, name, addMs));
+            return;
+        }
+        Entry e = detach(uuid);
+        if (e == null) e = new Entry(uuid, name, 0L);
+        e.name = name;
+        e.baseMs += addMs;
+        attach(e);
+    }
+
+    public synchronized void remove(UUID uuid) {
+        if (!loaded) {
+            beforeLoad.add(() -> remove(uuid));
+            return;
+        }
+        detach(uuid);
+    }
+
+    public synchronized void removeByName(String name) {
+        if (!loaded) {
+            beforeLoad.add(() -> removeByName(name));
+            return;
+        }
+        List<UUID> matches = new ArrayList<>();
+        for (Entry e : entries.values()) {
+            if (e.name != null && e.name.equalsIgnoreCase(name)) matches.add(e.uuid);
+        }
+        for (UUID uuid : matches) detach(uuid);
+    }
+
+    // -------------------------
+    // Abfragen
+    // -------------------------
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Die besten {@code n} Spieler inkl. laufender Sessions, absteigend. */
+    public synchronized List<Row> top(int n, long now) {
+        List<UUID> fromOffline = offline.first(n);
+        List<UUID> fromOnline = online.first(n);
+
+        List<Row> out = new ArrayList<>(Math.min(n, fromOffline.size() + fromOnline.size()));
+        int i = 0, j = 0;
+        while (out.size() < n && (i < fromOffline.size() || j < fromOnline.size())) {
+            Entry a = i < fromOffline.size() ? entries.get(fromOffline.get(i)) : null;
+            Entry b = j < fromOnline.size() ? entries.get(fromOnline.get(j)) : null;
+            if (b == null || (a != null && a.baseMs >= effective(b, now))) {
+                out.add(new Row(a.uuid, a.name, a.baseMs));
+                i++;
+            } else {
+                out.add(new Row(b.uuid, b.name, effective(b, now)));
+                j++;
+            }
+        }
+        return out;
+    }
+
+    /** Rang (1-basiert) und Gesamtzahl, oder {@code null} wenn der Spieler unbekannt ist. */
+    public synchronized Rank rank(UUID uuid, long now) {
+        Entry e = entries.get(uuid);
+        if (e == null || !loaded) return null;
+        long value = effective(e, now);
+        int better = offline.countGreater(value) + online.countGreater(value - now);
+        return new Rank(better + 1, entries.size());
+    }
+
+    private static long effective(Entry e, long now) {
+        return e.online() ? e.baseMs + Math.max(0L, now - e.sessionStart) : e.baseMs;
+    }
+
+    private Entry detach(UUID uuid) {
+        Entry e = entries.remove(uuid);
+        if (e != null) {
+            (e.online() ? online : offline).remove(e.score(), e.uuid);
+        }
+        return e;
+    }
+
+    private void attach(Entry e) {
+        entries.put(e.uuid, e);
+        (e.online() ? online : offline).insert(e.score(), e.uuid);
+    }
+
+    // -------------------------
+    // Order-Statistic-Treap
+    // -------------------------
+
+    /** Treap mit Teilbaumgrößen, in-order absteigend nach score (bei Gleichstand nach UUID). */
+    private static final class RankTree {
+
+        private static final class Node {
+            final long score;
+            final UUID uuid;
+            final int priority;
+            int size = 1;
+            Node left, right;
+
+            Node(long score, UUID uuid, int priority) {
+                this.score = score;
+                this.uuid = uuid;
+                this.priority = priority;
+            }
+        }
+
+        private final SplittableRandom random = new SplittableRandom();
+        private Node root;
+
+        void clear() {
+            root = null;
+        }
+
+        void insert(long score, UUID uuid) {
+            root = insert(root, new Node(score, uuid, random.nextInt()));
+        }
+
+        void remove(long score, UUID uuid) {
+            root = remove(root, score, uuid);
+        }
+
+        /** Anzahl Einträge mit score > threshold. */
+        int countGreater(long threshold) {
+            int count = 0;
+            Node n = root;
+            while (n != null) {
+                if (n.score > threshold) {
+                    count += size(n.left) + 1;
+                    n = n.right;
+                } else {
+                    n = n.left;
+                }
+            }
+            return count;
+        }
+
+        /** Die ersten {@code limit} UUIDs in absteigender Reihenfolge. */
+        List<UUID> first(int limit) {
+            List<UUID> out = new ArrayList<>(Math.min(limit, size(root)));
+            ArrayList<Node> stack = new ArrayList<>();
+            Node n = root;
+            while ((n != null || !stack.isEmpty()) && out.size() < limit) {
+                while (n != null) {
+                    stack.add(n);
+                    n = n.left;
+                }
+                n = stack.remove(stack.size() - 1);
+                out.add(n.uuid);
+                n = n.right;
+            }
+            return out;
+        }
+
+        private static int compare(long scoreA, UUID uuidA, long scoreB, UUID uuidB) {
+            int c = Long.compare(scoreB, scoreA); // absteigend
+            return c != 0 ? c : uuidA.compareTo(uuidB);
+        }
+
+        private static int size(Node n) {
+            return n == null ? 0 : n.size;
+        }
+
+        private static void update(Node n) {
+            n.size = size(n.left) + size(n.right) + 1;
+        }
+
+        private static Node insert(Node t, Node node) {
+            if (t == null) return node;
+            if (compare(node.score, node.uuid, t.score, t.uuid) < 0) {
+                t.left = insert(t.left, node);
+                if (t.left.priority > t.priority) t = rotateRight(t);
+            } else {
+                t.right = insert(t.right, node);
+                if (t.right.priority > t.priority) t = rotateLeft(t);
+            }
+            update(t);
+            return t;
+        }
+
+        private static Node remove(Node t, long score, UUID uuid) {
+            if (t == null) return null;
+            int c = compare(score, uuid, t.score, t.uuid);
+            if (c < 0) {
+                t.left = remove(t.left, score, uuid);
+            } else if (c > 0) {
+                t.right = remove(t.right, score, uuid);
+            } else {
+                return merge(t.left, t.right);
+            }
+            update(t);
+            return t;
+        }
+
+        private static Node merge(Node a, Node b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            if (a.priority > b.priority) {
+                a.right = merge(a.right, b);
+                update(a);
+                return a;
+            }
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+
+        private static Node rotateRight(Node t) {
+            Node l = t.left;
+            t.left = l.right;
+            l.right = t;
+            update(t);
+            update(l);
+            return l;
+        }
+
+        private static Node rotateLeft(Node t) {
+            Node r = t.right;
+            t.right = r.left;
+            r.left = t;
+            update(t);
+            update(r);
+            return r;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package de.Zacian.playerlogger.storage;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Kleine, unveränderliche Events, die die Listener in die {@link EventPipeline} legen.
+ * Geschrieben werden sie ausschließlich vom DB-Thread.
+ */
+public sealed interface LogEvent {
+
+    /** @param upsert {@code false}, wenn die players-Zeile schon existiert (siehe {@link PlayerCache}) */
+    record Join(UUID uuid, String name, long time, boolean upsert, OpenSession session) implements LogEvent { }
+
+    /**
+     * Was davon noch nach players.total_playtime_ms muss, rechnet der DB-Thread gegen den committeten
+     * Stand der Checkpoints aus (siehe {@link OpenSession#committedMs()}).
+     * @param sessionMs ganze Session (für sessions.playtime_ms)
+     * @param session   {@code null}, wenn beim Join nicht geloggt wurde (dann bleibt sessions unberührt)
+     */
+    record Quit(UUID uuid, String name, long time, long sessionMs, OpenSession session) implements LogEvent { }
+
+    /** Zwischenstand aller Online-Spieler, als ein Batch geschrieben. */
+    record Checkpoint(long time, List<Progress> sessions) implements LogEvent {
+
+        /** @param sessionMs bisher insgesamt; das Delta für players bildet der DB-Thread */
+        public record Progress(UUID uuid, OpenSession session, long sessionMs) { }
+    }
+
+    /** Write-Behind aus dem {@link PlayerCache}. */
+    record PlayerUpdate(UUID uuid, String name, long lastSeen, boolean online) implements LogEvent { }
+
+    /** Der Name steht nur in players, command_logs referenziert den Text über {@link CommandDictionary}. */
+    record Command(UUID uuid, long time, String command) implements LogEvent { }
+}
@@ -0,0 +1,109 @@
+package de.Zacian.playerlogger.storage;
+
+import de.Zacian.playerlogger.metrics.PluginMetrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Name -> UUID aller bekannten Spieler, ohne Groß-/Kleinschreibung. Wird beim Start einmal aus {@code players}
+ * geladen und bei jedem Join fortgeschrieben, damit Commands Namen ohne {@code Bukkit.getOfflinePlayer(name)}
+ * (und damit ohne Mojang-Abfrage auf dem Main-Thread) auflösen können.
+ *
+ * <p>Sortiert in einer {@link ConcurrentSkipListMap}, so ist die Tab-Completion ein Range-Scan über das Präfix.
+ * Lesen ist lockfrei, Schreiben (Laden, Join, delete) synchronisiert, damit beide Maps zusammenpassen.
+ * Hat ein Name über die Zeit mehrere Besitzer, gewinnt der zuletzt gesehene.</p>
+ */
+public final class NameIndex {
+
+    public record Entry(UUID uuid, String name, long lastSeen) { }
+
+    private final ConcurrentSkipListMap<String, Entry> byName = new ConcurrentSkipListMap<>();
+    private final Map<UUID, Entry> byUuid = new ConcurrentHashMap<>();
+
+    /** Lädt alle Spieler. Auf dem DB-Thread nach {@link Database#initSchema()} aufrufen; Joins dürfen parallel laufen. */
+    public void load(Connection con, boolean mySql, PluginMetrics metrics) throws SQLException {
+        try (PreparedStatement ps = TimedStatement.wrap(con.prepareStatement(Sql.SELECT_NAMES.text(mySql),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY), metrics.statement(Sql.SELECT_NAMES))) {
+            ps.setFetchSize(mySql ? Integer.MIN_VALUE : 1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    UUID uuid;
+                    try {
+                        uuid = Uuids.fromBytes(rs.getBytes("uuid"));
+                    } catch (IllegalArgumentException | NullPointerException ignored) {
+                        continue;
+                    }
+                    put(uuid, rs.getString("name"), rs.getLong("last_seen"));
+                }
+            }
+        }
+    }
+
+    public synchronized void put(UUID uuid, String name, long lastSeen) {
+        if (name == null || name.isEmpty()) return;
+        Entry old = byUuid.get(uuid);
+        // beim Laden kann die DB-Zeile älter sein als ein Join, der schon drin ist
+        if (old != null && old.lastSeen() > lastSeen) return;
+
+        String key = key(name);
+        Entry holder = byName.get(key);
+        if (holder != null && !holder.uuid().equals(uuid) && holder.lastSeen() > lastSeen) {
+            // den Namen trägt inzwischen jemand anderes
+            return;
+        }
+        if (old != null) unlink(old);
+        if (holder != null && !holder.uuid().equals(uuid)) byUuid.remove(holder.uuid());
+
+        Entry e = new Entry(uuid, name, lastSeen);
+        byUuid.put(uuid, e);
+        byName.put(key, e);
+    }
+
+    public synchronized void remove(UUID uuid) {
+        Entry e = byUuid.remove(uuid);
+        if (e != null) unlink(e);
+    }
+
+    public synchronized void removeByName(String name) {
+        Entry e = byName.remove(key(name));
+        if (e != null) byUuid.remove(e.uuid());
+    }
+
+    private void unlink(Entry e) {
+        byName.remove(key(e.name()), e);
+    }
+
+    /** Exakter Name, ohne Groß-/Kleinschreibung; {@code null}, wenn unbekannt. */
+    public Entry find(String name) {
+        return byName.get(key(name));
+    }
+
+    /** Bis zu {@code limit} Namen mit diesem Präfix, alphabetisch. */
+    public List<String> complete(String prefix, int limit) {
+        String from = key(prefix);
+        List<String> out = new ArrayList<>(Math.min(limit, 16));
+        for (Entry e : byName.subMap(from, true, from + Character.MAX_VALUE, true).values()) {
+            if (out.size() >= limit) break;
+            out.add(e.name());
+        }
+        return out;
+    }
+
+    public int size() {
+        return byUuid.size();
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
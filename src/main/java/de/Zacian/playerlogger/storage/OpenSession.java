@@ -0,0 +1,67 @@
+package de.Zacian.playerlogger.storage;
+
+/**
+ * Offene Session eines Online-Spielers. Die ID der sessions-Zeile setzt der DB-Thread,
+ * sobald der Join geschrieben ist; der Quit schließt die Session dann per Primärschlüssel.
+ *
+ * <p>Wie viel der Session schon in {@code players.total_playtime_ms} steht, führt ebenfalls der DB-Thread, und zwar
+ * erst nach dem Commit. Ein verworfener Checkpoint-Batch landet so beim nächsten Checkpoint oder beim Quit.
+ * Sessions aus dem Journal kennen diesen Stand nicht, dort gilt {@code sessions.playtime_ms}.</p>
+ */
+public final class OpenSession {
+
+    private final long startMs;
+    private final boolean restored;
+    private volatile long id;
+    // committet nach players geschrieben; nur DB-Thread
+    private long committedMs;
+    // zuletzt per Checkpoint gemeldet; nur Main-Thread
+    private long reportedMs;
+
+    public OpenSession(long startMs) {
+        this.startMs = startMs;
+        this.restored = false;
+    }
+
+    /** Aus dem Journal wiederhergestellt. */
+    OpenSession(long startMs, long id) {
+        this.startMs = startMs;
+        this.id = id;
+        this.restored = true;
+    }
+
+    public long startMs() {
+        return startMs;
+    }
+
+    /** ID in {@code sessions}, 0 solange der Join noch nicht committet ist (auch nach einem Rollback wieder 0). */
+    public long id() {
+        return id;
+    }
+
+    void id(long id) {
+        this.id = id;
+    }
+
+    boolean restored() {
+        return restored;
+    }
+
+    /** Bis hierhin (ms seit Start) steht die Session in players. Nur DB-Thread, nicht für restaurierte Sessions. */
+    long committedMs() {
+        return committedMs;
+    }
+
+    void committed(long sessionMs) {
+        this.committedMs = sessionMs;
+    }
+
+    /** Zuletzt per Checkpoint gemeldet, damit unveränderte Sessions nicht jedes Mal mitgehen. */
+    public long reportedMs() {
+        return reportedMs;
+    }
+
+    public void reported(long sessionMs) {
+        this.reportedMs = sessionMs;
+    }
+}
@@ -0,0 +1,240 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Hält die {@code players}-Zeilen von Online-Spielern (und kürzlich abgefragten Offline-Spielern) im Speicher.
+ *
+ * <p>Die Zeile wird schon in {@code AsyncPlayerPreLoginEvent} geladen. Solange der Spieler online ist,
+ * gehört sie uns: Join-Änderungen (Name, last_seen, online) werden nur lokal markiert und
+ * von {@link #tick()} gesammelt als {@link LogEvent.PlayerUpdate} in die Pipeline geschrieben.
+ * Spielzeit-Änderungen laufen weiter als Deltas über die Pipeline und werden hier nur gespiegelt.
+ * Fehlt die Zeile beim Join (Prefetch fehlgeschlagen), wird sie nach dem Commit des Upserts nachgeladen.</p>
+ *
+ * <p>Offline-Einträge fallen nach {@code offlineTtlMs} bzw. bei mehr als {@code maxOffline} Einträgen raus.</p>
+ */
+public final class PlayerCache {
+
+    public record PlayerRecord(UUID uuid, String name, long firstSeen, long lastSeen,
+                               boolean online, long totalPlaytimeMs) { }
+
+    private static final class Entry {
+        PlayerRecord record;   // null = keine Zeile in der DB bzw. noch nicht geladen
+        boolean persisted;
+        boolean dirty;
+        // online ohne Zeile im Cache, die kommt nach dem Commit des Upserts (siehe joined)
+        boolean loading;
+        volatile long lastAccess;
+
+        Entry(PlayerRecord record, boolean persisted) {
+            this.record = record;
+            this.persisted = persisted;
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    private final Database db;
+    private final Logger logger;
+    private final long offlineTtlMs;
+    private final int maxOffline;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    public PlayerCache(Database db, Logger logger, long offlineTtlMs, int maxOffline) {
+        this.db = db;
+        this.logger = logger;
+        this.offlineTtlMs = offlineTtlMs;
+        this.maxOffline = Math.max(0, maxOffline);
+    }
+
+    // -------------------------
+    // Laden
+    // -------------------------
+
+    /** Lädt die Zeile synchron über den Lese-Pool. Für {@code AsyncPlayerPreLoginEvent} gedacht. */
+    public void prefetch(UUID uuid) {
+        try {
+            db.withReader(con -> {
+                PlayerRecord r = select(con, uuid);
+                entries.compute(uuid, (k, old) -> old != null ? old : new Entry(r, r != null));
+            });
+        } catch (SQLException e) {
+            // kein Eintrag -> Join macht wie bisher einen Upsert
+            logger.warning("Prefetch for " + uuid + " failed: " + e.getMessage());
+        }
+    }
+
+    private PlayerRecord select(Connection con, UUID uuid) throws SQLException {
+        PreparedStatement ps = db.statement(con, Sql.SELECT_PLAYER_STATS);
+        ps.setBytes(1, Uuids.toBytes(uuid));
+        try (ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) return null;
+            return new PlayerRecord(uuid, rs.getString("name"),
+                    rs.getLong("first_seen"), rs.getLong("last_seen"),
+                    rs.getInt("online") == 1, rs.getLong("total_playtime_ms"));
+        }
+    }
+
+    /** Lädt eine Zeile über eine Lese-Verbindung (Cache-Miss) und legt sie als Offline-Eintrag ab. */
+    public PlayerRecord fetch(Connection con, UUID uuid) throws SQLException {
+        PlayerRecord r = select(con, uuid);
+        if (r != null) put(r);
+        return r;
+    }
+
+    /** Cache-Treffer oder {@code null}. */
+    public PlayerRecord get(UUID uuid) {
+        Entry e = entries.get(uuid);
+        if (e == null) return null;
+        e.lastAccess = System.currentTimeMillis();
+        synchronized (e) {
+            return e.record;
+        }
+    }
+
+    /** Ergebnis einer DB-Abfrage übernehmen; vorhandene (neuere) Einträge gewinnen. */
+    void put(PlayerRecord record) {
+        entries.putIfAbsent(record.uuid(), new Entry(record, true));
+    }
+
+    // -------------------------
+    // Änderungen (Main-Thread)
+    // -------------------------
+
+    /**
+     * Spieler ist gejoint.
+     * @return {@code true}, wenn die Zeile noch nicht in der DB steht und per Upsert angelegt werden muss
+     */
+    public boolean join(UUID uuid, String name, long now) {
+        Entry e = entries.computeIfAbsent(uuid, k -> new Entry(null, false));
+        synchronized (e) {
+            e.lastAccess = now;
+            PlayerRecord old = e.record;
+            // ohne Zeile (Prefetch fehlgeschlagen oder neuer Spieler) nichts erfinden: Upsert, danach nachladen
+            e.loading = old == null;
+            if (old != null) {
+                e.record = new PlayerRecord(uuid, name, old.firstSeen(), now, true, old.totalPlaytimeMs());
+            }
+            boolean insert = !e.persisted || old == null;
+            // der Upsert des Joins legt die Zeile an, danach gehört sie uns
+            e.persisted = true;
+            e.dirty = !insert;
+            return insert;
+        }
+    }
+
+    /**
+     * Auf dem DB-Thread nach dem Commit eines Join-Upserts: lädt die Zeile für einen Join ohne Cache-Eintrag.
+     * Checkpoints dieser Session, die schon committet sind, werden abgezogen, weil der Cache die Session
+     * erst beim Quit dazuzählt.
+     */
+    public void joined(LogEvent.Join j) {
+        Entry e = entries.get(j.uuid());
+        if (e == null) return;
+        synchronized (e) {
+            if (!e.loading) return;
+        }
+        PlayerRecord r;
+        try {
+            r = select(db.getConnection(), j.uuid());
+        } catch (SQLException ex) {
+            // bleibt ohne Zeile, /plog stats liest dann aus der DB
+            logger.warning("Loading player " + j.uuid() + " after join failed: " + ex.getMessage());
+            return;
+        }
+        if (r == null) return;
+        long base = Math.max(0L, r.totalPlaytimeMs() - j.session().committedMs());
+        synchronized (e) {
+            if (!e.loading) return;
+            e.record = new PlayerRecord(r.uuid(), r.name(), r.firstSeen(), r.lastSeen(), r.online(), base);
+            e.loading = false;
+        }
+    }
+
+    /** Spieler ist gequittet; das Quit-Event schreibt alles selbst, daher nichts mehr offen. */
+    public void quit(UUID uuid, String name, long now, long sessionMs) {
+        Entry e = entries.get(uuid);
+        if (e == null) return;
+        synchronized (e) {
+            e.lastAccess = now;
+            PlayerRecord old = e.record;
+            if (old != null) {
+                e.record = new PlayerRecord(uuid, name, old.firstSeen(), now, false, old.totalPlaytimeMs() + sessionMs);
+            }
+            e.dirty = false;
+            e.loading = false;
+        }
+    }
+
+    public void addPlaytime(UUID uuid, long addMs) {
+        Entry e = entries.get(uuid);
+        if (e == null) return;
+        synchronized (e) {
+            PlayerRecord old = e.record;
+            if (old != null) {
+                e.record = new PlayerRecord(uuid, old.name(), old.firstSeen(), old.lastSeen(),
+                        old.online(), old.totalPlaytimeMs() + addMs);
+            }
+        }
+    }
+
+    public void invalidate(UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    public void invalidateByName(String name) {
+        entries.values().removeIf(e -> {
+            synchronized (e) {
+                return e.record != null && e.record.name().equalsIgnoreCase(name);
+            }
+        });
+    }
+
+    // -------------------------
+    // Write-Behind + Eviction
+    // -------------------------
+
+    /** Periodisch auf dem Main-Thread: markierte Zeilen gesammelt schreiben, alte Offline-Einträge verwerfen. */
+    public void tick() {
+        for (Entry e : entries.values()) {
+            synchronized (e) {
+                if (!e.dirty || e.record == null) continue;
+                PlayerRecord r = e.record;
+                db.submit(new LogEvent.PlayerUpdate(r.uuid(), r.name(), r.lastSeen(), r.online()));
+                e.dirty = false;
+            }
+        }
+        evict(System.currentTimeMillis());
+    }
+
+    private void evict(long now) {
+        List<Map.Entry<UUID, Entry>> offline = new ArrayList<>();
+        for (Map.Entry<UUID, Entry> me : entries.entrySet()) {
+            Entry e = me.getValue();
+            synchronized (e) {
+                if (e.dirty || (e.record != null && e.record.online())) continue;
+            }
+            if (now - e.lastAccess > offlineTtlMs) {
+                entries.remove(me.getKey(), e);
+            } else {
+                offline.add(me);
+            }
+        }
+
+        int excess = offline.size() - maxOffline;
+        if (excess <= 0) return;
+        offline.sort(Comparator.comparingLong(me -> me.getValue().lastAccess));
+        for (int i = 0; i < excess; i++) {
+            entries.remove(offline.get(i).getKey(), offline.get(i).getValue());
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Löscht Spielerdaten im Hintergrund ({@code /plog delete}, {@code /plog purge}). Aufträge landen in
+ * {@code purge_queue} und werden Spieler für Spieler abgearbeitet: pro Transaktion höchstens {@link #CHUNK}
+ * Zeilen aus {@code sessions}, dann {@code command_logs}, zum Schluss {@code playtime_daily}, die
+ * {@code players}-Zeile und der Queue-Eintrag. Zwischen den Schritten kommen die Event-Batches dran.
+ * Nach einem Neustart geht es mit dem ersten Queue-Eintrag weiter.
+ *
+ * <p>Auftraggeber bekommen alle paar Sekunden und am Ende einen {@link Progress}, auf dem DB-Thread.</p>
+ */
+public final class PlayerPurge {
+
+    public record Progress(int done, int total, long sessions, long commands, boolean finished) { }
+
+    private static final int CHUNK = 1000;
+    private static final long PAUSE_MS = 50L;
+    private static final long RETRY_MS = 30_000L;
+    private static final long REPORT_MS = 5_000L;
+
+    @FunctionalInterface
+    private interface Enqueue {
+        int run(long now) throws SQLException;
+    }
+
+    /** Ein Auftrag, das sind die Queue-Zeilen mit {@code fromId < id <= toId}. */
+    private static final class Request {
+        final long fromId;
+        final long toId;
+        final int total;
+        final Consumer<Progress> listener;
+        int done;
+        long sessions;
+        long commands;
+        long lastReport = System.currentTimeMillis();
+
+        Request(long fromId, long toId, int total, Consumer<Progress> listener) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.total = total;
+            this.listener = listener;
+        }
+
+        Progress progress(boolean finished) {
+            return new Progress(done, total, sessions, commands, finished);
+        }
+    }
+
+    private final Database db;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    // nur DB-Thread
+    private final Deque<Request> requests = new ArrayDeque<>();
+    private boolean running;
+    private volatile Consumer<UUID> onPurged = uuid -> { };
+
+    PlayerPurge(Database db, Logger logger, ScheduledExecutorService executor) {
+        this.db = db;
+        this.logger = logger;
+        this.executor = executor;
+    }
+
+    /** Wird auf dem DB-Thread für jeden fertig gelöschten Spieler aufgerufen, z. B. um Caches zu leeren. */
+    public void onPurged(Consumer<UUID> listener) {
+        this.onPurged = listener;
+    }
+
+    /** Nur auf dem DB-Thread aufrufen, nachdem die Migrationen gelaufen sind. */
+    void startIfNeeded() throws SQLException {
+        long pending;
+        try (PreparedStatement ps = db.getConnection().prepareStatement("SELECT COUNT(*) FROM purge_queue");
+             ResultSet rs = ps.executeQuery()) {
+            pending = rs.next() ? rs.getLong(1) : 0L;
+        }
+        if (pending == 0L) return;
+        logger.info("Resuming purge of " + pending + " players in the background...");
+        kick();
+    }
+
+    // -------------------------
+    // Aufträge
+    // -------------------------
+
+    public void purge(UUID uuid, Consumer<Progress> listener, Consumer<SQLException> onError) {
+        enqueue(now -> {
+            PreparedStatement ps = db.statement(Sql.ENQUEUE_PURGE);
+            ps.setBytes(1, Uuids.toBytes(uuid));
+            ps.setLong(2, now);
+            return ps.executeUpdate();
+        }, listener, onError);
+    }
+
+    /** Alle Spieler, die in {@code players} unter diesem Namen stehen. */
+    public void purgeByName(String name, Consumer<Progress> listener, Consumer<SQLException> onError) {
+        enqueue(now -> {
+            PreparedStatement ps = db.statement(Sql.ENQUEUE_PURGE_BY_NAME);
+            ps.setLong(1, now);
+            ps.setString(2, name);
+            return ps.executeUpdate();
+        }, listener, onError);
+    }
+
+    /** Alle Offline-Spieler, die seit {@code lastSeenBefore} nicht mehr da waren. */
+    public void purgeInactive(long lastSeenBefore, Consumer<Progress> listener, Consumer<SQLException> onError) {
+        enqueue(now -> {
+            PreparedStatement ps = db.statement(Sql.ENQUEUE_PURGE_INACTIVE);
+            ps.setLong(1, now);
+            ps.setLong(2, lastSeenBefore);
+            return ps.executeUpdate();
+        }, listener, onError);
+    }
+
+    private void enqueue(Enqueue insert, Consumer<Progress> listener, Consumer<SQLException> onError) {
+        db.runAsync(() -> {
+            try {
+                // nur der DB-Thread schreibt in purge_queue, die neuen IDs liegen also zwischen den beiden Maxima
+                long from = maxId();
+                int n = insert.run(System.currentTimeMillis());
+                if (n == 0) {
+                    listener.accept(new Progress(0, 0, 0L, 0L, true));
+                    return;
+                }
+                requests.add(new Request(from, maxId(), n, listener));
+                kick();
+            } catch (SQLException e) {
+                onError.accept(e);
+            }
+        });
+    }
+
+    private long maxId() throws SQLException {
+        try (ResultSet rs = db.statement(Sql.SELECT_PURGE_MAX_ID).executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    // -------------------------
+    // Abarbeiten
+    // -------------------------
+
+    private void kick() {
+        if (running) return;
+        running = true;
+        schedule(0L);
+    }
+
+    private void schedule(long delayMs) {
+        try {
+            executor.schedule(this::step, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Shutdown, geht beim nächsten Start weiter
+        }
+    }
+
+    private void step() {
+        Connection con = db.getConnection();
+        try {
+            long id;
+            UUID uuid;
+            try (ResultSet rs = db.statement(Sql.SELECT_PURGE_HEAD).executeQuery()) {
+                if (!rs.next()) {
+                    running = false;
+                    return;
+                }
+                id = rs.getLong(1);
+                uuid = Uuids.fromBytes(rs.getBytes(2));
+            }
+
+            con.setAutoCommit(false);
+            int sessions = deleteChunk(Sql.DELETE_SESSIONS_CHUNK, uuid, CHUNK);
+            int commands = sessions < CHUNK ? deleteChunk(Sql.DELETE_COMMANDS_CHUNK, uuid, CHUNK - sessions) : 0;
+            boolean last = sessions + commands < CHUNK;
+            if (last) {
+                // der Rest ist klein: ein paar hundert Tage und eine Zeile
+                delete(Sql.DELETE_PLAYTIME_DAILY, uuid);
+                delete(Sql.DELETE_PLAYER, uuid);
+                PreparedStatement ps = db.statement(Sql.DELETE_PURGE);
+                ps.setLong(1, id);
+                ps.executeUpdate();
+            }
+            con.commit();
+
+            if (last) onPurged.accept(uuid);
+            Request req = request(id);
+            if (req != null) {
+                req.sessions += sessions;
+                req.commands += commands;
+                if (last) req.done++;
+                report(req, last && id >= req.toId);
+            }
+            schedule(PAUSE_MS);
+        } catch (SQLException e) {
+            try { con.rollback(); } catch (SQLException ignored) { }
+            db.dropStatements(con);
+            logger.log(Level.WARNING, "Player purge step failed, retrying in " + (RETRY_MS / 1000) + "s: " + e.getMessage(), e);
+            schedule(RETRY_MS);
+        } finally {
+            try { con.setAutoCommit(true); } catch (SQLException ignored) { }
+        }
+    }
+
+    /** Auftrag zur Queue-Zeile {@code id}; Einträge aus einem früheren Lauf haben keinen. */
+    private Request request(long id) {
+        Request head = requests.peek();
+        while (head != null && head.toId < id) {
+            requests.poll();
+            head = requests.peek();
+        }
+        return head != null && id > head.fromId ? head : null;
+    }
+
+    private void report(Request req, boolean finished) {
+        long now = System.currentTimeMillis();
+        if (!finished && now - req.lastReport < REPORT_MS) return;
+        req.lastReport = now;
+        if (finished) requests.poll();
+        req.listener.accept(req.progress(finished));
+    }
+
+    private int deleteChunk(Sql key, UUID uuid, int limit) throws SQLException {
+        PreparedStatement ps = db.statement(key);
+        ps.setBytes(1, Uuids.toBytes(uuid));
+        ps.setInt(2, limit);
+        return db.executeDelete(ps);
+    }
+
+    private void delete(Sql key, UUID uuid) throws SQLException {
+        PreparedStatement ps = db.statement(key);
+        ps.setBytes(1, Uuids.toBytes(uuid));
+        ps.executeUpdate();
+    }
+}
@@ -0,0 +1,154 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Trägt die Sessions von vor der Einführung von {@code playtime_daily} nach. Liest sie in ID-Reihenfolge
+ * in kleinen Transaktionen auf dem DB-Thread und merkt sich den Fortschritt in {@code playtime_backfill}
+ * (in derselben Transaktion), ein Neustart macht also einfach weiter. Gezählt wird nur bis {@code cutoff},
+ * alles danach schreibt die Pipeline selbst. Danach wird die Zustandstabelle gedroppt.
+ */
+final class PlaytimeBackfill {
+
+    static final String STATE_TABLE = "playtime_backfill";
+
+    private static final int CHUNK = 1000;
+    private static final long PAUSE_MS = 50L;
+    private static final long RETRY_MS = 30_000L;
+
+    // byte[] vergleicht sonst nur die Referenz
+    private record DayKey(byte[] uuid, long day) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof DayKey k && k.day == day && Arrays.equals(k.uuid, uuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(uuid) + Long.hashCode(day);
+        }
+    }
+
+    private final Database db;
+    private final PlaytimeRollup rollup;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    private long cutoff;
+    private long lastId;
+    private long sessions;
+
+    PlaytimeBackfill(Database db, PlaytimeRollup rollup, Logger logger, ScheduledExecutorService executor) {
+        this.db = db;
+        this.rollup = rollup;
+        this.logger = logger;
+        this.executor = executor;
+    }
+
+    /**
+     * Nur auf dem DB-Thread aufrufen, nach den Migrationen und vor dem Journal-Replay:
+     * der Cutoff muss stehen, bevor die Pipeline den ersten Checkpoint schreibt.
+     */
+    void startIfNeeded() throws SQLException {
+        Connection con = db.getConnection();
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, STATE_TABLE, new String[]{"TABLE"})) {
+            if (!rs.next()) return;
+        }
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT cutoff, last_id FROM " + STATE_TABLE)) {
+            if (!rs.next()) return;
+            cutoff = rs.getLong(1);
+            lastId = rs.getLong(2);
+        }
+        rollup.cutoff(cutoff);
+        logger.info("Building daily playtime from existing sessions in the background...");
+        schedule(0L);
+    }
+
+    private void schedule(long delayMs) {
+        try {
+            executor.schedule(this::step, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Shutdown, geht beim nächsten Start weiter
+        }
+    }
+
+    private void step() {
+        Connection con = db.getConnection();
+        try {
+            con.setAutoCommit(false);
+
+            int rows = 0;
+            long maxId = lastId;
+            Map<DayKey, Long> days = new HashMap<>();
+            // neuere Sessions beginnen nach dem Cutoff und laufen schon über die Pipeline
+            try (PreparedStatement sel = con.prepareStatement(
+                    "SELECT id, uuid, join_time, leave_time, playtime_ms FROM sessions " +
+                            "WHERE id > ? AND join_time < ? ORDER BY id LIMIT ?")) {
+                sel.setLong(1, lastId);
+                sel.setLong(2, cutoff);
+                sel.setInt(3, CHUNK);
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        maxId = rs.getLong("id");
+                        byte[] uuid = rs.getBytes("uuid");
+                        long join = rs.getLong("join_time");
+                        long played = rs.getLong("playtime_ms");
+                        if (rs.wasNull()) {
+                            long leave = rs.getLong("leave_time");
+                            played = rs.wasNull() ? 0L : leave - join;
+                        }
+                        PlaytimeRollup.splitDays(join, Math.min(join + played, cutoff),
+                                (day, ms) -> days.merge(new DayKey(uuid, day), ms, Long::sum));
+                    }
+                }
+            }
+
+            if (rows == 0) {
+                con.commit();
+                con.setAutoCommit(true);
+                try (Statement st = con.createStatement()) {
+                    st.execute("DROP TABLE " + STATE_TABLE);
+                }
+                logger.info("Daily playtime backfill done: " + sessions + " sessions.");
+                return;
+            }
+
+            PreparedStatement upsert = db.statement(Sql.UPSERT_PLAYTIME_DAILY);
+            for (Map.Entry<DayKey, Long> e : days.entrySet()) {
+                upsert.setBytes(1, e.getKey().uuid());
+                upsert.setLong(2, e.getKey().day());
+                upsert.setLong(3, e.getValue());
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+            try (PreparedStatement progress = con.prepareStatement("UPDATE " + STATE_TABLE + " SET last_id = ?")) {
+                progress.setLong(1, maxId);
+                progress.executeUpdate();
+            }
+            con.commit();
+            lastId = maxId;
+            sessions += rows;
+            schedule(PAUSE_MS);
+        } catch (SQLException e) {
+            try { con.rollback(); } catch (SQLException ignored) { }
+            db.dropStatements(con);
+            logger.log(Level.WARNING, "Daily playtime backfill step failed, retrying in " + (RETRY_MS / 1000) + "s: " + e.getMessage(), e);
+            schedule(RETRY_MS);
+        } finally {
+            try { con.setAutoCommit(true); } catch (SQLException ignored) { }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.Zacian.playerlogger.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Tagesweise Spielzeit in {@code playtime_daily}. Checkpoints und Quits liefern jeweils ein Intervall
+ * {@code [von, bis]}, das hier an den Mitternächten (Europe/Berlin) zerlegt und pro Tag aufaddiert wird.
+ */
+public final class PlaytimeRollup {
+
+    public static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+
+    /** Zeitfenster für {@code /plog top}. {@code ALL} kommt aus dem {@link Leaderboard}, nicht aus dem Rollup. */
+    public enum Window {
+        DAY, WEEK, MONTH, ALL;
+
+        public static Window parse(String s) {
+            try {
+                return valueOf(s.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        /** Erster Tag (Epoch-Tag) des Fensters, in dem {@code now} liegt. */
+        public long firstDay(long now) {
+            LocalDate today = Instant.ofEpochMilli(now).atZone(ZONE).toLocalDate();
+            return switch (this) {
+                case DAY -> today.toEpochDay();
+                case WEEK -> today.with(DayOfWeek.MONDAY).toEpochDay();
+                case MONTH -> today.withDayOfMonth(1).toEpochDay();
+                case ALL -> Long.MIN_VALUE;
+            };
+        }
+    }
+
+    @FunctionalInterface
+    interface DayConsumer {
+        void accept(long day, long ms) throws SQLException;
+    }
+
+    private final Database db;
+    // Intervalle davor stammen aus Sessions, die der Backfill übernimmt
+    private volatile long cutoff;
+
+    PlaytimeRollup(Database db) {
+        this.db = db;
+    }
+
+    void cutoff(long cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    /** Zerlegt {@code [from, to)} in Tagesanteile; alles vor dem Backfill-Cutoff wird ausgelassen. */
+    void split(long from, long to, DayConsumer out) throws SQLException {
+        splitDays(Math.max(from, cutoff), to, out);
+    }
+
+    static void splitDays(long from, long to, DayConsumer out) throws SQLException {
+        if (to <= from) return;
+        ZonedDateTime t = Instant.ofEpochMilli(from).atZone(ZONE);
+        long start = from;
+        while (start < to) {
+            LocalDate day = t.toLocalDate();
+            // Sommerzeit: Tage haben 23 oder 25 Stunden, deshalb über die Zone statt + 86400000
+            long nextMidnight = day.plusDays(1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+            long end = Math.min(to, nextMidnight);
+            out.accept(day.toEpochDay(), end - start);
+            start = end;
+            t = Instant.ofEpochMilli(start).atZone(ZONE);
+        }
+    }
+
+    /**
+     * Top-N der Spielzeit seit {@code firstDay}, nur aus dem Index {@code idx_playtime_daily_day}.
+     * Läuft auf einer Verbindung aus {@link Database#runRead}; die laufende Session ist bis zum letzten Checkpoint drin.
+     */
+    public List<Leaderboard.Row> top(Connection con, long firstDay, int n) throws SQLException {
+        List<Leaderboard.Row> rows = new ArrayList<>(n);
+        PreparedStatement ps = db.statement(con, Sql.SELECT_TOP_SINCE);
+        ps.setLong(1, firstDay);
+        ps.setInt(2, n);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                UUID uuid = Uuids.fromBytes(rs.getBytes(1));
+                rows.add(new Leaderboard.Row(uuid, rs.getString(2), rs.getLong(3)));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,12 @@
+package de.Zacian.playerlogger.storage;
+
+/**
+ * Prioritätsklassen der DB-Arbeit, in dieser Reihenfolge bedient: Session- und Spielzeit-Events,
+ * dann {@code /plog}-Abfragen, zuletzt die Masse der Command-Logs. Jede Klasse hat eine eigene,
+ * begrenzte Warteschlange ({@code database.queue}).
+ */
+public enum Priority {
+    SESSION,
+    READ,
+    COMMAND
+}
@@ -0,0 +1,268 @@
+package de.Zacian.playerlogger.storage;
+
+/**
+ * Alle wiederverwendeten Statements an einer Stelle, jeweils mit SQLite- und MySQL-Variante.
+ * Vorbereitet werden sie über {@link Database#statement(Sql)} bzw. {@link Database#statement(java.sql.Connection, Sql)}.
+ */
+public enum Sql {
+
+    // --- players ---
+    UPSERT_PLAYER(
+            "INSERT INTO players(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
+                    "VALUES(?, ?, ?, ?, ?, 0) " +
+                    "ON CONFLICT(uuid) DO UPDATE SET " +
+                    "name=excluded.name, last_seen=excluded.last_seen, online=excluded.online",
+            "INSERT INTO players(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
+                    "VALUES(?, ?, ?, ?, ?, 0) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "name=VALUES(name), last_seen=VALUES(last_seen), online=VALUES(online)"),
+
+    // ohne online-Flag, z. B. für /plog add
+    UPSERT_PLAYER_MINIMAL(
+            "INSERT INTO players(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
+                    "VALUES(?, ?, ?, ?, 0, 0) " +
+                    "ON CONFLICT(uuid) DO UPDATE SET " +
+                    "name=excluded.name, last_seen=excluded.last_seen",
+            "INSERT INTO players(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
+                    "VALUES(?, ?, ?, ?, 0, 0) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "name=VALUES(name), last_seen=VALUES(last_seen)"),
+
+    UPDATE_PLAYER_SEEN(
+            "UPDATE players SET name=?, last_seen=?, online=? WHERE uuid=?"),
+
+    QUIT_PLAYER(
+            "UPDATE players SET name=?, last_seen=?, online=0, total_playtime_ms = total_playtime_ms + ? WHERE uuid=?"),
+
+    ADD_PLAYTIME(
+            "UPDATE players SET total_playtime_ms = total_playtime_ms + ? WHERE uuid=?"),
+
+    SELECT_PLAYER_STATS(
+            "SELECT name, online, total_playtime_ms, first_seen, last_seen FROM players WHERE uuid=?"),
+
+    SELECT_PLAYER_BY_NAME(
+            "SELECT uuid, name FROM players WHERE name=? LIMIT 1"),
+
+    SELECT_LEADERBOARD(
+            "SELECT uuid, name, total_playtime_ms FROM players"),
+
+    // Namensindex für Commands und Tab-Completion
+    SELECT_NAMES(
+            "SELECT uuid, name, last_seen FROM players"),
+
+    DELETE_PLAYER(
+            "DELETE FROM players WHERE uuid=?"),
+
+    // Checkpoint: Zuwachs seit dem letzten Checkpoint
+    CHECKPOINT_PLAYER(
+            "UPDATE players SET total_playtime_ms = total_playtime_ms + ?, last_seen=? WHERE uuid=?"),
+
+    // --- sessions ---
+    // liefert die neue ID zurück, siehe OpenSession
+    INSERT_SESSION(
+            "INSERT INTO sessions(uuid, join_time) VALUES(?, ?)", true),
+
+    CLOSE_SESSION(
+            "UPDATE sessions SET leave_time=?, playtime_ms=? WHERE id=?"),
+
+    // nur für Quits aus dem Journal, deren Join-ID beim Absturz noch nicht bekannt war
+    CLOSE_SESSION_BY_START(
+            "UPDATE sessions SET leave_time=?, playtime_ms=? WHERE uuid=? AND join_time=? AND leave_time IS NULL"),
+
+    CHECKPOINT_SESSION(
+            "UPDATE sessions SET playtime_ms=? WHERE id=?"),
+
+    CHECKPOINT_SESSION_BY_START(
+            "UPDATE sessions SET playtime_ms=? WHERE uuid=? AND join_time=? AND leave_time IS NULL"),
+
+    // Checkpoint-Stand einer Session aus dem Journal, siehe OpenSession
+    SELECT_SESSION_PLAYTIME(
+            "SELECT playtime_ms FROM sessions WHERE uuid=? AND join_time=? AND leave_time IS NULL"),
+
+    // PlayerPurge: höchstens Limit Zeilen pro Transaktion. SQLite kann DELETE ... LIMIT nur mit Compile-Option.
+    DELETE_SESSIONS_CHUNK(
+            "DELETE FROM sessions WHERE id IN (SELECT id FROM sessions WHERE uuid=? LIMIT ?)",
+            "DELETE FROM sessions WHERE uuid=? LIMIT ?"),
+
+    // TableExport: Obergrenze für Export und Archiv, einmal beim Start des Jobs gelesen
+    SELECT_SESSIONS_MAX_ID(
+            "SELECT COALESCE(MAX(id), 0) FROM sessions"),
+
+    // TableExport: abgeschlossene Sessions nach (leave_time, id) über idx_sessions_leave_time.
+    // Parameter: Cursor-Zeit, bis, max-ID, Cursor-Zeit, Cursor-ID, Limit.
+    EXPORT_SESSIONS(
+            "SELECT s.id, s.uuid, p.name, s.join_time, s.leave_time, s.playtime_ms FROM sessions s " +
+                    "LEFT JOIN players p ON p.uuid = s.uuid " +
+                    "WHERE s.leave_time >= ? AND s.leave_time < ? AND s.id <= ? AND (s.leave_time > ? OR s.id > ?) " +
+                    "ORDER BY s.leave_time, s.id LIMIT ?"),
+
+    // dieselbe max-ID wie beim Export: gelöscht wird genau, was exportiert wurde. Parameter: von, bis, max-ID, Limit.
+    ARCHIVE_SESSIONS_CHUNK(
+            "DELETE FROM sessions WHERE id IN " +
+                    "(SELECT id FROM sessions WHERE leave_time >= ? AND leave_time < ? AND id <= ? LIMIT ?)",
+            "DELETE FROM sessions WHERE leave_time >= ? AND leave_time < ? AND id <= ? LIMIT ?"),
+
+    // --- playtime_daily ---
+    UPSERT_PLAYTIME_DAILY(
+            "INSERT INTO playtime_daily(uuid, day, ms) VALUES(?, ?, ?) " +
+                    "ON CONFLICT(uuid, day) DO UPDATE SET ms = ms + excluded.ms",
+            "INSERT INTO playtime_daily(uuid, day, ms) VALUES(?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE ms = ms + VALUES(ms)"),
+
+    // Aggregation nur über idx_playtime_daily_day, Namen erst für die Top-N
+    SELECT_TOP_SINCE(
+            "SELECT t.uuid, p.name, t.total FROM (" +
+                    "SELECT uuid, SUM(ms) AS total FROM playtime_daily WHERE day >= ? " +
+                    "GROUP BY uuid ORDER BY total DESC LIMIT ?" +
+                    ") t JOIN players p ON p.uuid = t.uuid ORDER BY t.total DESC"),
+
+    DELETE_PLAYTIME_DAILY(
+            "DELETE FROM playtime_daily WHERE uuid=?"),
+
+    // --- command_logs ---
+    // SQLite: command_logs ist eine View über Monatstabellen (CommandLogTables). Lesende Abfragen sortieren und
+    // begrenzen dort ohne Join direkt auf der View, dann führt SQLite die Monate über ihre Indizes zusammen
+    // (MERGE statt Sortieren aller Treffer); gejoint wird erst danach.
+    INSERT_COMMAND(
+            "INSERT INTO command_logs(uuid, time, command_id) VALUES(?, ?, ?)"),
+
+    DELETE_COMMANDS_CHUNK(
+            "DELETE FROM command_logs WHERE id IN (SELECT id FROM command_logs WHERE uuid=? LIMIT ?)",
+            "DELETE FROM command_logs WHERE uuid=? LIMIT ?"),
+
+    SELECT_COMMANDS_MAX_ID(
+            "SELECT id FROM " + CommandLogTables.SEQUENCE,
+            "SELECT COALESCE(MAX(id), 0) FROM command_logs"),
+
+    // TableExport: nach (time, id) über idx_command_time. Parameter wie EXPORT_SESSIONS.
+    EXPORT_COMMANDS(
+            "SELECT c.id, c.uuid, p.name, c.time, t.text FROM " +
+                    "(SELECT id, uuid, time, command_id FROM command_logs " +
+                    "WHERE time >= ? AND time < ? AND id <= ? AND (time > ? OR id > ?) ORDER BY time, id LIMIT ?) c " +
+                    "JOIN command_texts t ON t.id = c.command_id LEFT JOIN players p ON p.uuid = c.uuid " +
+                    "ORDER BY c.time, c.id",
+            "SELECT c.id, c.uuid, p.name, c.time, t.text FROM command_logs c " +
+                    "JOIN command_texts t ON t.id = c.command_id LEFT JOIN players p ON p.uuid = c.uuid " +
+                    "WHERE c.time >= ? AND c.time < ? AND c.id <= ? AND (c.time > ? OR c.id > ?) " +
+                    "ORDER BY c.time, c.id LIMIT ?"),
+
+    ARCHIVE_COMMANDS_CHUNK(
+            "DELETE FROM command_logs WHERE id IN " +
+                    "(SELECT id FROM command_logs WHERE time >= ? AND time < ? AND id <= ? LIMIT ?)",
+            "DELETE FROM command_logs WHERE time >= ? AND time < ? AND id <= ? LIMIT ?"),
+
+    // Keyset-Seite über idx_command_uuid_time, neueste zuerst. Parameter: uuid, seit, Cursor-Zeit (2x),
+    // Cursor-Zeit, Cursor-ID, Limit. Die äußere time-Grenze hält den Range-Scan eng, (time, id) löst Gleichstände auf.
+    SELECT_COMMANDS_PAGE(
+            "SELECT c.id, c.time, t.text FROM " +
+                    "(SELECT id, time, command_id FROM command_logs " +
+                    "WHERE uuid=? AND time >= ? AND time <= ? AND (time < ? OR id < ?) " +
+                    "ORDER BY time DESC, id DESC LIMIT ?) c " +
+                    "JOIN command_texts t ON t.id = c.command_id ORDER BY c.time DESC, c.id DESC",
+            "SELECT c.id, c.time, t.text FROM command_logs c JOIN command_texts t ON t.id = c.command_id " +
+                    "WHERE c.uuid=? AND c.time >= ? AND c.time <= ? AND (c.time < ? OR c.id < ?) " +
+                    "ORDER BY c.time DESC, c.id DESC LIMIT ?"),
+
+    // Treffer eines Suchtexts über idx_command_text_time, Keyset wie bei SELECT_COMMANDS_PAGE.
+    // Parameter: command_id, seit, Cursor-Zeit (2x), Cursor-ID, Limit.
+    SELECT_COMMANDS_BY_TEXT(
+            "SELECT c.id, c.time, p.name FROM " +
+                    "(SELECT id, time, uuid FROM command_logs " +
+                    "WHERE command_id=? AND time >= ? AND time <= ? AND (time < ? OR id < ?) " +
+                    "ORDER BY time DESC, id DESC LIMIT ?) c " +
+                    "LEFT JOIN players p ON p.uuid = c.uuid ORDER BY c.time DESC, c.id DESC",
+            "SELECT c.id, c.time, p.name FROM command_logs c LEFT JOIN players p ON p.uuid = c.uuid " +
+                    "WHERE c.command_id=? AND c.time >= ? AND c.time <= ? AND (c.time < ? OR c.id < ?) " +
+                    "ORDER BY c.time DESC, c.id DESC LIMIT ?"),
+
+    // --- command_texts ---
+    // Volltextsuche, beste Treffer zuerst, nur Texte mit einer Ausführung ab "seit" (EXISTS über
+    // idx_command_text_time), damit das Limit nicht von alten Texten aufgebraucht wird.
+    // SQLite: FTS5 (bm25, kleiner = besser), Parameter: Ausdruck, seit, Limit.
+    // MySQL: FULLTEXT im Boolean Mode, Parameter: Ausdruck, seit, Ausdruck, Limit.
+    SEARCH_COMMAND_TEXTS(
+            "SELECT rowid, text FROM command_texts_fts WHERE command_texts_fts MATCH ? " +
+                    "AND EXISTS (SELECT 1 FROM command_logs c WHERE c.command_id = command_texts_fts.rowid AND c.time >= ?) " +
+                    "ORDER BY rank, rowid LIMIT ?",
+            "SELECT id, text FROM command_texts WHERE MATCH(text) AGAINST(? IN BOOLEAN MODE) " +
+                    "AND EXISTS (SELECT 1 FROM command_logs c WHERE c.command_id = command_texts.id AND c.time >= ?) " +
+                    "ORDER BY MATCH(text) AGAINST(? IN BOOLEAN MODE) DESC, id LIMIT ?"),
+
+    SELECT_COMMAND_TEXT_ID(
+            "SELECT id FROM command_texts WHERE hash=?"),
+
+    // bei Gleichstand (zweiter Server) gewinnt die vorhandene Zeile, die ID wird danach gelesen
+    INSERT_COMMAND_TEXT(
+            "INSERT OR IGNORE INTO command_texts(hash, text) VALUES(?, ?)",
+            "INSERT IGNORE INTO command_texts(hash, text) VALUES(?, ?)"),
+
+    // --- purge_queue ---
+    ENQUEUE_PURGE(
+            "INSERT INTO purge_queue(uuid, requested_at) VALUES(?, ?)"),
+
+    // command_logs/sessions haben keinen Namen, deshalb über players (idx_players_name)
+    ENQUEUE_PURGE_BY_NAME(
+            "INSERT INTO purge_queue(uuid, requested_at) SELECT uuid, ? FROM players WHERE name=?"),
+
+    // über idx_players_last_seen; wer gerade online ist, bleibt
+    ENQUEUE_PURGE_INACTIVE(
+            "INSERT INTO purge_queue(uuid, requested_at) SELECT uuid, ? FROM players WHERE last_seen < ? AND online = 0"),
+
+    SELECT_PURGE_MAX_ID(
+            "SELECT COALESCE(MAX(id), 0) FROM purge_queue"),
+
+    SELECT_PURGE_HEAD(
+            "SELECT id, uuid FROM purge_queue ORDER BY id LIMIT 1"),
+
+    DELETE_PURGE(
+            "DELETE FROM purge_queue WHERE id=?"),
+
+    // --- journal_state ---
+    // last_seq = Session-Events, command_seq = Command-Logs; Marken laufen nur vorwärts
+    UPSERT_JOURNAL_STATE(
+            "INSERT INTO journal_state(journal_id, last_seq, command_seq) VALUES(?, ?, ?) " +
+                    "ON CONFLICT(journal_id) DO UPDATE SET " +
+                    "last_seq=MAX(last_seq, excluded.last_seq), command_seq=MAX(command_seq, excluded.command_seq)",
+            "INSERT INTO journal_state(journal_id, last_seq, command_seq) VALUES(?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "last_seq=GREATEST(last_seq, VALUES(last_seq)), command_seq=GREATEST(command_seq, VALUES(command_seq))"),
+
+    SELECT_JOURNAL_STATE(
+            "SELECT last_seq, command_seq FROM journal_state WHERE journal_id=?"),
+
+    // --- nur SQLite ---
+    // Änderungen der Verbindung inkl. Trigger, siehe Database#executeDelete
+    SELECT_TOTAL_CHANGES(
+            "SELECT total_changes()");
+
+    private final String sqlite;
+    private final String mysql;
+    private final boolean generatedKeys;
+
+    Sql(String both) {
+        this(both, both, false);
+    }
+
+    Sql(String both, boolean generatedKeys) {
+        this(both, both, generatedKeys);
+    }
+
+    Sql(String sqlite, String mysql) {
+        this(sqlite, mysql, false);
+    }
+
+    Sql(String sqlite, String mysql, boolean generatedKeys) {
+        this.sqlite = sqlite;
+        this.mysql = mysql;
+        this.generatedKeys = generatedKeys;
+    }
+
+    public String text(boolean mySql) {
+        return mySql ? mysql : sqlite;
+    }
+
+    /** Mit {@link java.sql.Statement#RETURN_GENERATED_KEYS} vorbereiten. */
+    public boolean generatedKeys() {
+        return generatedKeys;
+    }
+}
@@ -0,0 +1,48 @@
+package de.Zacian.playerlogger.storage;
+
+import de.Zacian.playerlogger.metrics.PluginMetrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Prepared Statements einer Verbindung, einmal vorbereitet und danach wiederverwendet. Jedes ist in ein
+ * {@link TimedStatement} gehüllt, damit alle {@link Sql}-Schlüssel an einer Stelle gemessen werden.
+ * Nicht thread-safe: eine Verbindung wird immer nur von einem Thread gleichzeitig benutzt.
+ */
+final class StatementCache {
+
+    private final Connection connection;
+    private final boolean mySql;
+    private final PluginMetrics metrics;
+    private final Map<Sql, PreparedStatement> statements = new EnumMap<>(Sql.class);
+
+    StatementCache(Connection connection, boolean mySql, PluginMetrics metrics) {
+        this.connection = connection;
+        this.mySql = mySql;
+        this.metrics = metrics;
+    }
+
+    PreparedStatement get(Sql key) throws SQLException {
+        PreparedStatement ps = statements.get(key);
+        if (ps == null || ps.isClosed()) {
+            ps = TimedStatement.wrap(key.generatedKeys()
+                    ? connection.prepareStatement(key.text(mySql), Statement.RETURN_GENERATED_KEYS)
+                    : connection.prepareStatement(key.text(mySql)), metrics.statement(key));
+            statements.put(key, ps);
+        }
+        return ps;
+    }
+
+    /** Schließt alle Statements, z. B. nach einem fehlgeschlagenen Batch oder beim Schließen der Verbindung. */
+    void clear() {
+        for (PreparedStatement ps : statements.values()) {
+            try { ps.close(); } catch (SQLException ignored) { }
+        }
+        statements.clear();
+    }
+}
@@ -0,0 +1,476 @@
+package de.Zacian.playerlogger.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportiert {@code sessions} oder {@code command_logs} eines Zeitraums als gzip-komprimiertes NDJSON oder CSV
+ * nach {@code exports/} im Plugin-Ordner, eine Datei pro Monat. Gelesen wird in Keyset-Chunks von {@link #CHUNK}
+ * Zeilen auf dem DB-Thread, jede Zeile geht direkt in den Stream. Im Speicher liegt also nie mehr als ein Chunk,
+ * und zwischen den Chunks kommen die Event-Batches dran.
+ *
+ * <p>Jede Datei entsteht als {@code .part}. Nach dem Schreiben wird sie per fsync auf die Platte gebracht und
+ * ihr SHA-256 (über die komprimierten Bytes, als {@code .sha256} daneben) noch einmal von der Platte nachgerechnet.
+ * Erst dann wird sie umbenannt. Im Archiv-Modus wird genau dieser Monat danach aus der Datenbank gelöscht.</p>
+ *
+ * <p>Export und Löschen sind auf die größte ID beim Start des Jobs begrenzt. Zeilen mit alter Zeit, aber neuer ID
+ * (Journal-Replay nach einem Ausfall) bleiben so unberührt, statt gelöscht zu werden, nachdem der Cursor schon
+ * an ihrer Zeit vorbei war. Solange eine Hintergrund-Migration die Tabelle noch braucht ({@link CommandLogBackfill}
+ * schreibt alte Commands nach, {@link PlaytimeBackfill} liest alte Sessions), wird nicht archiviert.</p>
+ */
+public final class TableExport {
+
+    private static final int CHUNK = 1000;
+    private static final long PAUSE_MS = 50L;
+    private static final int BUFFER = 64 * 1024;
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public enum Table {
+        SESSIONS(PlaytimeBackfill.STATE_TABLE,
+                Sql.SELECT_SESSIONS_MAX_ID, Sql.EXPORT_SESSIONS, Sql.ARCHIVE_SESSIONS_CHUNK, 5,
+                "id", "uuid", "name", "join_time", "leave_time", "playtime_ms"),
+        COMMANDS(CommandLogBackfill.LEGACY_TABLE,
+                Sql.SELECT_COMMANDS_MAX_ID, Sql.EXPORT_COMMANDS, Sql.ARCHIVE_COMMANDS_CHUNK, 4,
+                "id", "uuid", "name", "time", "command");
+
+        // Tabelle einer Hintergrund-Migration, solange es sie gibt, wird nicht archiviert
+        final String backfill;
+        final Sql maxId;
+        final Sql select;
+        final Sql archive;
+        // Spalte (1-basiert), nach der zusammen mit id geblättert wird
+        final int timeColumn;
+        final String[] columns;
+
+        Table(String backfill, Sql maxId, Sql select, Sql archive, int timeColumn, String... columns) {
+            this.backfill = backfill;
+            this.maxId = maxId;
+            this.select = select;
+            this.archive = archive;
+            this.timeColumn = timeColumn;
+            this.columns = columns;
+        }
+
+        public static Table parse(String s) {
+            try {
+                return valueOf(s.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        String fileName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format parse(String s) {
+            try {
+                return valueOf(s.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        String extension() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Rückmeldungen an den Auftraggeber, auf dem DB-Thread. */
+    public interface Listener {
+        void file(String name, long rows, String sha256);
+
+        void archived(String name, long rows);
+
+        void done(String dir, long rows, int files, long deleted);
+
+        void failed(String error);
+    }
+
+    /** Ein Monat (oder das angeschnittene Stück davon), {@code [from, to)} in Epoch-ms. */
+    private record Segment(LocalDate first, LocalDate end, long from, long to) { }
+
+    private static final class Job {
+        final Table table;
+        final Format format;
+        final boolean archive;
+        final Listener listener;
+        final File dir;
+        final List<Segment> segments;
+        int segment;
+        // Obergrenze für Export und Archiv, -1 = noch nicht gelesen
+        long maxId = -1L;
+
+        Output out;
+        String fileName;
+        long cursorTime;
+        long cursorId;
+        long fileRows;
+        long fileDeleted;
+        boolean deleting;
+
+        long rows;
+        long deleted;
+        int files;
+
+        Job(Table table, Format format, boolean archive, Listener listener, File dir, List<Segment> segments) {
+            this.table = table;
+            this.format = format;
+            this.archive = archive;
+            this.listener = listener;
+            this.dir = dir;
+            this.segments = segments;
+        }
+    }
+
+    private final Database db;
+    private final File baseDir;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    private final AtomicReference<Job> active = new AtomicReference<>();
+
+    TableExport(Database db, File baseDir, Logger logger, ScheduledExecutorService executor) {
+        this.db = db;
+        this.baseDir = baseDir;
+        this.logger = logger;
+        this.executor = executor;
+    }
+
+    /**
+     * Startet den Export von {@code first} bis einschließlich {@code last} (Tage in Europe/Berlin).
+     * @return {@code false}, wenn schon ein Export läuft
+     */
+    public boolean start(Table table, LocalDate first, LocalDate last, Format format, boolean archive, Listener listener) {
+        List<Segment> segments = new ArrayList<>();
+        LocalDate end = last.plusDays(1);
+        for (LocalDate d = first; d.isBefore(end); ) {
+            LocalDate next = d.withDayOfMonth(1).plusMonths(1);
+            if (next.isAfter(end)) next = end;
+            segments.add(new Segment(d, next, epochMs(d), epochMs(next)));
+            d = next;
+        }
+        File dir = new File(baseDir, LocalDateTime.now(PlaytimeRollup.ZONE).format(STAMP));
+        Job job = new Job(table, format, archive, listener, dir, segments);
+        if (!active.compareAndSet(null, job)) return false;
+        schedule(0L);
+        return true;
+    }
+
+    public boolean running() {
+        return active.get() != null;
+    }
+
+    private static long epochMs(LocalDate day) {
+        return day.atStartOfDay(PlaytimeRollup.ZONE).toInstant().toEpochMilli();
+    }
+
+    private void schedule(long delayMs) {
+        try {
+            executor.schedule(this::step, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Shutdown; die .part-Datei bleibt liegen, gelöscht wurde nur, was schon exportiert war
+            active.set(null);
+        }
+    }
+
+    private void step() {
+        Job job = active.get();
+        if (job == null) return;
+        try {
+            if (job.maxId < 0) begin(job);
+            Segment s = job.segments.get(job.segment);
+            if (job.deleting) {
+                archiveChunk(job, s);
+            } else {
+                exportChunk(job, s);
+            }
+            if (job.segment >= job.segments.size()) {
+                active.set(null);
+                logger.info("Export of " + job.table.fileName() + " done: " + job.rows + " rows in " + job.files +
+                        " files, " + job.deleted + " rows archived.");
+                job.listener.done(job.dir.getName(), job.rows, job.files, job.deleted);
+                return;
+            }
+            schedule(PAUSE_MS);
+        } catch (SQLException | IOException e) {
+            if (e instanceof SQLException) db.dropStatements(db.getConnection());
+            if (job.out != null) job.out.abort();
+            active.set(null);
+            logger.log(Level.WARNING, "Export of " + job.table.fileName() + " failed: " + e.getMessage(), e);
+            job.listener.failed(String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void begin(Job job) throws SQLException {
+        if (job.archive && tableExists(job.table.backfill)) {
+            throw new SQLException("a background migration of " + job.table.fileName() + " is not finished yet");
+        }
+        try (ResultSet rs = db.statement(job.table.maxId).executeQuery()) {
+            job.maxId = rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    private boolean tableExists(String table) throws SQLException {
+        Connection con = db.getConnection();
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private void exportChunk(Job job, Segment s) throws SQLException, IOException {
+        if (job.out == null) {
+            job.fileName = job.table.fileName() + "_" + s.first() + "_" + s.end() + "." + job.format.extension() + ".gz";
+            job.out = new Output(new File(job.dir, job.fileName), job.format, job.table.columns);
+            job.cursorTime = s.from();
+            job.cursorId = -1L;
+            job.fileRows = 0L;
+        }
+
+        PreparedStatement ps = db.statement(job.table.select);
+        ps.setLong(1, job.cursorTime);
+        ps.setLong(2, s.to());
+        ps.setLong(3, job.maxId);
+        ps.setLong(4, job.cursorTime);
+        ps.setLong(5, job.cursorId);
+        ps.setInt(6, CHUNK);
+        ps.setFetchSize(CHUNK);
+
+        int n = 0;
+        Object[] values = new Object[job.table.columns.length];
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                for (int i = 0; i < values.length; i++) values[i] = value(rs, i + 1, job.table.columns[i]);
+                job.out.row(values);
+                job.cursorId = rs.getLong(1);
+                job.cursorTime = rs.getLong(job.table.timeColumn);
+                n++;
+            }
+        }
+        job.fileRows += n;
+        job.rows += n;
+        if (n == CHUNK) return;
+
+        // Monat komplett
+        Output out = job.out;
+        job.out = null;
+        if (job.fileRows == 0L) {
+            out.abort();
+            job.segment++;
+            return;
+        }
+        String sha = out.finish();
+        job.files++;
+        job.listener.file(job.fileName, job.fileRows, sha);
+        if (job.archive) {
+            job.deleting = true;
+            job.fileDeleted = 0L;
+        } else {
+            job.segment++;
+        }
+    }
+
+    private void archiveChunk(Job job, Segment s) throws SQLException {
+        PreparedStatement ps = db.statement(job.table.archive);
+        ps.setLong(1, s.from());
+        ps.setLong(2, s.to());
+        ps.setLong(3, job.maxId);
+        ps.setInt(4, CHUNK);
+        int n = db.executeDelete(ps);
+        job.fileDeleted += n;
+        job.deleted += n;
+        if (n < CHUNK) {
+            job.deleting = false;
+            job.segment++;
+            job.listener.archived(job.fileName, job.fileDeleted);
+        }
+    }
+
+    private static Object value(ResultSet rs, int col, String name) throws SQLException {
+        return switch (name) {
+            case "uuid" -> {
+                byte[] b = rs.getBytes(col);
+                yield b != null ? Uuids.fromBytes(b).toString() : null;
+            }
+            case "name", "command" -> rs.getString(col);
+            default -> {
+                long v = rs.getLong(col);
+                yield rs.wasNull() ? null : v;
+            }
+        };
+    }
+
+    // -------------------------
+    // Datei
+    // -------------------------
+
+    /** gzip-Stream in eine {@code .part}-Datei; der Digest sieht genau die Bytes, die auf die Platte gehen. */
+    private static final class Output {
+        private final File target;
+        private final File part;
+        private final Format format;
+        private final String[] columns;
+        private final FileOutputStream file;
+        private final MessageDigest digest;
+        private final GZIPOutputStream gzip;
+        private final Writer writer;
+        private final StringBuilder line = new StringBuilder(256);
+
+        Output(File target, Format format, String[] columns) throws IOException {
+            this.target = target;
+            this.part = new File(target.getPath() + ".part");
+            this.format = format;
+            this.columns = columns;
+            Files.createDirectories(target.getParentFile().toPath());
+            this.file = new FileOutputStream(part);
+            this.digest = sha256();
+            this.gzip = new GZIPOutputStream(new DigestOutputStream(new BufferedOutputStream(file, BUFFER), digest), BUFFER);
+            this.writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER);
+            if (format == Format.CSV) {
+                writer.write(String.join(",", columns));
+                writer.write('\n');
+            }
+        }
+
+        void row(Object[] values) throws IOException {
+            line.setLength(0);
+            if (format == Format.NDJSON) {
+                line.append('{');
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) line.append(',');
+                    line.append('"').append(columns[i]).append("\":");
+                    Object v = values[i];
+                    if (v == null) {
+                        line.append("null");
+                    } else if (v instanceof String str) {
+                        json(line, str);
+                    } else {
+                        line.append(v);
+                    }
+                }
+                line.append('}');
+            } else {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) line.append(',');
+                    Object v = values[i];
+                    if (v instanceof String str) {
+                        csv(line, str);
+                    } else if (v != null) {
+                        line.append(v);
+                    }
+                }
+            }
+            line.append('\n');
+            writer.append(line);
+        }
+
+        /** Schließt den Stream, fsync, prüft den SHA-256 gegen die Platte und benennt um. */
+        String finish() throws IOException {
+            writer.flush();
+            gzip.finish();
+            gzip.flush();
+            file.getFD().sync();
+            writer.close();
+            String sha = HexFormat.of().formatHex(digest.digest());
+
+            MessageDigest check = sha256();
+            byte[] buf = new byte[BUFFER];
+            try (InputStream in = Files.newInputStream(part.toPath())) {
+                int r;
+                while ((r = in.read(buf)) > 0) check.update(buf, 0, r);
+            }
+            if (!sha.equals(HexFormat.of().formatHex(check.digest()))) {
+                throw new IOException("checksum mismatch after writing " + part.getName());
+            }
+
+            Files.move(part.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            try (FileOutputStream out = new FileOutputStream(target.getPath() + ".sha256")) {
+                // Format von sha256sum, prüfbar mit "sha256sum -c"
+                out.write((sha + "  " + target.getName() + "\n").getBytes(StandardCharsets.US_ASCII));
+                out.getFD().sync();
+            }
+            return sha;
+        }
+
+        void abort() {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // Datei wird ohnehin verworfen
+            }
+            part.delete();
+        }
+
+        private static MessageDigest sha256() throws IOException {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private static void json(StringBuilder sb, String s) {
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                    }
+                }
+            }
+            sb.append('"');
+        }
+
+        private static void csv(StringBuilder sb, String s) {
+            boolean quote = s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0;
+            if (!quote) {
+                sb.append(s);
+                return;
+            }
+            sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package de.Zacian.playerlogger.storage;
+
+import de.Zacian.playerlogger.metrics.Histogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+
+/**
+ * Misst die Ausführung eines Statements in das Histogramm seines {@link Sql}-Schlüssels. Alles außer
+ * {@code execute*} wird unverändert durchgereicht. Gemessen wird bis das Ergebnis da ist, bei Abfragen also bis zum
+ * ResultSet, nicht das Lesen der Zeilen. Leere Batches und fehlgeschlagene Aufrufe zählen nicht mit.
+ */
+final class TimedStatement implements InvocationHandler {
+
+    private final PreparedStatement target;
+    private final Histogram histogram;
+
+    private TimedStatement(PreparedStatement target, Histogram histogram) {
+        this.target = target;
+        this.histogram = histogram;
+    }
+
+    static PreparedStatement wrap(PreparedStatement ps, Histogram histogram) {
+        return (PreparedStatement) Proxy.newProxyInstance(TimedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, new TimedStatement(ps, histogram));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        // nur die Varianten ohne SQL-Text, die anderen sind auf einem PreparedStatement ohnehin verboten
+        boolean timed = method.getParameterCount() == 0 && method.getName().startsWith("execute");
+        long start = timed ? System.nanoTime() : 0L;
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        if (timed && !isEmptyBatch(result)) histogram.recordSince(start);
+        return result;
+    }
+
+    private static boolean isEmptyBatch(Object result) {
+        return result instanceof int[] counts && counts.length == 0
+                || result instanceof long[] large && large.length == 0;
+    }
+}
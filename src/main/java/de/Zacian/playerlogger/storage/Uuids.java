@@ -0,0 +1,25 @@
+package de.Zacian.playerlogger.storage;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/** UUIDs werden als 16 Byte gespeichert ({@code BINARY(16)} bzw. {@code BLOB}). */
+public final class Uuids {
+
+    private Uuids() { }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            throw new IllegalArgumentException("UUID needs 16 bytes");
+        }
+        ByteBuffer bb = ByteBuffer.wrap(bytes);
+        return new UUID(bb.getLong(), bb.getLong());
+    }
+}
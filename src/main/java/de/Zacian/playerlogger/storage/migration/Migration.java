@@ -0,0 +1,16 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.SQLException;
+
+/**
+ * Ein Schritt der Schema-Historie. Versionen werden aufsteigend genau einmal angewendet
+ * und in {@code schema_version} vermerkt; siehe {@link SchemaMigrator}.
+ */
+public interface Migration {
+
+    int version();
+
+    String description();
+
+    void apply(MigrationContext ctx) throws SQLException;
+}
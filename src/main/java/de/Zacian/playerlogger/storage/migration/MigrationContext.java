@@ -0,0 +1,90 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+/** Verbindung und Hilfsfunktionen für Migrationen. Läuft auf dem DB-Thread. */
+public final class MigrationContext {
+
+    @FunctionalInterface
+    public interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    private final Connection con;
+    private final boolean mySql;
+    private final Logger logger;
+    private final int chunkSize;
+
+    public MigrationContext(Connection con, boolean mySql, Logger logger, int chunkSize) {
+        this.con = con;
+        this.mySql = mySql;
+        this.logger = logger;
+        this.chunkSize = Math.max(100, chunkSize);
+    }
+
+    public Connection connection() {
+        return con;
+    }
+
+    public boolean isMySql() {
+        return mySql;
+    }
+
+    public Logger logger() {
+        return logger;
+    }
+
+    /** Zeilen pro Transaktion beim Umkopieren großer Tabellen. */
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    public void execute(String sql) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    /** Legt einen Index an und ignoriert "existiert schon" (MySQL kennt kein CREATE INDEX IF NOT EXISTS). */
+    public void createIndex(String sql) throws SQLException {
+        try {
+            execute(sql);
+        } catch (SQLException e) {
+            // SQLite: "already exists", MySQL: "Duplicate key name"
+            String msg = String.valueOf(e.getMessage()).toLowerCase();
+            if (msg.contains("already exists") || msg.contains("duplicate") || msg.contains("exists")) {
+                return;
+            }
+            throw e;
+        }
+    }
+
+    public boolean tableExists(String table) throws SQLException {
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    public void dropTableIfExists(String table) throws SQLException {
+        execute("DROP TABLE IF EXISTS " + table);
+    }
+
+    /** Führt die Arbeit in einer eigenen Transaktion aus (Rollback bei Fehler). */
+    public void inTransaction(SqlWork work) throws SQLException {
+        boolean auto = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try {
+            work.run();
+            con.commit();
+        } catch (SQLException | RuntimeException e) {
+            try { con.rollback(); } catch (SQLException ignored) { }
+            throw e;
+        } finally {
+            con.setAutoCommit(auto);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Versionierte Schema-Migrationen statt {@code CREATE IF NOT EXISTS} und geschluckter Fehler.
+ * Der Stand steht in {@code schema_version}; fehlende Versionen werden der Reihe nach nachgezogen.
+ */
+public final class SchemaMigrator {
+
+    private final List<Migration> migrations = List.of(
+            new V1BaseSchema(),
+            new V2BinaryUuids(),
+            new V3CommandDictionary(),
+            new V4PartitionCommandLog(),
+            new V5JournalState(),
+            new V6JournalLanes(),
+            new V7PlaytimeDaily(),
+            new V8CommandSearch(),
+            new V9PurgeQueue(),
+            new V10CommandLogTables()
+    );
+
+    public void migrate(MigrationContext ctx) throws SQLException {
+        ctx.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                "version INT NOT NULL PRIMARY KEY," +
+                "description VARCHAR(200) NOT NULL," +
+                "applied_at BIGINT NOT NULL" +
+                ")");
+
+        int current = currentVersion(ctx);
+        List<Migration> pending = migrations.stream()
+                .filter(m -> m.version() > current)
+                .sorted(Comparator.comparingInt(Migration::version))
+                .toList();
+
+        for (Migration m : pending) {
+            ctx.logger().info("Applying schema migration V" + m.version() + ": " + m.description());
+            long start = System.currentTimeMillis();
+            m.apply(ctx);
+            try (PreparedStatement ps = ctx.connection().prepareStatement(
+                    "INSERT INTO schema_version(version, description, applied_at) VALUES(?, ?, ?)")) {
+                ps.setInt(1, m.version());
+                ps.setString(2, m.description());
+                ps.setLong(3, System.currentTimeMillis());
+                ps.executeUpdate();
+            }
+            ctx.logger().info("Schema migration V" + m.version() + " done in " + (System.currentTimeMillis() - start) + " ms.");
+        }
+    }
+
+    private static int currentVersion(MigrationContext ctx) throws SQLException {
+        try (Statement st = ctx.connection().createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
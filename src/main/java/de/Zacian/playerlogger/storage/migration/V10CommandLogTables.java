@@ -0,0 +1,54 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import de.Zacian.playerlogger.storage.CommandLogTables;
+
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQLite: {@code command_logs} wird in Monatstabellen aufgeteilt, damit die Retention ganze Tabellen droppen kann
+ * statt Zeilen zu löschen (siehe {@link CommandLogTables}). Umkopiert wird nichts: die bisherige Tabelle wird zur
+ * ältesten Monatstabelle und nimmt alles bis Ende des laufenden Monats, sie fällt weg, sobald dieser Monat
+ * abgelaufen ist. MySQL ist seit V4 partitioniert und bleibt unverändert.
+ */
+final class V10CommandLogTables implements Migration {
+
+    /** So viele Monate im Voraus anlegen; danach hält die Retention den Vorlauf. */
+    private static final int MONTHS_AHEAD = 2;
+
+    @Override
+    public int version() {
+        return 10;
+    }
+
+    @Override
+    public String description() {
+        return "split command_logs into monthly tables";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        if (ctx.isMySql()) return;
+
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth m = now; !m.isAfter(now.plusMonths(MONTHS_AHEAD)); m = m.plusMonths(1)) months.add(m);
+
+        ctx.inTransaction(() -> {
+            // AUTOINCREMENT: auch IDs gelöschter Zeilen nicht noch einmal vergeben
+            ctx.execute("CREATE TABLE " + CommandLogTables.SEQUENCE + " (id INTEGER NOT NULL)");
+            ctx.execute("INSERT INTO " + CommandLogTables.SEQUENCE + "(id) SELECT MAX(" +
+                    "COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'command_logs'), 0), " +
+                    "COALESCE((SELECT MAX(id) FROM command_logs), 0))");
+            // die Indizes ziehen mit um und behalten ihre Namen
+            ctx.execute("ALTER TABLE command_logs RENAME TO " + CommandLogTables.name(now));
+            for (YearMonth m : months.subList(1, months.size())) {
+                CommandLogTables.create(ctx.connection(), m);
+            }
+            CommandLogTables.rebuildView(ctx.connection(), months);
+        });
+    }
+}
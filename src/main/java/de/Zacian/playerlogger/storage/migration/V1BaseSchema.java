@@ -0,0 +1,110 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.SQLException;
+
+/**
+ * Das ursprüngliche Schema (UUIDs als Text). Bestehende Installationen haben die Tabellen
+ * schon, deshalb bleibt alles {@code IF NOT EXISTS}.
+ */
+final class V1BaseSchema implements Migration {
+
+    @Override
+    public int version() {
+        return 1;
+    }
+
+    @Override
+    public String description() {
+        return "base schema";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        if (ctx.isMySql()) {
+            // MySQL / MariaDB
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS players (" +
+                            "uuid VARCHAR(36) NOT NULL PRIMARY KEY," +
+                            "name VARCHAR(16) NOT NULL," +
+                            "first_seen BIGINT NOT NULL," +
+                            "last_seen BIGINT NOT NULL," +
+                            "online TINYINT(1) NOT NULL DEFAULT 0," +
+                            "total_playtime_ms BIGINT NOT NULL DEFAULT 0" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+            );
+
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS sessions (" +
+                            "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
+                            "uuid VARCHAR(36) NOT NULL," +
+                            "join_time BIGINT NOT NULL," +
+                            "leave_time BIGINT NULL," +
+                            "playtime_ms BIGINT NULL," +
+                            "CONSTRAINT fk_sessions_players FOREIGN KEY(uuid) REFERENCES players(uuid)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+            );
+
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS command_logs (" +
+                            "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
+                            "uuid VARCHAR(36) NOT NULL," +
+                            "name VARCHAR(16) NOT NULL," +
+                            "time BIGINT NOT NULL," +
+                            "command TEXT NOT NULL" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+            );
+
+            ctx.createIndex("CREATE INDEX idx_sessions_uuid ON sessions(uuid)");
+            ctx.createIndex("CREATE INDEX idx_sessions_leave_time ON sessions(leave_time)");
+
+            ctx.createIndex("CREATE INDEX idx_command_uuid ON command_logs(uuid)");
+            ctx.createIndex("CREATE INDEX idx_command_time ON command_logs(time)");
+            ctx.createIndex("CREATE INDEX idx_command_uuid_time ON command_logs(uuid, time)");
+
+            ctx.createIndex("CREATE INDEX idx_players_online ON players(online)");
+
+        } else {
+            // SQLite
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS players (" +
+                            "uuid TEXT PRIMARY KEY," +
+                            "name TEXT NOT NULL," +
+                            "first_seen INTEGER NOT NULL," +
+                            "last_seen INTEGER NOT NULL," +
+                            "online INTEGER NOT NULL DEFAULT 0," +
+                            "total_playtime_ms INTEGER NOT NULL DEFAULT 0" +
+                            ")"
+            );
+
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS sessions (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "uuid TEXT NOT NULL," +
+                            "join_time INTEGER NOT NULL," +
+                            "leave_time INTEGER," +
+                            "playtime_ms INTEGER," +
+                            "FOREIGN KEY(uuid) REFERENCES players(uuid) ON DELETE CASCADE" +
+                            ")"
+            );
+
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS command_logs (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "uuid TEXT NOT NULL," +
+                            "name TEXT NOT NULL," +
+                            "time INTEGER NOT NULL," +
+                            "command TEXT NOT NULL" +
+                            ")"
+            );
+
+            ctx.execute("CREATE INDEX IF NOT EXISTS idx_sessions_uuid ON sessions(uuid)");
+            ctx.execute("CREATE INDEX IF NOT EXISTS idx_sessions_leave_time ON sessions(leave_time)");
+
+            ctx.execute("CREATE INDEX IF NOT EXISTS idx_command_uuid ON command_logs(uuid)");
+            ctx.execute("CREATE INDEX IF NOT EXISTS idx_command_time ON command_logs(time)");
+            ctx.execute("CREATE INDEX IF NOT EXISTS idx_command_uuid_time ON command_logs(uuid, time)");
+
+            ctx.execute("CREATE INDEX IF NOT EXISTS idx_players_online ON players(online)");
+        }
+    }
+}
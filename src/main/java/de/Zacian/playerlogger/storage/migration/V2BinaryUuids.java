@@ -0,0 +1,313 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import de.Zacian.playerlogger.storage.Uuids;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Stellt alle UUID-Spalten von Text auf 16 Byte um ({@code BINARY(16)} / {@code BLOB}).
+ *
+ * <p>Die neuen Tabellen werden als {@code *_v2} daneben angelegt und per Keyset in kleinen
+ * Transaktionen befüllt, so dass keine große Tabelle minutenlang gesperrt ist. Erst zum Schluss
+ * werden die Tabellen getauscht (MySQL: ein atomares {@code RENAME TABLE}). Bricht der Lauf ab,
+ * bleibt das alte Schema unangetastet und die Migration startet beim nächsten Mal neu.</p>
+ */
+final class V2BinaryUuids implements Migration {
+
+    @Override
+    public int version() {
+        return 2;
+    }
+
+    @Override
+    public String description() {
+        return "store UUIDs as 16 bytes";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        // SQLite: sessions_v2 verweist schon auf den endgültigen Namen "players", der bis zum Tausch
+        // noch die alte Tabelle ist. foreign_keys lässt sich nur außerhalb einer Transaktion umschalten.
+        boolean fk = !ctx.isMySql() && foreignKeysOn(ctx);
+        if (fk) ctx.execute("PRAGMA foreign_keys=OFF");
+        try {
+            migrate(ctx);
+        } finally {
+            if (fk) ctx.execute("PRAGMA foreign_keys=ON");
+        }
+    }
+
+    private static boolean foreignKeysOn(MigrationContext ctx) throws SQLException {
+        try (var st = ctx.connection().createStatement(); ResultSet rs = st.executeQuery("PRAGMA foreign_keys")) {
+            return rs.next() && rs.getInt(1) == 1;
+        }
+    }
+
+    private static void migrate(MigrationContext ctx) throws SQLException {
+        // Reste eines abgebrochenen Laufs
+        ctx.dropTableIfExists("command_logs_v2");
+        ctx.dropTableIfExists("sessions_v2");
+        ctx.dropTableIfExists("players_v2");
+
+        createTables(ctx);
+
+        long players = copyPlayers(ctx);
+        long lastSession = copyById(ctx, "sessions", 0L);
+        long lastCommand = copyById(ctx, "command_logs", 0L);
+
+        // was während des Kopierens noch dazugekommen ist
+        copyById(ctx, "sessions", lastSession);
+        copyById(ctx, "command_logs", lastCommand);
+
+        swap(ctx);
+        ctx.logger().info("Converted UUID columns of " + players + " players to binary.");
+    }
+
+    private static void createTables(MigrationContext ctx) throws SQLException {
+        if (ctx.isMySql()) {
+            ctx.execute(
+                    "CREATE TABLE players_v2 (" +
+                            "uuid BINARY(16) NOT NULL PRIMARY KEY," +
+                            "name VARCHAR(16) NOT NULL," +
+                            "first_seen BIGINT NOT NULL," +
+                            "last_seen BIGINT NOT NULL," +
+                            "online TINYINT(1) NOT NULL DEFAULT 0," +
+                            "total_playtime_ms BIGINT NOT NULL DEFAULT 0" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+            );
+            ctx.execute(
+                    "CREATE TABLE sessions_v2 (" +
+                            "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
+                            "uuid BINARY(16) NOT NULL," +
+                            "join_time BIGINT NOT NULL," +
+                            "leave_time BIGINT NULL," +
+                            "playtime_ms BIGINT NULL," +
+                            "CONSTRAINT fk_sessions_players_v2 FOREIGN KEY(uuid) REFERENCES players_v2(uuid)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+            );
+            ctx.execute(
+                    "CREATE TABLE command_logs_v2 (" +
+                            "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
+                            "uuid BINARY(16) NOT NULL," +
+                            "name VARCHAR(16) NOT NULL," +
+                            "time BIGINT NOT NULL," +
+                            "command TEXT NOT NULL" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+            );
+            // Indexnamen sind bei MySQL pro Tabelle, also schon vor dem Tausch anlegen
+            createIndexes(ctx, "_v2");
+        } else {
+            ctx.execute(
+                    "CREATE TABLE players_v2 (" +
+                            "uuid BLOB PRIMARY KEY," +
+                            "name TEXT NOT NULL," +
+                            "first_seen INTEGER NOT NULL," +
+                            "last_seen INTEGER NOT NULL," +
+                            "online INTEGER NOT NULL DEFAULT 0," +
+                            "total_playtime_ms INTEGER NOT NULL DEFAULT 0" +
+                            ")"
+            );
+            // Referenz zeigt schon auf den endgültigen Namen (foreign_keys ist solange aus, siehe apply)
+            ctx.execute(
+                    "CREATE TABLE sessions_v2 (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "uuid BLOB NOT NULL," +
+                            "join_time INTEGER NOT NULL," +
+                            "leave_time INTEGER," +
+                            "playtime_ms INTEGER," +
+                            "FOREIGN KEY(uuid) REFERENCES players(uuid) ON DELETE CASCADE" +
+                            ")"
+            );
+            ctx.execute(
+                    "CREATE TABLE command_logs_v2 (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "uuid BLOB NOT NULL," +
+                            "name TEXT NOT NULL," +
+                            "time INTEGER NOT NULL," +
+                            "command TEXT NOT NULL" +
+                            ")"
+            );
+        }
+    }
+
+    private static void createIndexes(MigrationContext ctx, String suffix) throws SQLException {
+        String sessions = "sessions" + suffix;
+        String commands = "command_logs" + suffix;
+        String players = "players" + suffix;
+        ctx.createIndex("CREATE INDEX idx_sessions_uuid ON " + sessions + "(uuid)");
+        ctx.createIndex("CREATE INDEX idx_sessions_leave_time ON " + sessions + "(leave_time)");
+        ctx.createIndex("CREATE INDEX idx_command_uuid ON " + commands + "(uuid)");
+        ctx.createIndex("CREATE INDEX idx_command_time ON " + commands + "(time)");
+        ctx.createIndex("CREATE INDEX idx_command_uuid_time ON " + commands + "(uuid, time)");
+        ctx.createIndex("CREATE INDEX idx_players_online ON " + players + "(online)");
+    }
+
+    // -------------------------
+    // Kopieren
+    // -------------------------
+
+    private static long copyPlayers(MigrationContext ctx) throws SQLException {
+        Connection con = ctx.connection();
+        String last = "";
+        long copied = 0;
+        long skipped = 0;
+
+        try (PreparedStatement sel = con.prepareStatement(
+                "SELECT uuid, name, first_seen, last_seen, online, total_playtime_ms FROM players " +
+                        "WHERE uuid > ? ORDER BY uuid LIMIT ?");
+             PreparedStatement ins = con.prepareStatement(
+                     "INSERT INTO players_v2(uuid, name, first_seen, last_seen, online, total_playtime_ms) " +
+                             "VALUES(?, ?, ?, ?, ?, ?)")) {
+            while (true) {
+                sel.setString(1, last);
+                sel.setInt(2, ctx.chunkSize());
+                int[] rows = {0, 0};
+                String[] lastSeenKey = {last};
+
+                ctx.inTransaction(() -> {
+                    try (ResultSet rs = sel.executeQuery()) {
+                        while (rs.next()) {
+                            rows[0]++;
+                            String key = rs.getString("uuid");
+                            lastSeenKey[0] = key;
+                            UUID uuid = parse(key);
+                            if (uuid == null) {
+                                rows[1]++;
+                                continue;
+                            }
+                            ins.setBytes(1, Uuids.toBytes(uuid));
+                            ins.setString(2, rs.getString("name"));
+                            ins.setLong(3, rs.getLong("first_seen"));
+                            ins.setLong(4, rs.getLong("last_seen"));
+                            ins.setInt(5, rs.getInt("online"));
+                            ins.setLong(6, rs.getLong("total_playtime_ms"));
+                            ins.addBatch();
+                        }
+                    }
+                    ins.executeBatch();
+                });
+
+                if (rows[0] == 0) break;
+                last = lastSeenKey[0];
+                copied += rows[0] - rows[1];
+                skipped += rows[1];
+            }
+        }
+
+        if (skipped > 0) {
+            ctx.logger().warning("Skipped " + skipped + " players with an invalid UUID.");
+        }
+        return copied;
+    }
+
+    /** Kopiert sessions bzw. command_logs ab {@code afterId} (IDs bleiben erhalten). Liefert die letzte ID. */
+    private static long copyById(MigrationContext ctx, String table, long afterId) throws SQLException {
+        Connection con = ctx.connection();
+        boolean sessions = table.equals("sessions");
+        String cols = sessions
+                ? "id, uuid, join_time, leave_time, playtime_ms"
+                : "id, uuid, name, time, command";
+
+        long last = afterId;
+        long skipped = 0;
+        try (PreparedStatement sel = con.prepareStatement(
+                "SELECT " + cols + " FROM " + table + " WHERE id > ? ORDER BY id LIMIT ?");
+             PreparedStatement ins = con.prepareStatement(
+                     "INSERT INTO " + table + "_v2(" + cols + ") VALUES(?, ?, ?, ?, ?)")) {
+            while (true) {
+                sel.setLong(1, last);
+                sel.setInt(2, ctx.chunkSize());
+                long[] state = {0, last, 0}; // rows, lastId, skipped
+
+                ctx.inTransaction(() -> {
+                    try (ResultSet rs = sel.executeQuery()) {
+                        while (rs.next()) {
+                            state[0]++;
+                            long id = rs.getLong("id");
+                            state[1] = id;
+                            UUID uuid = parse(rs.getString("uuid"));
+                            if (uuid == null) {
+                                state[2]++;
+                                continue;
+                            }
+                            ins.setLong(1, id);
+                            ins.setBytes(2, Uuids.toBytes(uuid));
+                            if (sessions) {
+                                ins.setLong(3, rs.getLong("join_time"));
+                                setNullableLong(ins, 4, rs, "leave_time");
+                                setNullableLong(ins, 5, rs, "playtime_ms");
+                            } else {
+                                ins.setString(3, rs.getString("name"));
+                                ins.setLong(4, rs.getLong("time"));
+                                ins.setString(5, rs.getString("command"));
+                            }
+                            ins.addBatch();
+                        }
+                    }
+                    ins.executeBatch();
+                });
+
+                if (state[0] == 0) break;
+                last = state[1];
+                skipped += state[2];
+            }
+        }
+
+        if (skipped > 0) {
+            ctx.logger().warning("Skipped " + skipped + " rows in " + table + " with an invalid UUID.");
+        }
+        return last;
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int idx, ResultSet rs, String col) throws SQLException {
+        long v = rs.getLong(col);
+        if (rs.wasNull()) {
+            ps.setNull(idx, Types.BIGINT);
+        } else {
+            ps.setLong(idx, v);
+        }
+    }
+
+    private static UUID parse(String s) {
+        if (s == null) return null;
+        try {
+            return UUID.fromString(s);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // -------------------------
+    // Tausch
+    // -------------------------
+
+    private static void swap(MigrationContext ctx) throws SQLException {
+        if (ctx.isMySql()) {
+            ctx.execute("RENAME TABLE " +
+                    "players TO players_old, sessions TO sessions_old, command_logs TO command_logs_old, " +
+                    "players_v2 TO players, sessions_v2 TO sessions, command_logs_v2 TO command_logs");
+            // sessions_old referenziert players_old
+            ctx.execute("DROP TABLE command_logs_old");
+            ctx.execute("DROP TABLE sessions_old");
+            ctx.execute("DROP TABLE players_old");
+            return;
+        }
+
+        // SQLite (foreign_keys ist hier aus, siehe apply)
+        ctx.inTransaction(() -> {
+            ctx.execute("DROP TABLE command_logs");
+            ctx.execute("DROP TABLE sessions");
+            ctx.execute("DROP TABLE players");
+            ctx.execute("ALTER TABLE players_v2 RENAME TO players");
+            ctx.execute("ALTER TABLE sessions_v2 RENAME TO sessions");
+            ctx.execute("ALTER TABLE command_logs_v2 RENAME TO command_logs");
+            // Indexnamen sind bei SQLite global, die alten sind mit den Tabellen weg
+            createIndexes(ctx, "");
+        });
+    }
+}
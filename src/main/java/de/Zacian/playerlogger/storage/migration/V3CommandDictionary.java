@@ -0,0 +1,72 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.SQLException;
+
+/**
+ * Command-Texte werden in {@code command_texts} interniert, {@code command_logs} speichert nur noch
+ * {@code (uuid, time, command_id)}; der Name kommt aus {@code players}. Die alte Tabelle wird nur
+ * umbenannt ({@code command_logs_legacy}) und danach im Hintergrund überführt, siehe CommandLogBackfill.
+ */
+final class V3CommandDictionary implements Migration {
+
+    @Override
+    public int version() {
+        return 3;
+    }
+
+    @Override
+    public String description() {
+        return "dictionary-encoded command log";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        if (ctx.isMySql()) {
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS command_texts (" +
+                            "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
+                            "hash BINARY(32) NOT NULL," +
+                            "text TEXT NOT NULL," +
+                            "UNIQUE KEY uq_command_texts_hash (hash)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+            );
+            ctx.execute("RENAME TABLE command_logs TO command_logs_legacy");
+            ctx.execute(
+                    "CREATE TABLE command_logs (" +
+                            "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
+                            "uuid BINARY(16) NOT NULL," +
+                            "time BIGINT NOT NULL," +
+                            "command_id BIGINT NOT NULL" +
+                            ") ENGINE=InnoDB"
+            );
+            ctx.createIndex("CREATE INDEX idx_command_uuid_time ON command_logs(uuid, time)");
+            ctx.createIndex("CREATE INDEX idx_command_time ON command_logs(time)");
+            return;
+        }
+
+        ctx.inTransaction(() -> {
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS command_texts (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "hash BLOB NOT NULL UNIQUE," +
+                            "text TEXT NOT NULL" +
+                            ")"
+            );
+            // Indexnamen sind global, die alten würden mit umziehen
+            ctx.execute("DROP INDEX IF EXISTS idx_command_uuid");
+            ctx.execute("DROP INDEX IF EXISTS idx_command_time");
+            ctx.execute("DROP INDEX IF EXISTS idx_command_uuid_time");
+            ctx.execute("ALTER TABLE command_logs RENAME TO command_logs_legacy");
+            ctx.execute(
+                    "CREATE TABLE command_logs (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "uuid BLOB NOT NULL," +
+                            "time INTEGER NOT NULL," +
+                            "command_id INTEGER NOT NULL" +
+                            ")"
+            );
+            ctx.execute("CREATE INDEX idx_command_uuid_time ON command_logs(uuid, time)");
+            ctx.execute("CREATE INDEX idx_command_time ON command_logs(time)");
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import de.Zacian.playerlogger.storage.CommandLogPartitions;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * MySQL: {@code command_logs} wird monatlich nach {@code time} partitioniert, damit die Retention
+ * ganze Partitionen droppen kann. Der Primärschlüssel muss dafür {@code time} enthalten.
+ * SQLite bleibt unverändert (siehe CommandLogRetention).
+ */
+final class V4PartitionCommandLog implements Migration {
+
+    /** So viele Monate im Voraus anlegen; danach hält die Retention den Vorlauf. */
+    private static final int MONTHS_AHEAD = 2;
+
+    @Override
+    public int version() {
+        return 4;
+    }
+
+    @Override
+    public String description() {
+        return "partition command_logs by month";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        if (!ctx.isMySql()) return;
+
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        YearMonth first = now;
+        // die ältesten Einträge (auch die, die der Backfill noch überträgt) bekommen eigene Monate
+        long min = minTime(ctx, "command_logs");
+        if (ctx.tableExists("command_logs_legacy")) {
+            long legacy = minTime(ctx, "command_logs_legacy");
+            if (legacy > 0 && (min <= 0 || legacy < min)) min = legacy;
+        }
+        if (min > 0) {
+            YearMonth m = CommandLogPartitions.monthOf(min);
+            if (m.isBefore(first)) first = m;
+        }
+
+        StringBuilder parts = new StringBuilder();
+        for (YearMonth m = first; !m.isAfter(now.plusMonths(MONTHS_AHEAD)); m = m.plusMonths(1)) {
+            parts.append(CommandLogPartitions.definition(m)).append(", ");
+        }
+        parts.append(CommandLogPartitions.MAX);
+
+        ctx.execute("ALTER TABLE command_logs DROP PRIMARY KEY, ADD PRIMARY KEY (id, time)");
+        ctx.execute("ALTER TABLE command_logs PARTITION BY RANGE (time) (" + parts + ")");
+    }
+
+    private static long minTime(MigrationContext ctx, String table) throws SQLException {
+        try (Statement st = ctx.connection().createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(time) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+}
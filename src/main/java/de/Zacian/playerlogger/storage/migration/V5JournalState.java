@@ -0,0 +1,36 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.SQLException;
+
+/** Letzte committete Sequenz pro lokalem Event-Journal, siehe EventJournal. */
+final class V5JournalState implements Migration {
+
+    @Override
+    public int version() {
+        return 5;
+    }
+
+    @Override
+    public String description() {
+        return "event journal high-water mark";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        if (ctx.isMySql()) {
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS journal_state (" +
+                            "journal_id BINARY(16) NOT NULL PRIMARY KEY," +
+                            "last_seq BIGINT NOT NULL" +
+                            ") ENGINE=InnoDB"
+            );
+        } else {
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS journal_state (" +
+                            "journal_id BLOB PRIMARY KEY," +
+                            "last_seq INTEGER NOT NULL" +
+                            ")"
+            );
+        }
+    }
+}
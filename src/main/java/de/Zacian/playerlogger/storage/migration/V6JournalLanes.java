@@ -0,0 +1,33 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.SQLException;
+
+/**
+ * Session-Events und Command-Logs werden getrennt priorisiert und damit nicht mehr in Journal-Reihenfolge
+ * committet. {@code last_seq} gilt ab jetzt nur noch für Session-Events, {@code command_seq} für Commands.
+ * Bisher war die Marke lückenlos über beide, deshalb startet {@code command_seq} mit demselben Wert.
+ */
+final class V6JournalLanes implements Migration {
+
+    @Override
+    public int version() {
+        return 6;
+    }
+
+    @Override
+    public String description() {
+        return "separate journal mark for command logs";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        ctx.inTransaction(() -> {
+            if (ctx.isMySql()) {
+                ctx.execute("ALTER TABLE journal_state ADD COLUMN command_seq BIGINT NOT NULL DEFAULT 0");
+            } else {
+                ctx.execute("ALTER TABLE journal_state ADD COLUMN command_seq INTEGER NOT NULL DEFAULT 0");
+            }
+            ctx.execute("UPDATE journal_state SET command_seq = last_seq");
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Tägliche Spielzeit pro Spieler ({@code day} = Epoch-Tag in Europe/Berlin) für {@code /plog top day|week|month}.
+ * Wird ab jetzt bei jedem Checkpoint und Quit fortgeschrieben. Die vorhandenen Sessions vor {@code cutoff}
+ * trägt PlaytimeBackfill im Hintergrund nach und droppt danach {@code playtime_backfill}.
+ */
+final class V7PlaytimeDaily implements Migration {
+
+    @Override
+    public int version() {
+        return 7;
+    }
+
+    @Override
+    public String description() {
+        return "daily playtime rollup";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        if (ctx.isMySql()) {
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS playtime_daily (" +
+                            "uuid BINARY(16) NOT NULL," +
+                            "day INT NOT NULL," +
+                            "ms BIGINT NOT NULL," +
+                            "PRIMARY KEY (uuid, day)" +
+                            ") ENGINE=InnoDB"
+            );
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS playtime_backfill (" +
+                            "cutoff BIGINT NOT NULL," +
+                            "last_id BIGINT NOT NULL" +
+                            ") ENGINE=InnoDB"
+            );
+        } else {
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS playtime_daily (" +
+                            "uuid BLOB NOT NULL," +
+                            "day INTEGER NOT NULL," +
+                            "ms INTEGER NOT NULL," +
+                            "PRIMARY KEY (uuid, day)" +
+                            ") WITHOUT ROWID"
+            );
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS playtime_backfill (" +
+                            "cutoff INTEGER NOT NULL," +
+                            "last_id INTEGER NOT NULL" +
+                            ")"
+            );
+        }
+        // (day, uuid, ms) deckt die Fenster-Abfrage komplett ab, die Tabelle selbst wird nicht gelesen
+        ctx.createIndex("CREATE INDEX idx_playtime_daily_day ON playtime_daily(day, uuid, ms)");
+
+        try (PreparedStatement ps = ctx.connection().prepareStatement(
+                "INSERT INTO playtime_backfill(cutoff, last_id) VALUES(?, 0)")) {
+            ps.setLong(1, System.currentTimeMillis());
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.SQLException;
+
+/**
+ * Volltextsuche für {@code /plog search}. Indexiert wird {@code command_texts}, nicht {@code command_logs}:
+ * jeder Text steht dort nur einmal, die Ausführungen findet danach {@code idx_command_text_time}.
+ *
+ * <ul>
+ *   <li>SQLite: FTS5-Tabelle mit external content auf {@code command_texts}, per Trigger synchron gehalten.
+ *   Die Trigger laufen in der Transaktion des Writers, also nie auf dem Main-Thread.</li>
+ *   <li>MySQL: {@code FULLTEXT}-Index auf {@code command_texts.text}, den pflegt InnoDB selbst.</li>
+ * </ul>
+ */
+final class V8CommandSearch implements Migration {
+
+    @Override
+    public int version() {
+        return 8;
+    }
+
+    @Override
+    public String description() {
+        return "full-text search on command texts";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        if (ctx.isMySql()) {
+            ctx.createIndex("CREATE FULLTEXT INDEX ft_command_texts_text ON command_texts(text)");
+            ctx.createIndex("CREATE INDEX idx_command_text_time ON command_logs(command_id, time)");
+            return;
+        }
+
+        ctx.inTransaction(() -> {
+            // prefix='2 3' macht die tok*-Abfragen aus /plog search billig
+            ctx.execute("CREATE VIRTUAL TABLE IF NOT EXISTS command_texts_fts USING fts5(" +
+                    "text, content='command_texts', content_rowid='id', prefix='2 3')");
+            ctx.execute("CREATE TRIGGER IF NOT EXISTS command_texts_ai AFTER INSERT ON command_texts BEGIN " +
+                    "INSERT INTO command_texts_fts(rowid, text) VALUES (new.id, new.text); END");
+            ctx.execute("CREATE TRIGGER IF NOT EXISTS command_texts_ad AFTER DELETE ON command_texts BEGIN " +
+                    "INSERT INTO command_texts_fts(command_texts_fts, rowid, text) VALUES ('delete', old.id, old.text); END");
+            ctx.execute("CREATE TRIGGER IF NOT EXISTS command_texts_au AFTER UPDATE ON command_texts BEGIN " +
+                    "INSERT INTO command_texts_fts(command_texts_fts, rowid, text) VALUES ('delete', old.id, old.text); " +
+                    "INSERT INTO command_texts_fts(rowid, text) VALUES (new.id, new.text); END");
+            // vorhandene Texte einmal übernehmen
+            ctx.execute("INSERT INTO command_texts_fts(command_texts_fts) VALUES ('rebuild')");
+            ctx.createIndex("CREATE INDEX idx_command_text_time ON command_logs(command_id, time)");
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package de.Zacian.playerlogger.storage.migration;
+
+import java.sql.SQLException;
+
+/**
+ * Warteschlange für das Löschen von Spielerdaten ({@code /plog delete}, {@code /plog purge}). PlayerPurge arbeitet
+ * sie in kleinen Transaktionen ab; was nach einem Neustart noch drinsteht, wird weiter gelöscht.
+ * Dazu Indizes auf {@code players(last_seen)} für die Inaktivitäts-Auswahl und {@code players(name)} für den
+ * Namens-Fallback, der bisher die ganze Tabelle gelesen hat.
+ */
+final class V9PurgeQueue implements Migration {
+
+    @Override
+    public int version() {
+        return 9;
+    }
+
+    @Override
+    public String description() {
+        return "purge queue";
+    }
+
+    @Override
+    public void apply(MigrationContext ctx) throws SQLException {
+        if (ctx.isMySql()) {
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS purge_queue (" +
+                            "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
+                            "uuid BINARY(16) NOT NULL," +
+                            "requested_at BIGINT NOT NULL" +
+                            ") ENGINE=InnoDB"
+            );
+        } else {
+            ctx.execute(
+                    "CREATE TABLE IF NOT EXISTS purge_queue (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "uuid BLOB NOT NULL," +
+                            "requested_at INTEGER NOT NULL" +
+                            ")"
+            );
+        }
+        ctx.createIndex("CREATE INDEX idx_players_last_seen ON players(last_seen)");
+        ctx.createIndex("CREATE INDEX idx_players_name ON players(name)");
+    }
+}
@@ -0,0 +1,69 @@
+package de.Zacian.playerlogger.util;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/** Spielzeit-Formatierung und Parsen von {@code /plog add}-Zeitangaben. */
+public final class Durations {
+
+    private Durations() { }
+
+    /** z. B. {@code "2 Tage 03h 04m 05s"} bzw. {@code "2 days 03h 04m 05s"}. */
+    public static String format(long ms, boolean english) {
+        long totalSeconds = TimeUnit.MILLISECONDS.toSeconds(ms);
+
+        long days = totalSeconds / 86400;
+        long hours = (totalSeconds % 86400) / 3600;
+        long minutes = (totalSeconds % 3600) / 60;
+        long seconds = totalSeconds % 60;
+
+        StringBuilder sb = new StringBuilder();
+
+        if (days > 0) {
+            if (english) {
+                sb.append(days == 1 ? "1 day " : days + " days ");
+            } else {
+                sb.append(days == 1 ? "1 Tag " : days + " Tage ");
+            }
+        }
+
+        sb.append(String.format("%02dh %02dm %02ds", hours, minutes, seconds));
+        return sb.toString();
+    }
+
+    /** {@code 90}, {@code 90m}, {@code 2h}, {@code 7d}, {@code 30s}, {@code 500ms}; ohne Einheit Minuten. */
+    public static long parse(String input) {
+        String s = input.trim().toLowerCase(Locale.ROOT);
+        if (s.isEmpty()) throw new IllegalArgumentException("leer");
+
+        long multiplier;
+        if (s.endsWith("ms")) {
+            multiplier = 1L;
+            s = s.substring(0, s.length() - 2);
+        } else if (s.endsWith("s")) {
+            multiplier = 1000L;
+            s = s.substring(0, s.length() - 1);
+        } else if (s.endsWith("m")) {
+            multiplier = 60_000L;
+            s = s.substring(0, s.length() - 1);
+        } else if (s.endsWith("h")) {
+            multiplier = 3_600_000L;
+            s = s.substring(0, s.length() - 1);
+        } else if (s.endsWith("d")) {
+            multiplier = 86_400_000L;
+            s = s.substring(0, s.length() - 1);
+        } else {
+            // Default: Minuten
+            multiplier = 60_000L;
+        }
+
+        long val;
+        try {
+            val = Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("keine Zahl: " + input);
+        }
+        if (val < 0) throw new IllegalArgumentException("negativ");
+        return val * multiplier;
+    }
+}
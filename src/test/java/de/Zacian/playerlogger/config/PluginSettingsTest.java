@@ -0,0 +1,35 @@
+package de.Zacian.playerlogger.config;
+
+import org.bukkit.configuration.MemoryConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PluginSettingsTest {
+
+    private static final Logger LOGGER = Logger.getLogger(PluginSettingsTest.class.getName());
+
+    private static int journalSizeMb(Object configured) {
+        MemoryConfiguration c = new MemoryConfiguration();
+        if (configured != null) c.set("database.journal.size-mb", configured);
+        return PluginSettings.Storage.load(c, LOGGER).journalSizeMb();
+    }
+
+    @Test
+    void journalSizeKeepsValidValues() {
+        assertEquals(16, journalSizeMb(null));
+        assertEquals(1, journalSizeMb(1));
+        assertEquals(PluginSettings.Storage.JOURNAL_MAX_MB, journalSizeMb(PluginSettings.Storage.JOURNAL_MAX_MB));
+    }
+
+    @Test
+    void journalSizeIsClampedSoTheByteCountFitsAMapping() {
+        assertEquals(1, journalSizeMb(0));
+        assertEquals(1, journalSizeMb(-5));
+        // 4096 MiB in Bytes wäre als int-Rechnung 0
+        assertEquals(PluginSettings.Storage.JOURNAL_MAX_MB, journalSizeMb(4096));
+        assertEquals(PluginSettings.Storage.JOURNAL_MAX_MB, journalSizeMb(Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,82 @@
+package de.Zacian.playerlogger.filter;
+
+import org.bukkit.configuration.MemoryConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CommandFilterTest {
+
+    private static CommandFilter filter(String key, String... rules) {
+        MemoryConfiguration section = new MemoryConfiguration();
+        section.set(key, List.of(rules));
+        return CommandFilter.compile(section);
+    }
+
+    @Test
+    void denyPrefixSkipsCommandIgnoringCase() {
+        CommandFilter f = filter("deny-prefixes", "/login");
+        assertNull(f.apply("/login geheim"));
+        assertNull(f.apply("/LOGIN geheim"));
+        // Präfix: auch ohne Leerzeichen dahinter
+        assertNull(f.apply("/loginx"));
+        assertEquals("/log", f.apply("/log"));
+    }
+
+    @Test
+    void redactKeepsOnlyTheLabel() {
+        CommandFilter f = filter("redact-prefixes", "/msg");
+        assertEquals("/msg ***", f.apply("/msg Steve mein Passwort ist 1234"));
+        assertEquals("/msg", f.apply("/msg"));
+        assertEquals("/list", f.apply("/list"));
+    }
+
+    @Test
+    void exactRuleMatchesLabelUpToFirstSpace() {
+        CommandFilter f = filter("deny-exact", "/l");
+        assertNull(f.apply("/l"));
+        assertNull(f.apply("/l Steve"));
+        assertEquals("/list", f.apply("/list"));
+        assertEquals("/list all", f.apply("/list all"));
+    }
+
+    @Test
+    void longestMatchWins() {
+        MemoryConfiguration section = new MemoryConfiguration();
+        section.set("redact-prefixes", List.of("/w"));
+        section.set("deny-prefixes", List.of("/warp"));
+        section.set("allow-prefixes", List.of("/warp list"));
+        CommandFilter f = CommandFilter.compile(section);
+
+        assertEquals("/w ***", f.apply("/w Steve hallo"));
+        assertNull(f.apply("/warp home"));
+        assertEquals("/warp list", f.apply("/warp list"));
+    }
+
+    @Test
+    void denyWinsOverIdenticalRule() {
+        MemoryConfiguration section = new MemoryConfiguration();
+        section.set("redact-prefixes", List.of("/login"));
+        section.set("deny-prefixes", List.of("/login"));
+        assertNull(CommandFilter.compile(section).apply("/login geheim"));
+    }
+
+    @Test
+    void allowRulesSkipEverythingElse() {
+        CommandFilter f = filter("allow-prefixes", "/spawn");
+        assertEquals("/spawn", f.apply("/spawn"));
+        assertNull(f.apply("/home"));
+    }
+
+    @Test
+    void disabledLogsEverything() {
+        MemoryConfiguration section = new MemoryConfiguration();
+        section.set("enabled", false);
+        section.set("deny-prefixes", List.of("/login"));
+        assertEquals("/login geheim", CommandFilter.compile(section).apply("/login geheim"));
+        assertEquals("/login geheim", CommandFilter.disabled().apply("/login geheim"));
+    }
+}
@@ -0,0 +1,38 @@
+package de.Zacian.playerlogger.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CommandSearchTest {
+
+    @Test
+    void everyWordBecomesARequiredPrefix() {
+        assertEquals("\"tp\"* \"steve\"*", CommandSearch.expression("tp steve", false));
+        assertEquals("+tp* +steve*", CommandSearch.expression("tp steve", true));
+    }
+
+    @Test
+    void syntaxCharactersAreDropped() {
+        // nichts davon darf als FTS5- bzw. Boolean-Mode-Operator ankommen
+        String input = "/give \"Steve\" -diamond* (64) OR NEAR:x";
+        assertEquals("\"give\"* \"Steve\"* \"diamond\"* \"64\"* \"OR\"* \"NEAR\"* \"x\"*",
+                CommandSearch.expression(input, false));
+        assertEquals("+give* +Steve* +diamond* +64* +OR* +NEAR* +x*",
+                CommandSearch.expression(input, true));
+    }
+
+    @Test
+    void lettersBeyondAsciiAreKept() {
+        assertEquals("\"msg\"* \"grüße\"* \"straße\"*", CommandSearch.expression("/msg:grüße straße", false));
+        assertEquals("+msg* +grüße* +straße*", CommandSearch.expression("/msg:grüße straße", true));
+    }
+
+    @Test
+    void inputWithoutWordsYieldsNoExpression() {
+        assertNull(CommandSearch.expression("", false));
+        assertNull(CommandSearch.expression("  /*-+\"() ", false));
+        assertNull(CommandSearch.expression("  /*-+\"() ", true));
+    }
+}
@@ -0,0 +1,184 @@
+package de.Zacian.playerlogger.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventJournalTest {
+
+    private static final Logger LOGGER = Logger.getLogger(EventJournalTest.class.getName());
+    private static final UUID PLAYER = UUID.fromString("0f2c9a3e-5b1d-4c7a-9e8f-1a2b3c4d5e6f");
+    private static final int SIZE = 32 + 4096;
+
+    @TempDir
+    Path dir;
+
+    private EventJournal open() throws IOException {
+        return EventJournal.open(dir.resolve("events.journal"), SIZE, LOGGER);
+    }
+
+    @Test
+    void recoversAllEventTypesAfterRestart() throws IOException {
+        EventJournal journal = open();
+        UUID id = journal.id();
+        journal.append(new LogEvent.Join(PLAYER, "Steve", 1000L, true, new OpenSession(1000L)));
+        journal.append(new LogEvent.Command(PLAYER, 2000L, "/home bett"));
+        journal.append(new LogEvent.Checkpoint(3000L,
+                List.of(new LogEvent.Checkpoint.Progress(PLAYER, new OpenSession(1000L, 7L), 2000L))));
+        journal.append(new LogEvent.Quit(PLAYER, "Steve", 4000L, 3000L, new OpenSession(1000L, 7L)));
+        journal.append(new LogEvent.PlayerUpdate(PLAYER, "Steve", 4000L, false));
+        journal.close();
+
+        EventJournal reopened = open();
+        assertEquals(id, reopened.id());
+        List<EventJournal.Entry> entries = reopened.takeRecovered();
+        assertEquals(5, entries.size());
+        for (int i = 0; i < entries.size(); i++) assertEquals(i + 1L, entries.get(i).seq());
+
+        LogEvent.Join join = (LogEvent.Join) entries.get(0).event();
+        assertEquals(PLAYER, join.uuid());
+        assertEquals("Steve", join.name());
+        assertEquals(1000L, join.time());
+        assertTrue(join.upsert());
+        assertEquals(1000L, join.session().startMs());
+
+        assertEquals(new LogEvent.Command(PLAYER, 2000L, "/home bett"), entries.get(1).event());
+
+        LogEvent.Checkpoint checkpoint = (LogEvent.Checkpoint) entries.get(2).event();
+        assertEquals(3000L, checkpoint.time());
+        LogEvent.Checkpoint.Progress progress = checkpoint.sessions().get(0);
+        assertEquals(PLAYER, progress.uuid());
+        assertEquals(1000L, progress.session().startMs());
+        assertEquals(7L, progress.session().id());
+        assertEquals(2000L, progress.sessionMs());
+
+        LogEvent.Quit quit = (LogEvent.Quit) entries.get(3).event();
+        assertEquals(4000L, quit.time());
+        assertEquals(3000L, quit.sessionMs());
+        assertEquals(1000L, quit.session().startMs());
+        assertEquals(7L, quit.session().id());
+
+        assertEquals(new LogEvent.PlayerUpdate(PLAYER, "Steve", 4000L, false), entries.get(4).event());
+        // neue Nummern schließen an die alten an
+        assertEquals(6L, reopened.append(new LogEvent.Command(PLAYER, 5000L, "/spawn")));
+        reopened.close();
+    }
+
+    @Test
+    void committedEventsAreNotReplayed() throws IOException {
+        EventJournal journal = open();
+        for (int i = 1; i <= 3; i++) journal.append(command(i));
+        journal.committed(2L);
+        journal.close();
+
+        EventJournal reopened = open();
+        List<EventJournal.Entry> entries = reopened.takeRecovered();
+        assertEquals(1, entries.size());
+        assertEquals(3L, entries.get(0).seq());
+        assertEquals(command(3), entries.get(0).event());
+        assertEquals(4L, reopened.append(command(4)));
+        reopened.close();
+    }
+
+    @Test
+    void fullyCommittedJournalStartsOver() throws IOException {
+        EventJournal journal = open();
+        for (int i = 1; i <= 3; i++) journal.append(command(i));
+        journal.committed(3L);
+        journal.append(command(4));
+        journal.close();
+
+        // der Record nach dem Neuanfang überschreibt den Anfang, die alten Reste dahinter zählen nicht
+        EventJournal reopened = open();
+        List<EventJournal.Entry> entries = reopened.takeRecovered();
+        assertEquals(1, entries.size());
+        assertEquals(4L, entries.get(0).seq());
+        reopened.close();
+    }
+
+    @Test
+    void compactionKeepsUncommittedEventsInOrder() throws IOException {
+        EventJournal journal = open();
+        long seq = 0;
+        long acked = 0;
+        // deutlich mehr als in die Datei passt, die DB hängt immer 20 Events hinterher
+        for (int i = 1; i <= 500; i++) {
+            seq = journal.append(command(i));
+            assertEquals(i, seq);
+            if (i - acked > 20) {
+                acked = i - 20;
+                journal.committed(acked);
+            }
+        }
+        journal.close();
+
+        EventJournal reopened = open();
+        List<EventJournal.Entry> entries = reopened.takeRecovered();
+        assertEquals(seq - acked, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            long expected = acked + 1 + i;
+            assertEquals(expected, entries.get(i).seq());
+            assertEquals(command((int) expected), entries.get(i).event());
+        }
+        reopened.close();
+    }
+
+    @Test
+    void fullJournalFallsBackToMemory() throws IOException {
+        EventJournal journal = open();
+        long seq = 1;
+        int appended = 0;
+        while (seq != 0L) {
+            seq = journal.append(command(appended + 1));
+            if (seq != 0L) appended++;
+        }
+        assertTrue(appended > 0);
+        journal.close();
+
+        EventJournal reopened = open();
+        assertEquals(appended, reopened.takeRecovered().size());
+        reopened.close();
+    }
+
+    @Test
+    void recoveryStopsAtDamagedRecord() throws IOException {
+        EventJournal journal = open();
+        for (int i = 1; i <= 3; i++) journal.append(command(i));
+        journal.close();
+
+        // ein Byte im Payload des zweiten Records kippen, die CRC passt dann nicht mehr
+        try (FileChannel ch = FileChannel.open(dir.resolve("events.journal"),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer len = ByteBuffer.allocate(4);
+            ch.read(len, 32);
+            long second = 32 + 16 + len.flip().getInt();
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, second + 16 + 20);
+            b.put(0, (byte) (b.get(0) ^ 0x5A)).rewind();
+            ch.write(b, second + 16 + 20);
+        }
+
+        EventJournal reopened = open();
+        List<EventJournal.Entry> entries = reopened.takeRecovered();
+        assertEquals(1, entries.size());
+        assertInstanceOf(LogEvent.Command.class, entries.get(0).event());
+        assertEquals(command(1), entries.get(0).event());
+        reopened.close();
+    }
+
+    private static LogEvent.Command command(int i) {
+        return new LogEvent.Command(PLAYER, 1000L * i, "/say Nachricht " + i);
+    }
+}
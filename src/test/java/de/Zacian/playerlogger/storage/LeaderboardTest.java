@@ -0,0 +1,143 @@
+package de.Zacian.playerlogger.storage;
+
+import de.Zacian.playerlogger.metrics.PluginMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderboardTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long T0 = 1_700_000_000_000L;
+
+    private static final UUID ALEX = new UUID(0L, 1L);
+    private static final UUID BOB = new UUID(0L, 2L);
+    private static final UUID CARL = new UUID(0L, 3L);
+
+    private static Leaderboard loaded() throws SQLException {
+        Leaderboard board = new Leaderboard();
+        load(board);
+        return board;
+    }
+
+    private static void load(Leaderboard board) throws SQLException {
+        try (Connection con = DriverManager.getConnection("jdbc:sqlite::memory:");
+             Statement st = con.createStatement()) {
+            st.execute("CREATE TABLE players (uuid BLOB, name TEXT, total_playtime_ms INTEGER)");
+            board.load(con, false, new PluginMetrics());
+        }
+    }
+
+    /** Alex 10h und Bob 5h offline, Carl mit 4h seit T0 online. */
+    private static Leaderboard sample() throws SQLException {
+        Leaderboard board = loaded();
+        board.add(ALEX, "Alex", 10 * HOUR);
+        board.add(BOB, "Bob", 5 * HOUR);
+        board.add(CARL, "Carl", 4 * HOUR);
+        board.join(CARL, "Carl", T0);
+        return board;
+    }
+
+    @Test
+    void topMergesOfflineAndRunningSessions() throws SQLException {
+        Leaderboard board = sample();
+
+        assertEquals(List.of(
+                new Leaderboard.Row(ALEX, "Alex", 10 * HOUR),
+                new Leaderboard.Row(CARL, "Carl", 6 * HOUR),
+                new Leaderboard.Row(BOB, "Bob", 5 * HOUR)), board.top(10, T0 + 2 * HOUR));
+
+        // die laufende Session überholt mit der Zeit
+        assertEquals(List.of(
+                new Leaderboard.Row(CARL, "Carl", 11 * HOUR),
+                new Leaderboard.Row(ALEX, "Alex", 10 * HOUR)), board.top(2, T0 + 7 * HOUR));
+    }
+
+    @Test
+    void rankMatchesTopOrder() throws SQLException {
+        Leaderboard board = sample();
+        long now = T0 + 2 * HOUR;
+
+        assertEquals(new Leaderboard.Rank(1, 3), board.rank(ALEX, now));
+        assertEquals(new Leaderboard.Rank(2, 3), board.rank(CARL, now));
+        assertEquals(new Leaderboard.Rank(3, 3), board.rank(BOB, now));
+        assertEquals(new Leaderboard.Rank(1, 3), board.rank(CARL, T0 + 7 * HOUR));
+        assertNull(board.rank(new UUID(0L, 99L), now));
+    }
+
+    @Test
+    void equalPlaytimeSharesRank() throws SQLException {
+        Leaderboard board = sample();
+        // Carl hat bei T0 + 1h genauso viel wie Bob
+        long now = T0 + HOUR;
+        assertEquals(new Leaderboard.Rank(2, 3), board.rank(BOB, now));
+        assertEquals(new Leaderboard.Rank(2, 3), board.rank(CARL, now));
+    }
+
+    @Test
+    void quitBooksTheSession() throws SQLException {
+        Leaderboard board = sample();
+        board.quit(CARL, "Carl", 3 * HOUR);
+
+        // offline zählt die Zeit nicht weiter
+        assertEquals(List.of(
+                new Leaderboard.Row(ALEX, "Alex", 10 * HOUR),
+                new Leaderboard.Row(CARL, "Carl", 7 * HOUR),
+                new Leaderboard.Row(BOB, "Bob", 5 * HOUR)), board.top(10, T0 + 100 * HOUR));
+    }
+
+    @Test
+    void removedPlayersDisappear() throws SQLException {
+        Leaderboard board = sample();
+        board.remove(ALEX);
+        board.removeByName("CARL");
+
+        assertEquals(1, board.size());
+        assertEquals(List.of(new Leaderboard.Row(BOB, "Bob", 5 * HOUR)), board.top(10, T0));
+        assertEquals(new Leaderboard.Rank(1, 1), board.rank(BOB, T0));
+        assertNull(board.rank(CARL, T0));
+    }
+
+    @Test
+    void updatesBeforeLoadAreReplayed() throws SQLException {
+        Leaderboard board = new Leaderboard();
+        board.add(ALEX, "Alex", HOUR);
+        board.join(BOB, "Bob", T0);
+        assertFalse(board.isLoaded());
+        assertNull(board.rank(ALEX, T0));
+
+        load(board);
+        assertTrue(board.isLoaded());
+        assertEquals(List.of(
+                new Leaderboard.Row(BOB, "Bob", 2 * HOUR),
+                new Leaderboard.Row(ALEX, "Alex", HOUR)), board.top(10, T0 + 2 * HOUR));
+    }
+
+    @Test
+    void manyPlayersStayConsistent() throws SQLException {
+        Leaderboard board = loaded();
+        int n = 1000;
+        for (int i = 0; i < n; i++) {
+            board.add(new UUID(1L, i), "p" + i, (i * 7919L % n) * HOUR);
+        }
+        for (int i = 0; i < n; i += 2) board.add(new UUID(1L, i), "p" + i, HOUR / 2);
+
+        List<Leaderboard.Row> top = board.top(n, T0);
+        assertEquals(n, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            Leaderboard.Row row = top.get(i);
+            if (i > 0) assertTrue(top.get(i - 1).playtimeMs() > row.playtimeMs());
+            assertEquals(new Leaderboard.Rank(i + 1, n), board.rank(row.uuid(), T0));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package de.Zacian.playerlogger.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlaytimeRollupTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    private record Part(long day, long ms) { }
+
+    private static long at(String localDateTime) {
+        return LocalDateTime.parse(localDateTime).atZone(PlaytimeRollup.ZONE).toInstant().toEpochMilli();
+    }
+
+    private static long day(String date) {
+        return LocalDate.parse(date).toEpochDay();
+    }
+
+    private static List<Part> split(long from, long to) throws SQLException {
+        List<Part> parts = new ArrayList<>();
+        PlaytimeRollup.splitDays(from, to, (day, ms) -> parts.add(new Part(day, ms)));
+        return parts;
+    }
+
+    @Test
+    void intervalWithinOneDayIsNotSplit() throws SQLException {
+        assertEquals(List.of(new Part(day("2026-05-10"), 2 * HOUR)),
+                split(at("2026-05-10T14:00"), at("2026-05-10T16:00")));
+    }
+
+    @Test
+    void splitsAtBerlinMidnightNotUtc() throws SQLException {
+        // 23:30 Berliner Zeit ist in UTC noch derselbe Tag (21:30)
+        assertEquals(List.of(
+                        new Part(day("2026-07-01"), HOUR / 2),
+                        new Part(day("2026-07-02"), HOUR / 2)),
+                split(at("2026-07-01T23:30"), at("2026-07-02T00:30")));
+    }
+
+    @Test
+    void springForwardDayHas23Hours() throws SQLException {
+        // 29.03.2026: 02:00 -> 03:00
+        assertEquals(List.of(
+                        new Part(day("2026-03-28"), HOUR),
+                        new Part(day("2026-03-29"), 23 * HOUR),
+                        new Part(day("2026-03-30"), HOUR)),
+                split(at("2026-03-28T23:00"), at("2026-03-30T01:00")));
+    }
+
+    @Test
+    void fallBackDayHas25Hours() throws SQLException {
+        // 25.10.2026: 03:00 -> 02:00
+        assertEquals(List.of(
+                        new Part(day("2026-10-25"), 25 * HOUR),
+                        new Part(day("2026-10-26"), HOUR)),
+                split(at("2026-10-25T00:00"), at("2026-10-26T01:00")));
+    }
+
+    @Test
+    void partsAddUpToTheInterval() throws SQLException {
+        long from = at("2026-03-20T17:45");
+        long to = at("2026-11-02T06:10");
+        long sum = 0L;
+        long previousDay = Long.MIN_VALUE;
+        for (Part p : split(from, to)) {
+            assertTrue(p.day() > previousDay);
+            previousDay = p.day();
+            sum += p.ms();
+        }
+        assertEquals(to - from, sum);
+    }
+
+    @Test
+    void emptyIntervalYieldsNothing() throws SQLException {
+        long t = at("2026-01-01T12:00");
+        assertEquals(List.of(), split(t, t));
+        assertEquals(List.of(), split(t, t - HOUR));
+    }
+
+    @Test
+    void splitSkipsEverythingBeforeCutoff() throws SQLException {
+        PlaytimeRollup rollup = new PlaytimeRollup(null);
+        rollup.cutoff(at("2026-07-02T00:15"));
+        List<Part> parts = new ArrayList<>();
+        rollup.split(at("2026-07-01T23:00"), at("2026-07-02T01:00"), (day, ms) -> parts.add(new Part(day, ms)));
+        assertEquals(List.of(new Part(day("2026-07-02"), 45 * 60_000L)), parts);
+    }
+
+    @Test
+    void windowsStartOnBerlinCalendarBoundaries() {
+        // Sonntag, 05.04.2026 00:30 Berliner Zeit (in UTC noch Samstag)
+        long now = at("2026-04-05T00:30");
+        assertEquals(day("2026-04-05"), PlaytimeRollup.Window.DAY.firstDay(now));
+        assertEquals(day("2026-03-30"), PlaytimeRollup.Window.WEEK.firstDay(now));
+        assertEquals(day("2026-04-01"), PlaytimeRollup.Window.MONTH.firstDay(now));
+    }
+}
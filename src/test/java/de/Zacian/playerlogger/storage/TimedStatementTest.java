@@ -0,0 +1,66 @@
+package de.Zacian.playerlogger.storage;
+
+import de.Zacian.playerlogger.metrics.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimedStatementTest {
+
+    private static final SQLException FAILURE = new SQLException("constraint failed");
+
+    /** Statement ohne Treiber: zählt addBatch mit, executeUpdate schlägt fehl, wenn {@code fail} gesetzt ist. */
+    private static PreparedStatement target(boolean fail) {
+        int[] batched = new int[1];
+        return (PreparedStatement) Proxy.newProxyInstance(TimedStatementTest.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (p, m, a) -> switch (m.getName()) {
+                    case "addBatch" -> {
+                        batched[0]++;
+                        yield null;
+                    }
+                    case "executeBatch" -> {
+                        int[] counts = new int[batched[0]];
+                        batched[0] = 0;
+                        yield counts;
+                    }
+                    case "executeUpdate" -> {
+                        if (fail) throw FAILURE;
+                        yield 1;
+                    }
+                    default -> null;
+                });
+    }
+
+    @Test
+    void recordsExecutionsButNotBindingOrEmptyBatches() throws SQLException {
+        Histogram h = new Histogram();
+        PreparedStatement ps = TimedStatement.wrap(target(false), h);
+
+        ps.setInt(1, 1);
+        assertEquals(1, ps.executeUpdate());
+        assertEquals(1, h.snapshot().count());
+
+        ps.executeBatch();
+        assertEquals(1, h.snapshot().count());
+
+        ps.addBatch();
+        ps.addBatch();
+        assertEquals(2, ps.executeBatch().length);
+        assertEquals(2, h.snapshot().count());
+    }
+
+    @Test
+    void passesSqlExceptionsThroughUnwrapped() {
+        Histogram h = new Histogram();
+        PreparedStatement ps = TimedStatement.wrap(target(true), h);
+
+        assertSame(FAILURE, assertThrows(SQLException.class, ps::executeUpdate));
+        assertEquals(0, h.snapshot().count());
+    }
+}